@@ -0,0 +1,147 @@
+import java.util.Random;
+
+/**
+ * AttackBenchmark.java
+ *
+ * @author: Paul Shin
+ * 
+ * Brief Program Description: Compares the bitboard attack lookups and the attack
+ * maps against the square-by-square walk the pieces used before, first checking
+ * that all of them agree on every square of a set of random positions, then
+ * timing each of them.
+ */
+public class AttackBenchmark {
+  /** The number of random positions to test. */
+  private static final int POSITIONS = 2000;
+
+  /** The number of timed passes over every position. */
+  private static final int ROUNDS = 20;
+
+  public static void main(String[] args) {
+    Position[] positions = createPositions(new Random(2018));
+    Position[] unmapped = createPositions(new Random(2018)); // Never asked for attack maps.
+
+    // Make sure both methods agree before timing them.
+    for (Position position : positions)
+      for (int sq = 0; sq < 64; sq++)
+        for (int player = 0; player <= 1; player++)
+          if (position.isAttacked(sq, player) != walkIsAttacked(position, sq, player)
+              || position.isSquareAttacked(sq, player) != walkIsAttacked(position, sq, player)) {
+            System.out.println("Mismatch on square " + sq + " for player " + player + "!");
+            return;
+          }
+    System.out.println("All methods agree on " + POSITIONS + " random positions.");
+
+    // Time each method, leaving the first round as a warmup.
+    for (int round = 0; round <= ROUNDS; round++) {
+      long walkTime = 0, bitboardTime = 0, mapTime = 0;
+      int walkCount = 0, bitboardCount = 0, mapCount = 0;
+
+      long start = System.nanoTime();
+      for (Position position : positions)
+        for (int sq = 0; sq < 64; sq++)
+          if (walkIsAttacked(position, sq, 0) || walkIsAttacked(position, sq, 1))
+            walkCount++;
+      walkTime = System.nanoTime() - start;
+
+      start = System.nanoTime();
+      for (Position position : unmapped)
+        for (int sq = 0; sq < 64; sq++)
+          if (position.isAttacked(sq, 0) || position.isAttacked(sq, 1))
+            bitboardCount++;
+      bitboardTime = System.nanoTime() - start;
+
+      // The attack maps are already built from the check above.
+      start = System.nanoTime();
+      for (Position position : positions)
+        for (int sq = 0; sq < 64; sq++)
+          if (position.isSquareAttacked(sq, 0) || position.isSquareAttacked(sq, 1))
+            mapCount++;
+      mapTime = System.nanoTime() - start;
+
+      if (round == ROUNDS) {
+        long queries = 2L * POSITIONS * 64;
+        System.out.printf("Square walk: %.1f ns per query (%d attacked)%n", (double) walkTime / queries, walkCount);
+        System.out.printf("Bitboards:   %.1f ns per query (%d attacked)%n", (double) bitboardTime / queries, bitboardCount);
+        System.out.printf("Attack maps: %.1f ns per query (%d attacked)%n", (double) mapTime / queries, mapCount);
+        System.out.printf("Speedup:     %.1fx, %.1fx%n", (double) walkTime / bitboardTime, (double) walkTime / mapTime);
+      }
+    }
+  }
+
+  /**
+   * Creates positions holding both kings and a random selection of other pieces.
+   * @param random The source of randomness.
+   * @return The array of positions.
+   */
+  private static Position[] createPositions(Random random) {
+    Position[] positions = new Position[POSITIONS];
+
+    for (int n = 0; n < POSITIONS; n++) {
+      Position position = new Position();
+      position.put(Position.code(0, Position.KING), random.nextInt(64));
+      int whiteKing = random.nextInt(64);
+      while (!position.isEmpty(whiteKing))
+        whiteKing = random.nextInt(64);
+      position.put(Position.code(1, Position.KING), whiteKing);
+
+      int pieces = 4 + random.nextInt(24);
+      for (int i = 0; i < pieces; i++) {
+        int sq = random.nextInt(64);
+        if (position.isEmpty(sq))
+          position.put(Position.code(random.nextInt(2), 1 + random.nextInt(5)), sq);
+      }
+      positions[n] = position;
+    }
+    return positions;
+  }
+
+  /**
+   * Determines whether or not a square is attacked by walking over each
+   * square of the board and then along each piece's path one square at a
+   * time, in the same way as the pieces did before bitboards.
+   * @param position The position to test.
+   * @param square The square to test.
+   * @param player The ownership ID of the attacking player.
+   * @return Whether or not the square is attacked.
+   */
+  private static boolean walkIsAttacked(Position position, int square, int player) {
+    int row = Position.rowOf(square);
+    int col = Position.colOf(square);
+
+    for (int sq = 0; sq < 64; sq++) {
+      int code = position.getCode(sq);
+      if (code == Position.EMPTY || Position.playerOf(code) != player || sq == square)
+        continue;
+
+      int r = Position.rowOf(sq);
+      int c = Position.colOf(sq);
+      int dr = row - r;
+      int dc = col - c;
+      int type = Position.typeOf(code);
+      boolean straight = (dr == 0 || dc == 0);
+      boolean diagonal = (Math.abs(dr) == Math.abs(dc));
+
+      if (type == Position.PAWN && Math.abs(dc) == 1 && dr == ((player == 0) ? 1 : -1))
+        return true;
+      if (type == Position.KNIGHT && Math.abs(dr * dc) == 2)
+        return true;
+      if (type == Position.KING && Math.abs(dr) <= 1 && Math.abs(dc) <= 1)
+        return true;
+      if ((type == Position.ROOK && straight) || (type == Position.BISHOP && diagonal)
+          || (type == Position.QUEEN && (straight || diagonal))) {
+        int stepR = Integer.signum(dr);
+        int stepC = Integer.signum(dc);
+        boolean clear = true;
+        for (int i = r + stepR, j = c + stepC; i != row || j != col; i += stepR, j += stepC)
+          if (position.getCode(i, j) != Position.EMPTY) {
+            clear = false;
+            break;
+          }
+        if (clear)
+          return true;
+      }
+    }
+    return false;
+  }
+}
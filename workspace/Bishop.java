@@ -15,7 +15,7 @@ public class Bishop extends Piece {
    * @param col The initial column.
    */
   public Bishop(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 3);
+    super(playerNumber, row, col, getPieceValue(Position.BISHOP));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackBishop.png");
     else
@@ -30,92 +30,74 @@ public class Bishop extends Piece {
    * returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
-    // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
       return false;
-    
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the bishop on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the bishop.
+   * @param to The square to send the bishop to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
+    // Case 1: The piece isn't moved.
+    if (from == to)
       return false;
     
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Case 3: The bishop is moved diagonally.
-    if (Math.abs(row - getRow()) == Math.abs(col - getCol())) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      int currentRow = getRow();
-      int currentCol = getCol();
-      // Condition 1: The bishop is moved down.
-      if (row > getRow()) {
-        // Subcondition 1: The bishop is moved right.
-        if (col > getCol()) {
-          currentRow++;
-          currentCol++;
-          while (currentRow < row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow++;
-            currentCol++;
-          }
-        }
-        // Subcondition 2: The bishop is moved left.
-        else {
-          currentRow++;
-          currentCol--;
-          while (currentRow < row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow++;
-            currentCol--;
-          }
-        }
-      }
-      // Condition 2: The bishop is moved up.
-      else {
-        // Subcondition 1: The bishop is moved right.
-        if (col > getCol()) {
-          currentRow--;
-          currentCol++;
-          while (currentRow > row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow--;
-            currentCol++;
-          }
-        }
-        // Subcondition 2: The bishop is moved left.
-        else {
-          currentRow--;
-          currentCol--;
-          while (currentRow > row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow--;
-            currentCol--;
-          }
-        }
-      }
+    // Look up the diagonals of the bishop, stopping at the first piece in the way.
+    return (Bitboards.bishopAttacks(from, position.getOccupied()) & (1L << to)) != 0;
+  }
+
+  /**
+   * Adds every move the bishop can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
 
-      return true;
-    }
+  /**
+   * Adds every square along the diagonals of the bishop on
+   * the given square, up to and including the first enemy piece.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the bishop.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    long targets = Bitboards.bishopAttacks(from, position.getOccupied()) & ~position.getOccupancy(player);
+    return Move.addAll(from, targets, moves, count);
+  }
 
-    // The bishop is not moved diagonally, and so the move is invalid.
-    return false;
+  /**
+   * Returns the rank of a bishop.
+   * @return The rank of a bishop.
+   */
+  public int getType() {
+    return Position.BISHOP;
   }
 
   /**
@@ -0,0 +1,323 @@
+/** Precomputed attack tables for a 64-bit representation of the Chess board.
+ * Bit n of a bitboard stands for square n of a Position, i.e. row * 8 + column.
+ * The knight, king, and pawn attacks are looked up directly, while the attacks
+ * of the sliding pieces are found through magic bitboards: the blockers on a
+ * piece's lines are multiplied by a magic number, and the top bits of the
+ * product index a table holding every possible attack set.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public final class Bitboards {
+  /* # DATA STRUCTURES # */
+
+  /** The bitboard of the leftmost column. */
+  public static final long LEFT_COLUMN = 0x0101010101010101L;
+
+  /** The bitboard of the rightmost column. */
+  public static final long RIGHT_COLUMN = LEFT_COLUMN << 7;
+
+  /** The squares attacked by a knight on each square. */
+  private static final long[] KNIGHT_ATTACKS = new long[64];
+
+  /** The squares attacked by a king on each square. */
+  private static final long[] KING_ATTACKS = new long[64];
+
+  /** The squares attacked by a pawn of each player on each square. */
+  private static final long[][] PAWN_ATTACKS = new long[2][64];
+
+  /** The squares strictly between two aligned squares, indexed by from * 64 + to. */
+  private static final long[] BETWEEN = new long[64 * 64];
+
+  /** The squares on the full line through two aligned squares, indexed by from * 64 + to. */
+  private static final long[] LINE = new long[64 * 64];
+
+  /** The relevant blocker squares for a rook on each square. */
+  private static final long[] ROOK_MASKS = new long[64];
+
+  /** The relevant blocker squares for a bishop on each square. */
+  private static final long[] BISHOP_MASKS = new long[64];
+
+  /** The magic multipliers for a rook on each square. */
+  private static final long[] ROOK_MAGICS = new long[64];
+
+  /** The magic multipliers for a bishop on each square. */
+  private static final long[] BISHOP_MAGICS = new long[64];
+
+  /** The amount each rook product is shifted by to form an index. */
+  private static final int[] ROOK_SHIFTS = new int[64];
+
+  /** The amount each bishop product is shifted by to form an index. */
+  private static final int[] BISHOP_SHIFTS = new int[64];
+
+  /** The rook attack sets of every square, each square owning its own slice. */
+  private static final long[][] ROOK_ATTACKS = new long[64][];
+
+  /** The bishop attack sets of every square, each square owning its own slice. */
+  private static final long[][] BISHOP_ATTACKS = new long[64][];
+
+  /** The row and column steps of a rook. */
+  private static final int[][] ROOK_STEPS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+  /** The row and column steps of a bishop. */
+  private static final int[][] BISHOP_STEPS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+
+  /** The row and column steps of a knight. */
+  private static final int[][] KNIGHT_STEPS = {{-2, -1}, {-2, 1}, {-1, -2}, {-1, 2},
+                                               {1, -2}, {1, 2}, {2, -1}, {2, 1}};
+
+  /** The seed of the random number generator used to search for magics. */
+  private static long seed = 0x2F6B3C9D14E5A781L;
+
+  static {
+    for (int sq = 0; sq < 64; sq++) {
+      int row = Position.rowOf(sq);
+      int col = Position.colOf(sq);
+
+      // Step 1: Fill in the tables of the pieces that move a fixed distance.
+      for (int[] step : KNIGHT_STEPS)
+        KNIGHT_ATTACKS[sq] |= bit(row + step[0], col + step[1]);
+      for (int dr = -1; dr <= 1; dr++)
+        for (int dc = -1; dc <= 1; dc++)
+          if (dr != 0 || dc != 0)
+            KING_ATTACKS[sq] |= bit(row + dr, col + dc);
+      PAWN_ATTACKS[0][sq] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+      PAWN_ATTACKS[1][sq] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+
+      // Step 2: Fill in the squares between and through aligned pairs of squares.
+      for (int dr = -1; dr <= 1; dr++)
+        for (int dc = -1; dc <= 1; dc++) {
+          if (dr == 0 && dc == 0)
+            continue;
+          long path = 0L;
+          for (int r = row + dr, c = col + dc; Position.inBounds(r, c); r += dr, c += dc) {
+            int to = Position.square(r, c);
+            BETWEEN[sq * 64 + to] = path;
+            LINE[sq * 64 + to] = slide(sq, 0L, new int[][] {{dr, dc}, {-dr, -dc}}) | (1L << sq);
+            path |= 1L << to;
+          }
+        }
+
+      // Step 3: Find the magic numbers of the sliding pieces.
+      ROOK_MASKS[sq] = relevantMask(sq, ROOK_STEPS);
+      BISHOP_MASKS[sq] = relevantMask(sq, BISHOP_STEPS);
+      ROOK_SHIFTS[sq] = 64 - Long.bitCount(ROOK_MASKS[sq]);
+      BISHOP_SHIFTS[sq] = 64 - Long.bitCount(BISHOP_MASKS[sq]);
+      ROOK_ATTACKS[sq] = new long[1 << Long.bitCount(ROOK_MASKS[sq])];
+      BISHOP_ATTACKS[sq] = new long[1 << Long.bitCount(BISHOP_MASKS[sq])];
+      ROOK_MAGICS[sq] = findMagic(sq, ROOK_MASKS[sq], ROOK_SHIFTS[sq], ROOK_STEPS, ROOK_ATTACKS[sq]);
+      BISHOP_MAGICS[sq] = findMagic(sq, BISHOP_MASKS[sq], BISHOP_SHIFTS[sq], BISHOP_STEPS, BISHOP_ATTACKS[sq]);
+    }
+  }
+
+  /** The Bitboards class only holds static tables, so it is never instantiated. */
+  private Bitboards() {
+  }
+
+  /**
+   * Returns the bitboard with only the given row and column set, or an
+   * empty bitboard if the row or column is out of bounds.
+   * @param row The row of the square.
+   * @param col The column of the square.
+   * @return The bitboard of the square.
+   */
+  private static long bit(int row, int col) {
+    return Position.inBounds(row, col) ? 1L << Position.square(row, col) : 0L;
+  }
+
+  /**
+   * Walks from a square along each of the given steps until the edge of
+   * the board or a blocker is reached, and collects every square visited.
+   * @param sq The square to walk from.
+   * @param blockers The occupied squares.
+   * @param steps The row and column steps to walk along.
+   * @return The bitboard of squares reached, including any blockers.
+   */
+  private static long slide(int sq, long blockers, int[][] steps) {
+    long attacks = 0L;
+    for (int[] step : steps)
+      for (int r = Position.rowOf(sq) + step[0], c = Position.colOf(sq) + step[1];
+           Position.inBounds(r, c); r += step[0], c += step[1]) {
+        long b = 1L << Position.square(r, c);
+        attacks |= b;
+        if ((blockers & b) != 0)
+          break;
+      }
+    return attacks;
+  }
+
+  /**
+   * Returns the squares whose occupancy can affect a sliding piece on the
+   * given square. The last square of each line never blocks anything
+   * further, so it is left out.
+   * @param sq The square of the sliding piece.
+   * @param steps The row and column steps of the piece.
+   * @return The bitboard of relevant blocker squares.
+   */
+  private static long relevantMask(int sq, int[][] steps) {
+    long mask = 0L;
+    for (int[] step : steps)
+      for (int r = Position.rowOf(sq) + step[0], c = Position.colOf(sq) + step[1];
+           Position.inBounds(r + step[0], c + step[1]); r += step[0], c += step[1])
+        mask |= 1L << Position.square(r, c);
+    return mask;
+  }
+
+  /**
+   * Returns a pseudo-random number with few bits set, which makes a good
+   * candidate for a magic multiplier.
+   * @return The candidate magic number.
+   */
+  private static long sparseRandom() {
+    return nextRandom() & nextRandom() & nextRandom();
+  }
+
+  /**
+   * Advances the xorshift generator used while searching for magics.
+   * The seed is fixed so that the same tables are built on every run.
+   * @return The next pseudo-random number.
+   */
+  private static long nextRandom() {
+    seed ^= seed >>> 12;
+    seed ^= seed << 25;
+    seed ^= seed >>> 27;
+    return seed * 0x2545F4914F6CDD1DL;
+  }
+
+  /**
+   * Searches for a magic number mapping every blocker subset of the mask
+   * to a table index without conflicting attack sets, then fills the table.
+   * @param sq The square of the sliding piece.
+   * @param mask The relevant blocker squares.
+   * @param shift The amount each product is shifted by.
+   * @param steps The row and column steps of the piece.
+   * @param table The attack table to fill.
+   * @return The magic number that was found.
+   */
+  private static long findMagic(int sq, long mask, int shift, int[][] steps, long[] table) {
+    int size = 1 << Long.bitCount(mask);
+    long[] subsets = new long[size];
+    long[] attacks = new long[size];
+    int[] epoch = new int[table.length];
+
+    // Enumerate every subset of the mask along with its attack set.
+    long subset = 0L;
+    for (int n = 0; n < size; n++) {
+      subsets[n] = subset;
+      attacks[n] = slide(sq, subset, steps);
+      subset = (subset - mask) & mask;
+    }
+
+    for (int attempt = 1; ; attempt++) {
+      long magic = sparseRandom();
+      if (Long.bitCount((mask * magic) & 0xFF00000000000000L) < 6)
+        continue;
+
+      boolean failed = false;
+      for (int n = 0; n < size && !failed; n++) {
+        int index = (int) ((subsets[n] * magic) >>> shift);
+        if (epoch[index] != attempt) {
+          epoch[index] = attempt;
+          table[index] = attacks[n];
+        } else if (table[index] != attacks[n])
+          failed = true;
+      }
+      if (!failed)
+        return magic;
+    }
+  }
+
+  /**
+   * Returns the squares attacked by a knight on the given square.
+   * @param sq The square of the knight.
+   * @return The bitboard of attacked squares.
+   */
+  public static long knightAttacks(int sq) {
+    return KNIGHT_ATTACKS[sq];
+  }
+
+  /**
+   * Returns the squares attacked by a king on the given square.
+   * @param sq The square of the king.
+   * @return The bitboard of attacked squares.
+   */
+  public static long kingAttacks(int sq) {
+    return KING_ATTACKS[sq];
+  }
+
+  /**
+   * Returns the squares attacked by a pawn of the given player.
+   * @param player The ownership ID of the pawn.
+   * @param sq The square of the pawn.
+   * @return The bitboard of attacked squares.
+   */
+  public static long pawnAttacks(int player, int sq) {
+    return PAWN_ATTACKS[player][sq];
+  }
+
+  /**
+   * Returns the squares attacked by every pawn of the given player at once.
+   * @param player The ownership ID of the pawns.
+   * @param pawns The bitboard of the pawns.
+   * @return The bitboard of attacked squares.
+   */
+  public static long pawnAttacksAll(int player, long pawns) {
+    if (player == 0)
+      return ((pawns & ~LEFT_COLUMN) << 7) | ((pawns & ~RIGHT_COLUMN) << 9);
+    else
+      return ((pawns & ~LEFT_COLUMN) >>> 9) | ((pawns & ~RIGHT_COLUMN) >>> 7);
+  }
+
+  /**
+   * Returns the squares attacked by a rook on the given square.
+   * @param sq The square of the rook.
+   * @param occupied The bitboard of every occupied square.
+   * @return The bitboard of attacked squares, including any blockers.
+   */
+  public static long rookAttacks(int sq, long occupied) {
+    return ROOK_ATTACKS[sq][(int) (((occupied & ROOK_MASKS[sq]) * ROOK_MAGICS[sq]) >>> ROOK_SHIFTS[sq])];
+  }
+
+  /**
+   * Returns the squares attacked by a bishop on the given square.
+   * @param sq The square of the bishop.
+   * @param occupied The bitboard of every occupied square.
+   * @return The bitboard of attacked squares, including any blockers.
+   */
+  public static long bishopAttacks(int sq, long occupied) {
+    return BISHOP_ATTACKS[sq][(int) (((occupied & BISHOP_MASKS[sq]) * BISHOP_MAGICS[sq]) >>> BISHOP_SHIFTS[sq])];
+  }
+
+  /**
+   * Returns the squares attacked by a queen on the given square.
+   * @param sq The square of the queen.
+   * @param occupied The bitboard of every occupied square.
+   * @return The bitboard of attacked squares, including any blockers.
+   */
+  public static long queenAttacks(int sq, long occupied) {
+    return rookAttacks(sq, occupied) | bishopAttacks(sq, occupied);
+  }
+
+  /**
+   * Returns the squares strictly between two squares on the same row,
+   * column, or diagonal, or an empty bitboard if they are not aligned.
+   * @param from The first square.
+   * @param to The second square.
+   * @return The bitboard of squares in between.
+   */
+  public static long between(int from, int to) {
+    return BETWEEN[from * 64 + to];
+  }
+
+  /**
+   * Returns every square on the full row, column, or diagonal through
+   * two squares, or an empty bitboard if they are not aligned.
+   * @param from The first square.
+   * @param to The second square.
+   * @return The bitboard of the line.
+   */
+  public static long line(int from, int to) {
+    return LINE[from * 64 + to];
+  }
+}
@@ -10,6 +10,7 @@ import java.awt.geom.Rectangle2D;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 /** Represents a Chess board containing all of the pieces.
  * @author Eric Wu
@@ -23,15 +24,27 @@ public class Board extends JLabel {
   /** A two-dimensional array representing the tiles of the chess board. */
   private Tile[][] board;
 
+  /** The plain-data arrangement of pieces, used for all move validation. */
+  private Position position;
+
+  /** A reusable buffer for the moves generated by the board. */
+  private int[] moveBuffer;
+
   /** The current selected piece, for the graphical version of Chess. */
   private Piece selectedPiece;
 
+  /** Whether or not a ComputerPlayer is searching for its move, for the graphical version of Chess. */
+  private volatile boolean thinking;
+
   /** An instance of the top player's king piece. */
   private King blackKing;
 
   /** An instance of the bottom player's king piece. */
   private King whiteKing;
 
+  /** The game the board belongs to. */
+  private GameSession session;
+
   /** The top player in the game. */
   private Player player0;
 
@@ -41,20 +54,22 @@ public class Board extends JLabel {
   /**
    * Contructor for the Board class. It creates a board which is represented in the
    * form of a double array which is 8 units up and and 8 units down.
-   * @param p0 The player on top.
-   * @param p1 The player on bottom.
+   * @param session The game the board belongs to, which holds both players.
    */
-  public Board(Player p0, Player p1) {
+  public Board(GameSession session) {
     // Create the board.
     board = new Tile[8][8];
+    position = new Position();
+    moveBuffer = new int[Move.MAX_MOVES];
     selectedPiece = null;
-    player0 = p0;
-    player1 = p1;
+    this.session = session;
+    player0 = session.getPlayer(0);
+    player1 = session.getPlayer(1);
 
     // Add the tile buttons.
     for (int r = 0; r < 8; r++)
       for (int c = 0; c < 8; c++) {
-        board[r][c] = new Tile(r, c);
+        board[r][c] = new Tile(session, r, c);
         add(board[r][c]);
       }
 
@@ -62,6 +77,33 @@ public class Board extends JLabel {
     reset();
   }
 
+  /**
+   * Returns the position of the pieces on the board. The Tiles only
+   * mirror this position once a move has been committed.
+   * @return The Position of the board.
+   */
+  public Position getPosition() {
+    return position;
+  }
+
+  /**
+   * Returns the game the board belongs to.
+   * @return The GameSession of the board.
+   */
+  public GameSession getSession() {
+    return session;
+  }
+
+  /**
+   * Returns the Zobrist hash key of the board, which identifies the arrangement
+   * of pieces, the player to move, the castling rights, and the en passant column.
+   * The key is updated along with every change to the board, so this is cheap.
+   * @return The 64-bit hash key.
+   */
+  public long hashKey() {
+    return position.getKey();
+  }
+
   /** 
    * Returns the King belonging to the bottom player.
    * @return The white King.
@@ -84,42 +126,90 @@ public class Board extends JLabel {
    * positions.
    */
   public void reset() {
-    // Step 0: Clear the board.
-    for (int i = 2; i < 6; i++)
-      for (int j = 0; j < 8; j++)
-        board[i][j].setPiece(null);
-
-    // Step 1: Set up the players' rows of pawns.
-    for (int i = 0; i < 8; i++)
-      board[1][i].setPiece(new Pawn(0, 1, i));
-    for (int i = 0; i < 8; i++)
-      board[6][i].setPiece(new Pawn(1, 6, i));
-
-    // Step 2: Set up the rooks on the far corners.
-    board[0][0].setPiece(new Rook(0, 0, 0));
-    board[0][7].setPiece(new Rook(0, 0, 7));
-    board[7][0].setPiece(new Rook(1, 7, 0));
-    board[7][7].setPiece(new Rook(1, 7, 7));
-
-    // Step 3: Set up the knights beside the rooks.
-    board[0][1].setPiece(new Knight(0, 0, 1));
-    board[0][6].setPiece(new Knight(0, 0, 6));
-    board[7][1].setPiece(new Knight(1, 7, 1));
-    board[7][6].setPiece(new Knight(1, 7, 6));
-
-    // Step 4: Set up the bishops beside the knights.
-    board[0][2].setPiece(new Bishop(0, 0, 2));
-    board[0][5].setPiece(new Bishop(0, 0, 5));
-    board[7][2].setPiece(new Bishop(1, 7, 2));
-    board[7][5].setPiece(new Bishop(1, 7, 5));
-
-    // Step 5: Set up the king on the right, queen on the left.
-    blackKing = new King(0, 0, 4);
-    whiteKing = new King(1, 7, 4);
-    board[0][4].setPiece(blackKing);
-    board[7][4].setPiece(whiteKing);
-    board[0][3].setPiece(new Queen(0, 0, 3));
-    board[7][3].setPiece(new Queen(1, 7, 3));
+    // Step 0: Set up the pieces in the plain-data position.
+    position.reset();
+
+    // Step 1: Mirror the position onto the Tiles.
+    mirrorPosition();
+  }
+
+  /**
+   * Sets up the board as a copy of the given position, e.g. one loaded from
+   * Forsyth-Edwards Notation, and passes the turn of the game to the player
+   * to move in that position.
+   * @param other The position to copy.
+   */
+  public void loadPosition(Position other) {
+    position = new Position(other);
+    mirrorPosition();
+    if (session.getTurn() != position.getTurn())
+      session.incrementTurn();
+  }
+
+  /**
+   * Sets up the board from Forsyth-Edwards Notation, including the castling
+   * rights, the en passant square and the move counters, and passes the turn
+   * of the game to the player to move. Batch jobs that don't need the Tiles
+   * should call loadFen on a Position instead, which allocates nothing.
+   * @param fen The position in Forsyth-Edwards Notation.
+   * @throws IllegalArgumentException if the notation is not a valid position.
+   */
+  public void loadFen(String fen) {
+    String previous = position.toFen();
+    try {
+      position.loadFen(fen);
+    } catch (IllegalArgumentException e) {
+      position.loadFen(previous);
+      throw e;
+    }
+    mirrorPosition();
+    selectedPiece = null;
+    if (session.getTurn() != position.getTurn())
+      session.incrementTurn();
+  }
+
+  /**
+   * Returns the board in Forsyth-Edwards Notation.
+   * @return The position on the board, which loadFen reads back into the same position.
+   */
+  public String toFen() {
+    return position.toFen();
+  }
+
+  /**
+   * Mirrors each square of the plain-data position onto its Tile,
+   * then keeps track of both kings.
+   */
+  private void mirrorPosition() {
+    for (int r = 0; r < 8; r++)
+      for (int c = 0; c < 8; c++)
+        board[r][c].setPiece(createPiece(position.getCode(r, c), r, c));
+
+    int top = position.getKingSquare(0);
+    int bottom = position.getKingSquare(1);
+    blackKing = (top < 0) ? null : (King) getPiece(Position.rowOf(top), Position.colOf(top));
+    whiteKing = (bottom < 0) ? null : (King) getPiece(Position.rowOf(bottom), Position.colOf(bottom));
+  }
+
+  /**
+   * Creates the Piece object represented by the given piece code.
+   * @param code The piece code, as defined in the Position class.
+   * @param row The row of the Piece.
+   * @param col The column of the Piece.
+   * @return The new Piece, or null if the code is empty.
+   */
+  private Piece createPiece(int code, int row, int col) {
+    int id = Position.playerOf(code);
+
+    switch (Position.typeOf(code)) {
+      case Position.PAWN : return new Pawn(id, row, col);
+      case Position.KNIGHT : return new Knight(id, row, col);
+      case Position.BISHOP : return new Bishop(id, row, col);
+      case Position.ROOK : return new Rook(id, row, col);
+      case Position.QUEEN : return new Queen(id, row, col);
+      case Position.KING : return new King(id, row, col);
+      default : return null;
+    }
   }
 
   /** 
@@ -181,170 +271,96 @@ public class Board extends JLabel {
     }
   }
 
-  /** 
-   * Determines whether or not moving the specified Piece(s) to a certain
-   * Tile(s) will result in the player's King to be in check.
-   * @param   piece The piece to check movement of.
-   * @param   outRow The row to which the piece is to be moved.
-   * @param   outCol The column to which the piece is to be moved.
-   * @param piece2 The second piece to be moved.
-   * @param   outRow2 The row to which the second piece is to be moved.
-   * @param   outCol2 The column to which the second piece is to be moved.
-   * @return  Whether or not the movement of pieces will result in a check.
-   */
-  public boolean checkExists(Piece piece, int outRow, int outCol, Piece piece2, int outRow2, int outCol2) {
-    // Retrieve the necessary prelimilary information.
-    int playerID = piece.getPlayerNumber();
-    King king = (playerID == 0) ? blackKing : whiteKing;
-
-    // Retrieve the initial state of the piece to move.
-    int inRow = piece.getRow();
-    int inCol = piece.getCol();
-    boolean pieceMoved = piece.moved();
-
-    // Move the piece to the desired location and retrieve the initial state of the piece that was there.
-    Piece prev = movePiece(inRow, inCol, outRow, outCol);
-    boolean prevMoved = (prev != null && prev != piece) ? prev.moved() : false;
-
-    // Optional: Moving a second piece for castling.
-    int inRow2 = 0, inCol2 = 0;
-    Piece prev2 = null;
-    boolean piece2Moved = false, prev2Moved = false;
-
-    if (piece2 != null) {
-      // Retrieve the initial state of the piece to move.
-      inRow2 = piece2.getRow();
-      inCol2 = piece2.getCol();
-      piece2Moved = piece2.moved();
-
-      // Move the piece to the desired location and retrieve the initial state of the piece that was there.
-      prev2 = movePiece(inRow2, inCol2, outRow2, outCol2);
-      prev2Moved = (prev2 != null && prev2 != piece2) ? prev2.moved() : false;
-    }
-
-    /*
-     * Check each piece belonging to the opponent.
-     * Then, for each of them, see if they can capture the player's king.
-     * If so, then a check exists.
-     * Regardless of the outcome, reset the pieces back to normal.
-     */
-    for (Tile[] row : board)
-      for (Tile tile : row) {
-        Piece comp = tile.getPiece();
-        if (comp != null && comp.getPlayerNumber() != playerID)
-          if (comp.moveIsValid(king.getRow(), king.getCol(), this)) {
-            resetLocations(piece, inRow, inCol, pieceMoved, prev, outRow, outCol, prevMoved);
-            if (piece2 != null)
-              resetLocations(piece2, inRow2, inCol2, piece2Moved, prev2, outRow2, outCol2, prev2Moved);
-            return true;
-          }
-      }
-    resetLocations(piece, inRow, inCol, pieceMoved, prev, outRow, outCol, prevMoved);
-    if (piece2 != null)
-      resetLocations(piece2, inRow2, inCol2, piece2Moved, prev2, outRow2, outCol2, prev2Moved);
-    return false;
-  }
-
-  /** 
-   * Moves the pieces altered by the checkExists() method back to their original locations on the board.
-   * @param p1 The first Piece affected.
-   * @param r1 The row of the first Piece affected.
-   * @param c1 The column of the first Piece affected.
-   * @param b1 The initial movement state of the first Piece.
-   * @param p2 The second Piece affected.
-   * @param r2 The row of the second Piece affected.
-   * @param c2 The column of the second Piece affected.
-   * @param b2 The initial movement state of the second Piece.
-   */
-  private void resetLocations(Piece p1, int r1, int c1, boolean b1, Piece p2, int r2, int c2, boolean b2) {
-    // Reset the original positions of both pieces.
-    setPiece(p1, r1, c1);
-    setPiece(p2, r2, c2);
-
-    // Reset the initial movement state of both pieces.
-    p1.setMoved(b1);
-    if (p2 != null && p2 != p1)
-      p2.setMoved(b2);
-  }
-
   /** 
    * Determines whether or not moving the specified Piece to a certain
-   * Tile will result in the player's King to be in check.
+   * Tile will result in the player's King to be in check. The move is
+   * made on the plain-data position and then taken back.
    * @param   piece The piece to check the movement of.
    * @param   outRow The row to which the piece is to be moved
    * @param   outCol The column to which the piece is to be moved
    * @return  Whether or not the movement of the Piece will result in a check.
    */
   public boolean checkExists(Piece piece, int outRow, int outCol) {
-    return checkExists(piece, outRow, outCol, null, 0, 0);
+    int from = piece.getSquare();
+    int to = Position.square(outRow, outCol);
+
+    if (from == to)
+      return position.inCheck(piece.getPlayerNumber());
+
+    return !position.isLegal(Move.create(from, to));
+  }
+
+  /**
+   * Determines whether or not the given move, generated for the piece on its
+   * initial square, would leave the moving player's King out of check.
+   * @param move The encoded move to test.
+   * @return Whether or not the move is legal.
+   */
+  public boolean isLegal(int move) {
+    return position.isLegal(move);
+  }
+
+  /**
+   * Fills the given buffer with every legal move of the current Player.
+   * The pieces giving check and the pinned pieces are found once, so
+   * no move needs to be made and taken back to be tested.
+   * @param moves The buffer to fill, at least Move.MAX_MOVES long.
+   * @return The number of legal moves in the buffer.
+   */
+  public int generateLegalMoves(int[] moves) {
+    return position.generateLegalMoves(moves);
+  }
+
+  /**
+   * Returns the first legal move of the current Player which sends the piece on
+   * the first row and column to the second row and column. If the move is a
+   * promotion, the pawn is promoted to a Queen.
+   * @param inRow The row of the piece to move.
+   * @param inCol The column of the piece to move.
+   * @param outRow The row to move the piece to.
+   * @param outCol The column to move the piece to.
+   * @return The encoded move, or Move.NONE if there is no such legal move.
+   */
+  public int findLegalMove(int inRow, int inCol, int outRow, int outCol) {
+    if (!Position.inBounds(inRow, inCol) || !Position.inBounds(outRow, outCol))
+      return Move.NONE;
+
+    int from = Position.square(inRow, inCol);
+    int to = Position.square(outRow, outCol);
+    int count = generateLegalMoves(moveBuffer);
+    for (int i = 0; i < count; i++)
+      if (Move.from(moveBuffer[i]) == from && Move.to(moveBuffer[i]) == to)
+        return moveBuffer[i];
+    return Move.NONE;
   }
 
   /**
    * Determines whether or not the current player is under a checkmate.
-   * A checkmate occurs if the player cannot move out of a check.
+   * A checkmate occurs if the player cannot move out of a check. A player
+   * with no legal move who is not in check is stalemated instead.
    * @return  Whether or not the current Player is under checkmate.
    */
   public boolean isCheckmate() {
-    // Retrieve the necessary prelimilary values for the test.
-    King king = (Game.getTurn() == 0) ? blackKing : whiteKing; // the King piece
-    int row = king.getRow(); // the King's row
-    int col = king.getCol(); // the King's column
-    int kingID = king.getPlayerNumber(); // the player's ID
-
-    /* 
-     * Case 1: The king is not under check.
-     * See if any other piece belonging to the player is able to move.
-     * If so, then the player is not under a checkmate.
-     */
-    if (!checkExists(king, row, col)) {
-      for (int r = 0; r < 8; r++)
-        for (int c = 0; c < 8; c++) {
-          Piece p = board[r][c].getPiece();
-          if (p != null && p.getPlayerNumber() == kingID) {
-            int startRow = (p.getRow() > 1) ? p.getRow() - 2 : 0;
-            int endRow = (p.getRow() < 6) ? p.getRow() + 2 : 7;
-            for (int i = startRow; i <= endRow; i++) {
-              int startCol = (p.getCol() > 1) ? p.getCol() - 2 : 0;
-              int endCol = (p.getCol() < 6) ? p.getCol() + 2 : 7;
-              for (int j = startCol; j <= endCol; j++)
-                if (p.moveIsValid(i, j, this) && !checkExists(p, i, j))
-                  return false;
-            }
-          }
-        }
-    }
+    return getGameStatus() == Position.CHECKMATE;
+  }
 
-    /*
-     * Case 2: The king is under a check.
-     * See if the king can move itself out of check.
-     * To do so, check each of the 8 tiles around the king.
-     * If the king can move itself out of check,
-     * then the player is not under a checkmate.
-     */
-    for (int r = row - 1; r <= row + 1; r++)
-      for (int c = col - 1; c <= col + 1; c++)
-        if ((r != row || c != col) && king.moveIsValid(r, c, this) && !checkExists(king, r, c))
-          return false;
+  /**
+   * Classifies the state of the game for the current player: checkmate,
+   * stalemate, a draw by insufficient material, the fifty-move rule or
+   * threefold repetition, or a game which goes on.
+   * @return One of the statuses defined in the Position class, e.g. Position.STALEMATE.
+   */
+  public int getGameStatus() {
+    return position.getStatus(moveBuffer);
+  }
 
-    /*
-     * Case 3: The king is under a check, and cannot move itself out of check.
-     * See if any other of the player's pieces can move in order to block the check.
-     * To do so, go through each of the player's pieces on the board,
-     * then go through each of the possible valid moves that piece can make.
-     * If any move results in the king not being under check,
-     * then the player is not under a checkmate.
-     */
-    for (int r = 0; r < 8; r++) {
-      for (int c = 0; c < 8; c++) {
-        Piece currentPiece = board[r][c].getPiece();
-        if (currentPiece != king && currentPiece != null && currentPiece.getPlayerNumber() == kingID)
-          for (int i = 0; i < 8; i++)
-            for (int j = 0; j < 8; j++)
-              if (currentPiece.moveIsValid(i, j, this) && !checkExists(currentPiece, i, j))
-                return false;
-      }
-    }
-    return true;
+  /**
+   * Looks the current position up in the endgame tablebases, which tell how
+   * the game ends with best play without searching, e.g. "White mates in 12".
+   * @return The description of the result, or null if the position isn't in a loaded table.
+   */
+  public String getTablebaseResult() {
+    return Tablebase.describe(position);
   }
 
   /**
@@ -355,36 +371,36 @@ public class Board extends JLabel {
    * @return Whether or not the current Player can perform a castle on the specified side.
    */
   public boolean castleIsValid(String side) {
-    int row = (Game.getTurn() == 0) ? 0 : 7; // The row of both pieces.
-    King king = (Game.getTurn() == 0) ? blackKing : whiteKing; // The King to castle.
-    Piece rook = (side.equals("left")) ? getPiece(row, 0) : getPiece(row, 7); // The Rook to castle.
+    int player = position.getTurn(); // The player to castle.
+    boolean left = side.equals("left"); // Which Rook to castle with.
+    int row = (player == 0) ? 0 : 7; // The row of both pieces.
+    int kingSquare = Position.square(row, 4); // The initial tile of the King.
+    int rookSquare = Position.square(row, (left) ? 0 : 7); // The initial tile of the Rook.
+    int direction = (left) ? -1 : 1; // The direction the King moves in.
 
     /*
-     * Make sure that the corner piece exists and is a Rook.
-     * Then make sure neither piece has moved.
+     * Make sure that the castling right remains, and that both pieces
+     * are still on their initial tiles.
      * Then, make sure the following two conditions hold:
      * (i) There exists no piece in between those pieces.
-     * (ii) There will not exist a check as a result of castling.
+     * (ii) The King is not in check, and neither the tile it passes over
+     *      nor the tile it lands on is attacked by the opponent.
      * If the above conditions hold, then a castle is valid.
      * Otherwise, a castle is not valid.
      */
-    if (rook != null && rook instanceof Rook)
-      if (!king.moved() && !rook.moved()) {
-        int rookCol = rook.getCol(); // The column of the Rook.
-        int kingCol = king.getCol(); // The column of the King.
-        int startCol = (rookCol < kingCol) ? rookCol + 1 : kingCol + 1;
-        int endCol = (rookCol < kingCol) ? kingCol - 1 : rookCol - 1;
-
-        for (int col = startCol; col <= endCol; col++)
-          if (getPiece(row, col) != null)
-            return false;
-
-        int direction = (side.equals("left")) ? -1 : 1;
-        int magnitude = (side.equals("left")) ? 3 : 2;
-        return !checkExists(king, row, kingCol + direction * 2, rook, row, rookCol - direction * magnitude);
-      }
+    if ((position.getCastlingRights() & Position.castleRight(player, left)) == 0
+        || position.getCode(kingSquare) != Position.code(player, Position.KING)
+        || position.getCode(rookSquare) != Position.code(player, Position.ROOK))
+      return false;
 
-    return false;
+    if (!position.isPathClear(kingSquare, rookSquare))
+      return false;
+
+    for (int i = 0; i <= 2; i++)
+      if (position.isSquareAttacked(kingSquare + i * direction, 1 - player))
+        return false;
+
+    return true;
   }
 
   /**
@@ -411,6 +427,14 @@ public class Board extends JLabel {
     int col = piece.getCol(); // The column of the piece to promote.
     int id = piece.getPlayerNumber(); // Who the piece belongs to.
 
+    setPiece(createPiece(Position.code(id, choosePromotion()), row, col), row, col);
+  }
+
+  /**
+   * Prompts the Player to pick which rank to promote his or her Pawn to.
+   * @return The chosen rank, as defined in the Position class.
+   */
+  private int choosePromotion() {
     String[] options = {"Queen", "Knight", "Rook", "Bishop"};
     String decision = (String) JOptionPane.showInputDialog (new JFrame(),
                       "Choose a piece to " +
@@ -420,15 +444,14 @@ public class Board extends JLabel {
                       null,
                       options,
                       "Queen");
+    if (decision == null)
+      return Position.QUEEN;
+
     switch (decision) {
-      case "Queen" :  setPiece(new Queen(id, row, col), row, col);
-      break;
-      case "Knight" : setPiece(new Knight(id, row, col), row, col);
-      break;
-      case "Rook" : setPiece(new Rook(id, row, col), row, col);
-      break;
-      case "Bishop" : setPiece(new Bishop(id, row, col), row, col);
-      break;
+      case "Knight" : return Position.KNIGHT;
+      case "Rook" : return Position.ROOK;
+      case "Bishop" : return Position.BISHOP;
+      default : return Position.QUEEN;
     }
   }
 
@@ -442,17 +465,67 @@ public class Board extends JLabel {
    * @param playerID The Player for which to perform the castle.
    */
   public void performCastle(String side, int playerID) {
-    King king = (playerID == 0) ? blackKing : whiteKing;
-    int kingRow = king.getRow();
-    int kingCol = king.getCol();
-    int rookRow = kingRow;
-    int rookCol = (side.equals("left")) ? 0 : 7;
+    int kingSquare = position.getKingSquare(playerID);
     int direction = (side.equals("left")) ? -1 : 1;
-    int magnitude = (side.equals("left")) ? 3 : 2;
 
-    // Move the King and Rook to the appropriate locations.
-    movePiece(kingRow, kingCol, kingRow, kingCol + direction * 2);
-    movePiece(rookRow, rookCol, rookRow, rookCol - direction * magnitude);
+    // Move the King two tiles towards the Rook, which moves the Rook as well.
+    commitMove(Move.create(kingSquare, kingSquare + direction * 2));
+  }
+
+  /**
+   * Castles the current Player in the graphical version of Chess, completing
+   * the King's move like any other move, so that a checkmate or a draw by the
+   * castle is announced and the computer replies if it plays the next Player.
+   * @param side The side to castle on, left or right.
+   */
+  public void castle(String side) {
+    int kingSquare = position.getKingSquare(session.getTurn());
+    int direction = (side.equals("left")) ? -1 : 1;
+
+    completeMove(Move.create(kingSquare, kingSquare + direction * 2));
+    repaint();
+  }
+
+  /**
+   * Commits an encoded move to the board, moving its Piece on both the position
+   * and the Tiles. A King moving two tiles also moves its Rook, and a promotion
+   * replaces the Pawn with a new Piece of the encoded rank.
+   * @param move The encoded move to commit.
+   * @return The piece that was captured, or null if there was none.
+   */
+  public Piece commitMove(int move) {
+    int from = Move.from(move);
+    int to = Move.to(move);
+    int row = Position.rowOf(to);
+    int col = Position.colOf(to);
+    int code = position.getCode(from);
+    int capturedSquare = to;
+
+    // An en passant capture takes the Pawn beside the moving Pawn's tile.
+    if (Position.typeOf(code) == Position.PAWN && to == position.getEnPassantSquare())
+      capturedSquare = to + ((Position.playerOf(code) == 0) ? -8 : 8);
+
+    // Commit the move to the plain-data position first.
+    position.makeMove(move);
+
+    // Then mirror the move onto the Tiles.
+    Piece captured = board[Position.rowOf(capturedSquare)][Position.colOf(capturedSquare)].setPiece(null);
+    Piece piece = board[Position.rowOf(from)][Position.colOf(from)].setPiece(null);
+    piece.setPosition(row, col);
+    board[row][col].setPiece(piece);
+
+    // A castle: move the Rook over to the other side of the King.
+    if (Position.typeOf(code) == Position.KING && Math.abs(to - from) == 2) {
+      Piece rook = board[row][(to < from) ? 0 : 7].setPiece(null);
+      rook.setPosition(row, Position.colOf((from + to) / 2));
+      board[row][rook.getCol()].setPiece(rook);
+    }
+
+    // A promotion: replace the Pawn with the chosen Piece.
+    if (Move.promotion(move) != Position.EMPTY)
+      board[row][col].setPiece(createPiece(position.getCode(to), row, col));
+
+    return captured;
   }
 
   /**
@@ -482,6 +555,9 @@ public class Board extends JLabel {
    * @return: The piece that was removed from the second Tile.
    */
   public Piece movePiece(int irow, int icol, int frow, int fcol) {
+    // Relocate the piece in the plain-data position, bypassing the rules of a move.
+    position.relocate(Position.square(irow, icol), Position.square(frow, fcol));
+
     // Move the piece in the first tile to the second tile.
     Piece pieceToMove = board[irow][icol].getPiece();
     Piece pieceToReplace = board[frow][fcol].setPiece(pieceToMove);
@@ -508,6 +584,7 @@ public class Board extends JLabel {
    */
   private Piece setPiece(Piece piece, int row, int col) {
     // Insert the piece into the desired tile given by the parameters.
+    position.put((piece == null) ? Position.EMPTY : piece.getCode(), Position.square(row, col));
     Piece pieceToReplace = board[row][col].setPiece(piece);
     if (piece != null)
       piece.setPosition(row, col);
@@ -530,10 +607,13 @@ public class Board extends JLabel {
      * (ii) The piece on that tile belongs to the player whose turn it is currently.
      * If both of these conditions hold, then make that piece the selected piece.
      */
+    if (thinking || session.getPlayer(session.getTurn()) instanceof ComputerPlayer)
+      return;
+
     if (selectedPiece == null) {
       Piece p = tile.getPiece();
 
-      if (p != null && p.getPlayerNumber() == Game.getTurn()) {
+      if (p != null && p.getPlayerNumber() == session.getTurn()) {
         setSelectedPiece(p);
         repaint();
       }
@@ -545,7 +625,6 @@ public class Board extends JLabel {
      * [II] Moving the selected piece to that tile is valid and does not result in a check.
      * [III] The conditions defined in [II] do not hold for the currently selected piece.
      * After handling each of these situations, repaint the board with the appropriate updates.
-     * Also, check for a winner if it hasn't been determined in situation [II] already.
      */
     else {
       // Retrieve the necessary prelimilary conditions to handle each situation.
@@ -554,55 +633,24 @@ public class Board extends JLabel {
       int outCol = tile.getCol();
       int inRow = selectedPiece.getRow();
       int inCol = selectedPiece.getCol();
+      int move;
 
       /*
        * Situation [I]: The piece on the given tile belongs to the same player as the selected piece.
        * If so, then set that piece to be the new selected piece.
        */
-      if (p != null && p.getPlayerNumber() == Game.getTurn())
+      if (p != null && p.getPlayerNumber() == session.getTurn())
         setSelectedPiece(p);
 
       /*
-       * Situation [II]: Moving the selected piece to that tile is valid and does not result in a check.
-       * If so, then perform the following tasks:
-       * > Move the selected piece to the requested tile.
-       * > Save the captured piece if applicable.
-       * > Promote the selected piece if applicable.
-       * > Turn off any CastleButtons if applicable.
-       * > Switch players and deselect the currently selected piece.
-       * > Look for a checkmate, meaning the recent player has won.
-       * > If no checkmate occurs, turn on any CastleButtons if applicable.
+       * Situation [II]: Moving the selected piece to that tile is one of the current player's legal moves.
+       * If so, then promote the selected piece if applicable and complete the move.
        */
-      else if (selectedPiece.moveIsValid(outRow, outCol, this) && !checkExists(selectedPiece, outRow, outCol)) {
-        movePiece(inRow, inCol, outRow, outCol);
-
-        if (p != null)
-          Game.getPlayer(Game.getTurn()).addCapturedPiece(p);
-
-        if (promotionIsValid(selectedPiece))
-          promote(selectedPiece);
+      else if ((move = findLegalMove(inRow, inCol, outRow, outCol)) != Move.NONE) {
+        if (Move.promotion(move) != Position.EMPTY)
+          move = Move.create(Move.from(move), Move.to(move), choosePromotion());
 
-        Game.setCastleButtonVisible("left", Game.getTurn(), false);
-        Game.setCastleButtonVisible("right", Game.getTurn(), false);
-
-        Game.incrementTurn();
-        setSelectedPiece(null);
-
-        if (isCheckmate()) {
-          int result = JOptionPane.showConfirmDialog (null,
-                       "Would you like to play again?",
-                       "Checkmate! " +
-                       Game.getPlayer(1 - Game.getTurn()).getName()
-                       + " wins!",
-                       JOptionPane.YES_NO_OPTION);
-          if (result == JOptionPane.YES_OPTION)
-            Game.reset();
-        } else {
-          if (castleIsValid("left"))
-            Game.setCastleButtonVisible("left", Game.getTurn(), true);
-          if (castleIsValid("right"))
-            Game.setCastleButtonVisible("right", Game.getTurn(), true);
-        }
+        completeMove(move);
       }
       /*
        * Situation [III]: The conditions defined in [II] do not hold for the currently selected piece.
@@ -612,45 +660,140 @@ public class Board extends JLabel {
         setSelectedPiece(null);
 
       repaint();
+    }
+  }
+
+  /**
+   * Completes a legal move of the current Player in the graphical version of Chess.
+   * The following tasks are performed:
+   * > Move the piece to the requested tile.
+   * > Save the captured piece if applicable.
+   * > Turn off any CastleButtons if applicable.
+   * > Switch players and deselect the currently selected piece.
+   * > Look for a checkmate, meaning the recent player has won.
+   * > If no checkmate occurs, turn on any CastleButtons if applicable,
+   *   and let the computer reply if it plays the next Player.
+   * @param move The encoded move to complete.
+   */
+  private void completeMove(int move) {
+    Piece captured = commitMove(move);
+
+    if (captured != null)
+      session.getPlayer(session.getTurn()).addCapturedPiece(captured);
+
+    session.setCastleButtonVisible("left", session.getTurn(), false);
+    session.setCastleButtonVisible("right", session.getTurn(), false);
 
-      if (Game.getStatus() != -1) {
-        int result = JOptionPane.showConfirmDialog (null,
-                     "Would you like to play again?",
-                     Game.getPlayer(Game.getStatus()).getName()
-                     + " wins!",
-                     JOptionPane.YES_NO_OPTION);
-        if (result == JOptionPane.YES_OPTION)
-          Game.reset();
+    session.incrementTurn();
+    setSelectedPiece(null);
+
+    int status = getGameStatus();
+    if (status != Position.ONGOING) {
+      repaint();
+      int result = JOptionPane.showConfirmDialog (null,
+                   "Would you like to play again?",
+                   (status == Position.CHECKMATE) ? "Checkmate! " +
+                   session.getPlayer(1 - session.getTurn()).getName()
+                   + " wins!" : Position.statusName(status) + "! It's a draw!",
+                   JOptionPane.YES_NO_OPTION);
+      if (result == JOptionPane.YES_OPTION) {
+        session.reset();
+        requestComputerMove();
       }
+    } else if (session.getPlayer(session.getTurn()) instanceof ComputerPlayer)
+      requestComputerMove();
+    else {
+      if (castleIsValid("left"))
+        session.setCastleButtonVisible("left", session.getTurn(), true);
+      if (castleIsValid("right"))
+        session.setCastleButtonVisible("right", session.getTurn(), true);
     }
   }
 
+  /**
+   * Lets the current Player move if it is played by the computer. A move of
+   * the player's opening book is completed at once. Otherwise, the search
+   * runs on a separate thread so that the window stays responsive, and the
+   * move it finds is completed back on the event dispatch thread, unless the
+   * board has changed in the meantime, e.g. by a reset.
+   */
+  public void requestComputerMove() {
+    Player player = session.getPlayer(session.getTurn());
+    if (thinking || !(player instanceof ComputerPlayer) || getGameStatus() != Position.ONGOING)
+      return;
+
+    final Engine engine = ((ComputerPlayer) player).getEngine();
+    final Position snapshot = new Position(position);
+    thinking = true;
+
+    // Case 1: A move of the book, completed in its own event so that book moves don't nest.
+    final int bookMove = ((ComputerPlayer) player).probeBook(snapshot);
+    if (bookMove != Move.NONE) {
+      SwingUtilities.invokeLater(new Runnable() {
+        public void run() {
+          thinking = false;
+          if (position.getKey() == snapshot.getKey()) {
+            completeMove(bookMove);
+            repaint();
+          } else
+            requestComputerMove();
+        }
+      });
+      return;
+    }
+
+    // Case 2: A move found by searching on a separate thread.
+
+    Thread search = new Thread(new Runnable() {
+      public void run() {
+        final int move = engine.search(snapshot);
+
+        SwingUtilities.invokeLater(new Runnable() {
+          public void run() {
+            thinking = false;
+            if (move != Move.NONE && position.getKey() == snapshot.getKey()) {
+              completeMove(move);
+              repaint();
+            } else
+              requestComputerMove();
+          }
+        });
+      }
+    });
+    search.setDaemon(true);
+    search.start();
+  }
+
   @Override
   public Dimension getPreferredSize() {
-    return new Dimension(Game.getScale(), Game.getScale());
+    return new Dimension(session.getScale(), session.getScale());
   }
 
   @Override
   public void paintComponent(Graphics g) {
     super.paintComponent(g);
 
-    int u = Game.getUnit();
+    int u = session.getUnit();
     Graphics2D g2d = (Graphics2D) (g);
 
-    g2d.setStroke(new BasicStroke(Game.getScale() / 200));
+    g2d.setStroke(new BasicStroke(session.getScale() / 200));
     g2d.setColor(Color.BLACK);
 
     // [1] Display dark horizontal bars on the top and bottom of the screen.
-    g2d.fillRect(0, 0, Game.getScale(), u / 2);
-    g2d.fillRect(0, 23 * u / 2, Game.getScale(), u / 2);
+    g2d.fillRect(0, 0, session.getScale(), u / 2);
+    g2d.fillRect(0, 23 * u / 2, session.getScale(), u / 2);
 
-    // [2] Display the chess board, making sure the tile with the selected piece is green.
+    // [2] Display the chess board, making sure the tile with the selected piece is green,
+    //     and the tile of a King in check is red.
     for (int r = 0; r < 8; r++)
       for (int c = 0; c < 8; c++) {
         Color color;
 
         if (selectedPiece != null && r == selectedPiece.getRow() && c == selectedPiece.getCol())
           color = new Color(173, 255, 47);
+        else if (Position.square(r, c) == position.getKingSquare(session.getTurn())
+                 && position.isSquareAttacked(Position.square(r, c), 1 - session.getTurn()))
+          color = new Color(255, 99, 71);
         else if (r % 2 == 0)
           color = (c % 2 == 0) ? new Color(255, 222, 173) : new Color(205, 133, 63);
         else
@@ -662,7 +805,7 @@ public class Board extends JLabel {
 
     // [3] Display the light turn indicators for each player.
     for (int n = 0; n <= 1; n++) {
-      if (Game.getTurn() == n)
+      if (session.getTurn() == n)
         g2d.setColor(Color.GREEN);
       else
         g2d.setColor(Color.RED);
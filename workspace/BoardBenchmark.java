@@ -0,0 +1,205 @@
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import java.lang.management.ManagementFactory;
+
+import java.util.function.IntSupplier;
+
+/**
+ * BoardBenchmark.java
+ *
+ * @author: Paul Shin
+ *
+ * Brief Program Description: Times the hot paths of the game on a set of middlegame
+ * and endgame positions: checkExists, isCheckmate and castleIsValid of the Board,
+ * moveIsValid of each rank of Piece, sortCapturedPieces of the Player, and painting
+ * the Board onto an offscreen image, along with reading and writing each position
+ * in Forsyth-Edwards Notation. Each operation is warmed up, then timed over
+ * several rounds, and the bytes it allocates are counted through the thread's
+ * allocation counter. Runs without a display.
+ * Usage: java -Djava.awt.headless=true BoardBenchmark [milliseconds per round] [rounds]
+ */
+public class BoardBenchmark {
+  /** The positions to time each operation on, with a short name for each. */
+  private static final String[][] POSITIONS = {
+    {"opening", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"},
+    {"italian", "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/3P1N2/PPP2PPP/RNBQK2R w KQkq - 4 5"},
+    {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"},
+    {"sicilian", "r1b1kb1r/1pqp1ppp/p1n1pn2/8/3NP3/2N1B3/PPP1BPPP/R2QK2R b KQkq - 3 8"},
+    {"rook end", "8/5pk1/6p1/8/3R4/6P1/r4PK1/8 w - - 0 40"},
+    {"pawn end", "8/8/4k3/3p4/3P4/4K3/8/8 w - - 0 50"},
+    {"in check", "rnb1kbnr/pppp1ppp/8/4p3/5PPq/8/PPPPP2P/RNBQKBNR w KQkq - 1 3"},
+  };
+
+  /** The ranks of Piece to time moveIsValid for. */
+  private static final String[] RANKS = {"", "Pawn", "Knight", "Bishop", "Rook", "Queen", "King"};
+
+  /** The counter of bytes allocated by each thread. */
+  private static final com.sun.management.ThreadMXBean THREADS =
+      (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+  /** The results of every operation, kept so that no operation can be optimized away. */
+  private static volatile int sink;
+
+  /** The time of each timed round in milliseconds. */
+  private static long roundMillis = 200;
+
+  /** The number of timed rounds, after one warmup round. */
+  private static int rounds = 5;
+
+  public static void main(String[] args) {
+    if (args.length > 0)
+      roundMillis = Long.parseLong(args[0]);
+    if (args.length > 1)
+      rounds = Integer.parseInt(args[1]);
+
+    GameSession session = new GameSession(800, new Player(0), new Player(1));
+    final Board board = session.getBoard();
+    final Player player = session.getPlayer(1);
+    final Graphics2D graphics = new BufferedImage(800, 800, BufferedImage.TYPE_INT_ARGB).createGraphics();
+
+    System.out.printf("%-30s %-10s %12s %12s %12s%n", "Operation", "Position", "ns/op", "+/- ns", "bytes/op");
+    for (String[] test : POSITIONS) {
+      final String fen = test[1];
+      board.loadFen(fen);
+      final Position position = board.getPosition();
+      final int player0 = position.getTurn();
+
+      // Testing loadFen() and appendFen() on a spare position and buffer.
+      final Position spare = new Position();
+      final StringBuilder buffer = new StringBuilder(128);
+      measure("Position.loadFen", test[0], new IntSupplier() {
+        public int getAsInt() {
+          spare.loadFen(fen);
+          return spare.getCastlingRights();
+        }
+      });
+
+      measure("Position.appendFen", test[0], new IntSupplier() {
+        public int getAsInt() {
+          buffer.setLength(0);
+          return position.appendFen(buffer).length();
+        }
+      });
+
+      // Testing checkExists() for every piece of the player to move onto every tile.
+      measure("Board.checkExists x64", test[0], new IntSupplier() {
+        public int getAsInt() {
+          int checks = 0;
+          for (long pieces = position.getOccupancy(player0); pieces != 0; pieces &= pieces - 1) {
+            int sq = Long.numberOfTrailingZeros(pieces);
+            Piece piece = board.getPiece(Position.rowOf(sq), Position.colOf(sq));
+            for (int to = 0; to < 64; to++)
+              if (piece.moveIsValid(Position.rowOf(to), Position.colOf(to), position)
+                  && board.checkExists(piece, Position.rowOf(to), Position.colOf(to)))
+                checks++;
+          }
+          return checks;
+        }
+      });
+
+      measure("Board.isCheckmate", test[0], new IntSupplier() {
+        public int getAsInt() {
+          return board.isCheckmate() ? 1 : 0;
+        }
+      });
+
+      measure("Board.castleIsValid x2", test[0], new IntSupplier() {
+        public int getAsInt() {
+          return (board.castleIsValid("left") ? 1 : 0) + (board.castleIsValid("right") ? 2 : 0);
+        }
+      });
+
+      // Testing moveIsValid() for every piece of each rank onto every tile.
+      for (int type = Position.PAWN; type <= Position.KING; type++) {
+        final int code = Position.code(player0, type);
+        if (position.getBitboard(code) == 0)
+          continue;
+
+        measure(RANKS[type] + ".moveIsValid x64", test[0], new IntSupplier() {
+          public int getAsInt() {
+            int valid = 0;
+            for (long pieces = position.getBitboard(code); pieces != 0; pieces &= pieces - 1) {
+              int sq = Long.numberOfTrailingZeros(pieces);
+              Piece piece = board.getPiece(Position.rowOf(sq), Position.colOf(sq));
+              for (int row = 0; row < 8; row++)
+                for (int col = 0; col < 8; col++)
+                  if (piece.moveIsValid(row, col, position))
+                    valid++;
+            }
+            return valid;
+          }
+        });
+      }
+
+      measure("Board.paintComponent", test[0], new IntSupplier() {
+        public int getAsInt() {
+          board.paintComponent(graphics);
+          return 0;
+        }
+      });
+    }
+
+    // Testing sortCapturedPieces() as a game fills up the set of captured pieces.
+    final Piece[] captures = {new Pawn(0, 0, 0), new Bishop(0, 0, 0), new Pawn(0, 0, 0), new Knight(0, 0, 0),
+                              new Rook(0, 0, 0), new Pawn(0, 0, 0), new Queen(0, 0, 0), new Pawn(0, 0, 0),
+                              new Knight(0, 0, 0), new Pawn(0, 0, 0), new Bishop(0, 0, 0), new Pawn(0, 0, 0),
+                              new Rook(0, 0, 0), new Pawn(0, 0, 0), new Pawn(0, 0, 0)};
+    measure("Player.sortCapturedPieces x15", "-", new IntSupplier() {
+      public int getAsInt() {
+        player.reset();
+        for (Piece piece : captures)
+          player.addCapturedPiece(piece);
+        return player.getPoints();
+      }
+    });
+  }
+
+  /**
+   * Runs an operation for one warmup round and then for each timed round,
+   * then prints the mean time per operation, its standard deviation over
+   * the rounds, and the mean number of bytes allocated per operation.
+   * @param name The name of the operation.
+   * @param positionName The name of the position the operation runs on.
+   * @param operation The operation, which returns a value so that it can't be skipped.
+   */
+  private static void measure(String name, String positionName, IntSupplier operation) {
+    long thread = Thread.currentThread().getId();
+    double[] times = new double[rounds];
+    long totalOps = 0;
+    long totalBytes = 0;
+    int results = 0;
+
+    for (int round = -1; round < rounds; round++) {
+      long ops = 0;
+      long bytes = THREADS.getThreadAllocatedBytes(thread);
+      long start = System.nanoTime();
+      long end = start + roundMillis * 1000000L;
+      long now;
+
+      // Check the clock only every few operations, since reading it takes time too.
+      do {
+        for (int i = 0; i < 16; i++)
+          results += operation.getAsInt();
+        ops += 16;
+      } while ((now = System.nanoTime()) < end);
+
+      if (round >= 0) {
+        times[round] = (double) (now - start) / ops;
+        totalOps += ops;
+        totalBytes += THREADS.getThreadAllocatedBytes(thread) - bytes;
+      }
+    }
+
+    double mean = 0;
+    for (double time : times)
+      mean += time / rounds;
+    double variance = 0;
+    for (double time : times)
+      variance += (time - mean) * (time - mean) / Math.max(1, rounds - 1);
+
+    sink = results;
+    System.out.printf("%-30s %-10s %12.1f %12.1f %12.1f%n", name, positionName, mean, Math.sqrt(variance),
+                      (double) totalBytes / totalOps);
+  }
+}
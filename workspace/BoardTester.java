@@ -10,7 +10,7 @@ public class BoardTester {
   public static void main(String[] args) {
     System.out.println("Board.java tester begins.\nDo not make any of your own changes to the board.");
     Game game = new Game(800);
-    Board board = game.getBoard();
+    Board board = game.getSession().getBoard();
     Scanner scan = new Scanner(System.in);
     game.playGraphics();
     System.out.println("Enter any character to continue...");
@@ -28,7 +28,7 @@ public class BoardTester {
     System.out.println("Is a castle currently valid on the bottom left?" + board.castleIsValid("left"));
     System.out.println("Is a castle currently valid on the bottom right? " + board.castleIsValid("right"));
     
-    game.incrementTurn();
+    game.getSession().incrementTurn();
     System.out.println("Enter any character to continue...");
     scan.next();
     
@@ -38,7 +38,7 @@ public class BoardTester {
     System.out.println("Is a castle currently valid on the top left? " + board.castleIsValid("left"));
     System.out.println("Is a castle currently valid on the top right? " + board.castleIsValid("right"));
     
-    game.incrementTurn();
+    game.getSession().incrementTurn();
     System.out.println("Enter any character to continue...");
     scan.next();
     
@@ -117,7 +117,18 @@ public class BoardTester {
     
     System.out.println("\nEnter any character to continue...");
     scan.next();
-    
+
+    // Testing toFen() and loadFen().
+    System.out.println("\nTesting toFen() and loadFen().");
+    String fen = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 3 17";
+    board.loadFen(fen);
+    System.out.println("Loaded:  " + fen);
+    System.out.println("Written: " + board.toFen());
+    System.out.println("Do they match? " + fen.equals(board.toFen()));
+    System.out.println("Is it now the bottom player's turn? " + (game.getSession().getTurn() == 1));
+    System.out.println("\nEnter any character to continue...");
+    scan.next();
+
     System.out.println("\n\nDone with testing. In order to appropriately test handleRequest(),");
     System.out.println("it's best done simply by running VisualChess.java.");
     System.out.println("You may now close the game window.");
@@ -129,20 +140,20 @@ public class BoardTester {
     
     // Testing castleIsValid() for the current player.
     System.out.print("Is a castle currently valid on the ");
-    if (game.getTurn() == 0) System.out.print("top");
+    if (game.getSession().getTurn() == 0) System.out.print("top");
     else System.out.print("bottom");
     System.out.println(" left? " + board.castleIsValid("left"));
     
     System.out.print("Is a castle currently valid on the ");
-    if (game.getTurn() == 0) System.out.print("top");
+    if (game.getSession().getTurn() == 0) System.out.print("top");
     else System.out.print("bottom");
     System.out.println(" right? " + board.castleIsValid("right"));
     
-    game.incrementTurn();
+    game.getSession().incrementTurn();
     
     // Testing isCheckmate() for the next player.
      System.out.print("\nDoes a checkmate currently exist for the ");
-    if (game.getTurn() == 0) System.out.print("top");
+    if (game.getSession().getTurn() == 0) System.out.print("top");
     else System.out.print("bottom");
     System.out.println(" player? " + board.isCheckmate());
     
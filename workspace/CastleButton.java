@@ -18,20 +18,18 @@ public class CastleButton extends JButton {
   /** The side the button is located, left or right. */
   private String side;
 
-  /** The ID of the player the button belongs to. */
-  private int playerID;
-
   /**
    * The constructor for the CastleButton class. Constructs a
    * new CastleButton at the location specified by the given
    * parameters, and sets its visibility to false to begin with.
+   * @param session The game the button belongs to.
    * @param s The side the button is located, left or right.
    * @param id The ID of the player it belongs to.
    */
-  public CastleButton(String s, int id) {
+  public CastleButton(final GameSession session, String s, int id) {
     super("CASTLE");
 
-    int x, y, u = Game.getUnit();
+    int x, y, u = session.getUnit();
 
     if (s.equals("left"))
       x = 11 * u / 4;
@@ -41,7 +39,6 @@ public class CastleButton extends JButton {
     y = 9 * u * id + 5 * u / 4;
 
     side = s;
-    playerID = id;
 
     setBounds(x, y, 2 * u, u / 2);
     setVisible(false);
@@ -50,26 +47,13 @@ public class CastleButton extends JButton {
     setFont(new Font(Font.SANS_SERIF, Font.BOLD, u / 3));
     setForeground(new Color(75, 160, 255));
 
-    int th = Game.getScale() / 200;
+    int th = session.getScale() / 200;
     setBorder(BorderFactory.createMatteBorder(th, th, th, th, new Color(75, 160, 255)));
     
     addActionListener(new ActionListener() {
       public void actionPerformed(ActionEvent e) {
-        Board board = Game.getBoard();
-        board.performCastle(side, playerID);
-
-        // Make sure the castle buttons are turned off.
-        Game.setCastleButtonVisible("left", Game.getTurn(), false);
-        Game.setCastleButtonVisible("right", Game.getTurn(), false);
-
-        // Switch players.
-        Game.incrementTurn();
-        board.repaint();
-
-        if (board.castleIsValid("left"))
-          Game.setCastleButtonVisible("left", Game.getTurn(), true);
-        if (board.castleIsValid("right"))
-          Game.setCastleButtonVisible("right", Game.getTurn(), true);
+        // Castle like any other move, which also switches players and checks for the end of the game.
+        session.getBoard().castle(side);
       }
     });
   }
@@ -0,0 +1,195 @@
+import java.io.File;
+import java.io.IOException;
+
+import java.nio.file.Paths;
+
+/** Represents a Chess player whose moves are chosen by an Engine
+ * searching the board instead of being read from the console. In a
+ * position of its OpeningBook, if it has one, the player replies with
+ * a move of the book without searching.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class ComputerPlayer extends Player {
+  /* # INHERITANCE # */
+
+  /** The size of the transposition table of each computer player in megabytes. */
+  public static final int DEFAULT_HASH = 16;
+
+  /** The time each move may take by default in milliseconds. */
+  public static final long DEFAULT_TIME = 2000;
+
+  /** The book file each computer player opens by default, if it exists. */
+  public static final String DEFAULT_BOOK = "book.bin";
+
+  /** The engine which chooses the player's moves. */
+  private Engine engine;
+
+  /** The opening book the player replies from, or null if it has none. */
+  private OpeningBook book;
+
+  /** A reusable buffer for the moves of the book in a position. */
+  private int[] bookMoves;
+
+  /** A reusable buffer for the weight of each move of the book. */
+  private int[] bookWeights;
+
+  /** A reusable buffer for the legal moves checked against the book. */
+  private int[] bookBuffer;
+
+  /**
+   * Constructor for the ComputerPlayer class. Creates a player that
+   * searches for DEFAULT_TIME milliseconds per move.
+   * @param pn The player ID of the player.
+   */
+  public ComputerPlayer(int pn) {
+    super(pn);
+    setName("COMPUTER");
+    engine = new Engine(new TranspositionTable(DEFAULT_HASH));
+    engine.setTimeLimit(DEFAULT_TIME);
+    bookMoves = new int[Move.MAX_MOVES];
+    bookWeights = new int[Move.MAX_MOVES];
+    bookBuffer = new int[Move.MAX_MOVES];
+  }
+
+  /**
+   * Returns the engine which chooses the player's moves, so that its
+   * depth, node and time limits can be changed.
+   * @return The Engine of the player.
+   */
+  public Engine getEngine() {
+    return engine;
+  }
+
+  /**
+   * Returns the opening book the player replies from.
+   * @return The OpeningBook of the player, or null if it has none.
+   */
+  public OpeningBook getBook() {
+    return book;
+  }
+
+  /**
+   * Sets the opening book the player replies from.
+   * @param book The OpeningBook, or null to always search.
+   */
+  public void setBook(OpeningBook book) {
+    this.book = book;
+  }
+
+  /**
+   * Looks for a move of the opening book in a position.
+   * @param position The position to move in.
+   * @return The encoded move, or Move.NONE if the player has no book or the position isn't in it.
+   */
+  public synchronized int probeBook(Position position) {
+    return (book == null) ? Move.NONE : book.choose(position, bookMoves, bookWeights, bookBuffer);
+  }
+
+  /**
+   * Searches the board for the best move of the player.
+   * @param board The chess board being played.
+   * @return A double array holding the initial and final positions of the move.
+   */
+  @Override
+  public int[][] getMove(Board board) {
+    int move = chooseMove(board);
+    int from = Move.from(move);
+    int to = Move.to(move);
+
+    return new int[][] {{Position.rowOf(from), Position.colOf(from)}, {Position.rowOf(to), Position.colOf(to)}};
+  }
+
+  /**
+   * Searches the board for the best move of the player, then prints
+   * the move along with how deep the search went and how it scored.
+   * @param board The chess board being played.
+   * @return The encoded move.
+   */
+  @Override
+  public int chooseMove(Board board) {
+    System.out.println();
+    board.getSession().printContents();
+    System.out.println("\nIt is now " + getName() + "'s turn! Thinking...");
+
+    long start = System.nanoTime();
+    int bookMove = probeBook(board.getPosition());
+    if (bookMove != Move.NONE) {
+      System.out.printf("%s plays %s from the book (%.1f us)%n", getName(), Move.toString(bookMove),
+                        (System.nanoTime() - start) / 1e3);
+      return bookMove;
+    }
+
+    int move = engine.search(board.getPosition());
+    System.out.println(getName() + " plays " + Move.toString(move) + " (depth " + engine.getDepth()
+                       + ", " + engine.getNodes() + " nodes, " + engine.getNodesPerSecond() + " nodes/s on "
+                       + engine.getThreads() + " threads, score " + engine.getScore() + ")");
+    return move;
+  }
+
+  /**
+   * Creates the player with the given ID, played by the computer if the
+   * arguments name its side ("top" or "bottom"), or by a person otherwise.
+   * The arguments may also set the computer's limits with "depth=N",
+   * "nodes=N", and "time=MILLISECONDS", and the number of threads it
+   * searches with using "threads=N". A depth or node limit given
+   * without a time limit lifts the default time limit. The computer
+   * replies from the opening book given by "book=FILE", or from
+   * DEFAULT_BOOK if that file exists; "book=none" turns the book off.
+   * Endgame tablebases are loaded from the directory given by "tb=DIR",
+   * or from the working directory.
+   * @param pn The player ID of the player.
+   * @param args The command line arguments.
+   * @return A new ComputerPlayer or Player.
+   */
+  public static Player create(int pn, String[] args) {
+    String side = (pn == 0) ? "top" : "bottom";
+    ComputerPlayer computer = null;
+
+    for (String arg : args)
+      if (arg.equalsIgnoreCase(side))
+        computer = new ComputerPlayer(pn);
+    if (computer == null)
+      return new Player(pn);
+
+    for (String arg : args)
+      if (arg.startsWith("depth=") || arg.startsWith("nodes="))
+        computer.engine.setTimeLimit(0);
+
+    String bookFile = new File(DEFAULT_BOOK).exists() ? DEFAULT_BOOK : null;
+    String tablebaseDir = ".";
+    for (String arg : args) {
+      try {
+        if (arg.startsWith("book="))
+          bookFile = arg.equals("book=none") ? null : arg.substring(5);
+        else if (arg.startsWith("tb="))
+          tablebaseDir = arg.substring(3);
+        else if (arg.startsWith("depth="))
+          computer.engine.setDepthLimit(Integer.parseInt(arg.substring(6)));
+        else if (arg.startsWith("nodes="))
+          computer.engine.setNodeLimit(Long.parseLong(arg.substring(6)));
+        else if (arg.startsWith("time="))
+          computer.engine.setTimeLimit(Long.parseLong(arg.substring(5)));
+        else if (arg.startsWith("threads="))
+          computer.engine.setThreads(Integer.parseInt(arg.substring(8)));
+      } catch (NumberFormatException e) {
+        System.out.println("Not a valid limit: " + arg);
+      }
+    }
+
+    try {
+      if (bookFile != null)
+        computer.book = new OpeningBook(Paths.get(bookFile));
+    } catch (IOException e) {
+      System.out.println("Can't open the opening book: " + e.getMessage());
+    }
+    try {
+      Tablebase.loadAll(Paths.get(tablebaseDir));
+    } catch (IOException e) {
+      System.out.println("Can't open the tablebases: " + e.getMessage());
+    }
+    return computer;
+  }
+}
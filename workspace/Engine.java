@@ -0,0 +1,829 @@
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/** Searches a Chess position for the best move, so that the computer can
+ * play as either player. The search is a negamax alpha-beta search repeated
+ * at increasing depths, and each iteration starts from the best move of the
+ * previous one. Results are shared through a transposition table, and at the
+ * end of the main search only captures are followed until the position is
+ * quiet, so that a position is never scored in the middle of an exchange.
+ * The search stops at a depth, a number of nodes, or a time limit, whichever
+ * comes first, or when another thread calls stop. Endgames in the loaded
+ * Tablebases are scored exactly from the tables instead of searched.
+ *
+ * Moves are tried in stages, best first: the move stored in the transposition
+ * table, then captures with the most valuable victim and least valuable
+ * attacker first, then the killer moves which last caused a cutoff at the same
+ * ply, then the remaining quiet moves by how often they have caused cutoffs.
+ *
+ * More threads may search at once in the manner of Lazy SMP: helper engines
+ * search the same root on their own copies of the position, each skipping a
+ * different pattern of depths, while sharing the transposition table. The
+ * helpers' results reach the main search only through the table, where they
+ * cut off or order the positions the main search hasn't reached yet.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class Engine implements Runnable {
+  /* # DATA STRUCTURES # */
+
+  /** A score beyond any real score, used as the initial search window. */
+  public static final int INFINITE = 32000;
+
+  /** The score of checkmating the opponent right now, less one for each ply it takes. */
+  public static final int MATE = 31000;
+
+  /** The smallest score that counts plies until checkmate, including the longer distances of the tablebases. */
+  public static final int MATE_BOUND = MATE - 1000;
+
+  /** The deepest ply the search can reach, including the capture search. */
+  public static final int MAX_PLY = 128;
+
+  /** The largest number of threads a search may use. */
+  public static final int MAX_THREADS = 256;
+
+  /** How many depths each helper searches in a row before skipping as many, by helper. */
+  private static final int[] SKIP_SIZE = {1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4};
+
+  /** The offset of each helper's pattern of skipped depths, by helper. */
+  private static final int[] SKIP_PHASE = {0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7};
+
+  /** The value of one point of material, in the units of the score. */
+  private static final int POINT = 100;
+
+  /** The order score of the move stored in the transposition table. */
+  private static final int TABLE_MOVE_SCORE = 1 << 30;
+
+  /** The order score added to every capture and promotion, above any killer or quiet move. */
+  private static final int CAPTURE_SCORE = 1 << 28;
+
+  /** The order score of the first killer move of a ply; the second scores one less. */
+  private static final int KILLER_SCORE = 1 << 27;
+
+  /** The largest history score of a quiet move, which stays below any killer move. */
+  private static final int MAX_HISTORY = 1 << 26;
+
+  /** How close each square is to the middle of the board, from 0 on the edge to 3 in the middle. */
+  private static final int[] CENTRALITY = new int[64];
+
+  static {
+    for (int sq = 0; sq < 64; sq++) {
+      int rowDistance = Math.max(3 - Position.rowOf(sq), Position.rowOf(sq) - 4);
+      int colDistance = Math.max(3 - Position.colOf(sq), Position.colOf(sq) - 4);
+      CENTRALITY[sq] = 3 - Math.max(rowDistance, colDistance);
+    }
+  }
+
+  /** The transposition table shared by every search of the engine. */
+  private TranspositionTable table;
+
+  /** The copy of the position being searched. */
+  private Position position;
+
+  /** A move buffer for each ply of the search, so that no buffer is allocated while searching. */
+  private int[][] moveStack;
+
+  /** The order score of each move in each buffer of the move stack. */
+  private int[][] scoreStack;
+
+  /** The two most recent quiet moves that caused a cutoff, by ply. */
+  private int[][] killers;
+
+  /** How much each quiet move has caused cutoffs, by player and then by from and to squares. */
+  private int[][] history;
+
+  /** Whether or not moves are ordered beyond trying the stored move first. */
+  private boolean ordering;
+
+  /** The deepest iteration to search. */
+  private int depthLimit;
+
+  /** The largest number of nodes to search, or 0 for no limit. */
+  private long nodeLimit;
+
+  /** The longest time to search in milliseconds, or 0 for no limit. */
+  private long timeLimit;
+
+  /** The time at which the search must stop, in nanoseconds. */
+  private long deadline;
+
+  /** Whether or not the search has been told to stop. */
+  private volatile boolean stopped;
+
+  /** The number of positions visited by the current search. */
+  private long nodes;
+
+  /** The best move found by the last completed iteration. */
+  private int bestMove;
+
+  /** The score of the best move found by the last completed iteration. */
+  private int bestScore;
+
+  /** The depth of the last completed iteration. */
+  private int completedDepth;
+
+  /** The number of this engine among the helpers, or 0 for the main engine. */
+  private int helperId;
+
+  /** The helper engines searching alongside the main engine. */
+  private Engine[] helpers;
+
+  /** The threads running the helper engines, or null if there are none. */
+  private ExecutorService helperPool;
+
+  /** The time taken by the last search in nanoseconds. */
+  private long elapsed;
+
+  /** The task run after each completed iteration of the main search, or null. */
+  private Runnable listener;
+
+  /**
+   * Constructor for the Engine class. Creates an engine with no limits
+   * other than the largest depth it can search.
+   * @param table The transposition table to store results in.
+   */
+  public Engine(TranspositionTable table) {
+    this.table = table;
+    moveStack = new int[MAX_PLY + 1][Move.MAX_MOVES];
+    scoreStack = new int[MAX_PLY + 1][Move.MAX_MOVES];
+    killers = new int[MAX_PLY + 1][2];
+    history = new int[2][64 * 64];
+    ordering = true;
+    depthLimit = MAX_PLY;
+    helpers = new Engine[0];
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the transposition table the engine stores its results in.
+   * @return The transposition table.
+   */
+  public TranspositionTable getTable() {
+    return table;
+  }
+
+  /**
+   * Sets the deepest iteration the search may complete.
+   * @param depth The depth in plies, from 1 to MAX_PLY.
+   */
+  public void setDepthLimit(int depth) {
+    depthLimit = Math.max(1, Math.min(depth, MAX_PLY));
+  }
+
+  /**
+   * Sets the largest number of positions the search may visit.
+   * @param limit The number of nodes, or 0 for no limit.
+   */
+  public void setNodeLimit(long limit) {
+    nodeLimit = limit;
+  }
+
+  /**
+   * Sets the longest time the search may take.
+   * @param milliseconds The time limit, or 0 for no limit.
+   */
+  public void setTimeLimit(long milliseconds) {
+    timeLimit = milliseconds;
+  }
+
+  /**
+   * Sets whether or not moves are ordered by captures, killer moves and
+   * history, as opposed to only trying the stored move first. Turning it off
+   * is only useful to measure how much the ordering saves.
+   * @param enabled Whether or not to order the moves.
+   */
+  public void setMoveOrdering(boolean enabled) {
+    ordering = enabled;
+  }
+
+  /**
+   * Sets the number of threads searching at once, including the thread
+   * which calls search. Any helper threads are started here and kept
+   * waiting between searches.
+   * @param count The number of threads, from 1 to MAX_THREADS.
+   */
+  public void setThreads(int count) {
+    count = Math.max(1, Math.min(count, MAX_THREADS));
+    if (helperPool != null)
+      helperPool.shutdownNow();
+
+    helpers = new Engine[count - 1];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i] = new Engine(table);
+      helpers[i].helperId = i + 1;
+    }
+    helperPool = (count > 1) ? Executors.newFixedThreadPool(count - 1, new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Engine helper");
+        thread.setDaemon(true);
+        return thread;
+      }
+    }) : null;
+  }
+
+  /**
+   * Returns the number of threads searching at once.
+   * @return The number of threads.
+   */
+  public int getThreads() {
+    return helpers.length + 1;
+  }
+
+  /**
+   * Sets a task to run on the searching thread after each iteration the main
+   * search completes, e.g. to report the depth, score and line found so far.
+   * @param task The task, or null for none.
+   */
+  public void setListener(Runnable task) {
+    listener = task;
+  }
+
+  /** Tells a search running on another thread to stop as soon as possible. */
+  public void stop() {
+    stopped = true;
+    for (Engine helper : helpers)
+      helper.stopped = true;
+  }
+
+  /**
+   * Returns the number of positions visited by the last search, by every thread.
+   * While a search is running, the helpers' counts may be slightly behind.
+   * @return The number of nodes.
+   */
+  public long getNodes() {
+    long total = nodes;
+    for (Engine helper : helpers)
+      total += helper.nodes;
+    return total;
+  }
+
+  /**
+   * Returns the number of positions visited per second by the last search.
+   * @return The number of nodes per second.
+   */
+  public long getNodesPerSecond() {
+    return (elapsed > 0) ? getNodes() * 1000000000L / elapsed : 0;
+  }
+
+  /**
+   * Returns the time taken by the last search.
+   * @return The time in milliseconds.
+   */
+  public long getElapsed() {
+    return elapsed / 1000000L;
+  }
+
+  /**
+   * Returns the depth of the last iteration the last search completed.
+   * @return The depth in plies.
+   */
+  public int getDepth() {
+    return completedDepth;
+  }
+
+  /**
+   * Returns the score of the best move found by the last search, from the point
+   * of view of the player to move. Scores near MATE count plies until checkmate.
+   * @return The score, where one point of material is 100.
+   */
+  public int getScore() {
+    return bestScore;
+  }
+
+  /**
+   * Searches a position for the best move of the player to move, within the
+   * limits set on the engine. The given position is copied and left untouched.
+   * @param root The position to search.
+   * @return The best move found, or Move.NONE if the player has no legal move.
+   */
+  public int search(Position root) {
+    long start = System.nanoTime();
+    table.newSearch();
+    prepare(root, start);
+
+    // Step 1: An endgame in the tablebases needs no search.
+    int tablebaseMove = Tablebase.bestMove(position, moveStack[0]);
+    if (tablebaseMove != Move.NONE) {
+      for (Engine helper : helpers)
+        helper.nodes = 0;
+      bestMove = tablebaseMove;
+      bestScore = tablebaseScore(Tablebase.probeDtm(position), 0);
+      elapsed = System.nanoTime() - start;
+      return bestMove;
+    }
+
+    // Step 2: Start the helpers on their own copies of the position.
+    Future<?>[] running = new Future<?>[helpers.length];
+    for (int i = 0; i < helpers.length; i++) {
+      helpers[i].depthLimit = depthLimit;
+      helpers[i].ordering = ordering;
+      helpers[i].prepare(root, start);
+      running[i] = helperPool.submit(helpers[i]);
+    }
+
+    // Step 3: Search on this thread until a limit is reached, then stop the helpers.
+    iterate();
+    for (Engine helper : helpers)
+      helper.stopped = true;
+    for (Future<?> helper : running) {
+      try {
+        helper.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        throw new IllegalStateException("A helper search failed", e.getCause());
+      }
+    }
+    elapsed = System.nanoTime() - start;
+    return bestMove;
+  }
+
+  /**
+   * Runs the search of a helper engine, which has already been prepared by the main engine.
+   */
+  public void run() {
+    iterate();
+  }
+
+  /**
+   * Resets the state of the engine for a new search of the given position.
+   * @param root The position to search.
+   * @param start The time the search started, in nanoseconds.
+   */
+  private void prepare(Position root, long start) {
+    position = new Position(root);
+    stopped = false;
+    nodes = 0;
+    deadline = start + timeLimit * 1000000L;
+    completedDepth = 0;
+    bestScore = 0;
+
+    // Forget the killers, which belong to the old position, but keep half of each history score.
+    for (int[] moves : killers)
+      Arrays.fill(moves, Move.NONE);
+    for (int[] scores : history)
+      for (int i = 0; i < scores.length; i++)
+        scores[i] >>= 1;
+  }
+
+  /**
+   * Searches the root position at increasing depths until a limit is reached.
+   * A helper skips some of the depths, so that the threads spread out over
+   * different depths instead of all searching the same tree.
+   */
+  private void iterate() {
+    int[] moves = moveStack[0];
+    int count = position.generateLegalMoves(moves);
+    bestMove = (count > 0) ? moves[0] : Move.NONE;
+    if (count == 0)
+      return;
+
+    for (int depth = 1; depth <= depthLimit; depth++) {
+      if (helperId > 0) {
+        int i = (helperId - 1) % SKIP_SIZE.length;
+        if (((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0)
+          continue;
+      }
+
+      int score = searchRoot(moves, count, depth);
+      if (stopped)
+        break;
+
+      completedDepth = depth;
+      bestScore = score;
+      if (listener != null)
+        listener.run();
+
+      // Stop early once a forced checkmate has been found either way.
+      if (Math.abs(score) >= MATE - depth)
+        break;
+    }
+  }
+
+  /**
+   * Searches each legal move of the root position to the given depth,
+   * trying the best move of the previous iteration first.
+   * @param moves The legal moves of the root position.
+   * @param count The number of legal moves.
+   * @param depth The depth to search.
+   * @return The score of the best move.
+   */
+  private int searchRoot(int[] moves, int count, int depth) {
+    int alpha = -INFINITE;
+    int best = Move.NONE;
+
+    // Move the best move found so far to the front.
+    for (int i = 0; i < count; i++)
+      if (moves[i] == bestMove) {
+        moves[i] = moves[0];
+        moves[0] = bestMove;
+      }
+
+    for (int i = 0; i < count; i++) {
+      position.makeMove(moves[i]);
+      int score = -negamax(depth - 1, -INFINITE, -alpha, 1);
+      position.unmakeMove();
+
+      // The move interrupted by a stop has no real score, but every move before it does.
+      if (stopped)
+        break;
+      if (score > alpha) {
+        alpha = score;
+        best = moves[i];
+      }
+    }
+
+    if (best != Move.NONE)
+      bestMove = best;
+    if (!stopped)
+      table.store(position.getKey(), best, alpha, depth, TranspositionTable.EXACT);
+    return alpha;
+  }
+
+  /**
+   * Searches a position to the given depth, returning its score for the player
+   * to move. A score at or below alpha is only an upper bound of the real score,
+   * and a score at or above beta is only a lower bound.
+   * @param depth The remaining depth.
+   * @param alpha The score the player to move is already sure of.
+   * @param beta The score the opponent is already sure of, negated.
+   * @param ply The number of moves made since the root.
+   * @return The score of the position.
+   */
+  private int negamax(int depth, int alpha, int beta, int ply) {
+    if (depth <= 0 || ply >= MAX_PLY)
+      return quiesce(alpha, beta, ply);
+
+    if (countNode())
+      return 0;
+
+    // Step 1: A repeated position, or one after fifty moves without progress, is a draw.
+    // A single repetition counts, since whatever is good there will be good the next time too.
+    if (position.getHalfmoveClock() >= 100 || position.repetitions() > 0 || position.hasInsufficientMaterial())
+      return 0;
+
+    // A position of an endgame in the tablebases has an exact score.
+    if (Long.bitCount(position.getOccupied()) <= Tablebase.MAX_PIECES) {
+      int distance = Tablebase.probeDtm(position);
+      if (distance != Tablebase.MISSING)
+        return tablebaseScore(distance, ply);
+    }
+
+    // Step 2: Use the stored result of the position if it was searched deep enough.
+    long key = position.getKey();
+    long entry = table.probe(key);
+    int tableMove = Move.NONE;
+    if (entry != TranspositionTable.MISSING) {
+      tableMove = TranspositionTable.move(entry);
+      if (TranspositionTable.depth(entry) >= depth) {
+        int score = fromTable(TranspositionTable.score(entry), ply);
+        int bound = TranspositionTable.bound(entry);
+        if (bound == TranspositionTable.EXACT
+            || (bound == TranspositionTable.LOWER && score >= beta)
+            || (bound == TranspositionTable.UPPER && score <= alpha))
+          return score;
+      }
+    }
+
+    // Step 3: A player without a legal move is either checkmated or stalemated.
+    int[] moves = moveStack[ply];
+    int count = position.generateLegalMoves(moves);
+    if (count == 0)
+      return (position.getCheckers() != 0) ? -MATE + ply : 0;
+
+    // Step 4: Order the moves, the stored best move first, since it is the most likely to cause a cutoff.
+    int[] scores = scoreStack[ply];
+    if (ordering)
+      scoreMoves(moves, scores, count, tableMove, ply);
+    else
+      for (int i = 1; i < count; i++)
+        if (moves[i] == tableMove) {
+          moves[i] = moves[0];
+          moves[0] = tableMove;
+        }
+
+    // Step 5: Search every move, stopping as soon as one is too good for the opponent to allow.
+    int originalAlpha = alpha;
+    int bestScore = -INFINITE;
+    int best = Move.NONE;
+    for (int i = 0; i < count; i++) {
+      if (ordering)
+        pickMove(moves, scores, i, count);
+      position.makeMove(moves[i]);
+      int score = -negamax(depth - 1, -beta, -alpha, ply + 1);
+      position.unmakeMove();
+
+      if (stopped)
+        return 0;
+      if (score > bestScore) {
+        bestScore = score;
+        best = moves[i];
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta) {
+            if (ordering && !isCapture(moves[i]))
+              rememberCutoff(moves[i], depth, ply);
+            break;
+          }
+        }
+      }
+    }
+
+    // Step 6: Store the result along with how far it can be trusted.
+    int bound = (bestScore >= beta) ? TranspositionTable.LOWER
+              : (bestScore > originalAlpha) ? TranspositionTable.EXACT : TranspositionTable.UPPER;
+    table.store(key, best, toTable(bestScore, ply), depth, bound);
+    return bestScore;
+  }
+
+  /**
+   * Searches only the captures and promotions of a position until it is quiet,
+   * so that it isn't scored while a piece is hanging. The player to move may
+   * always decline to capture, so the score is at least the evaluation of the
+   * position, unless the player is in check and must get out of it.
+   * @param alpha The score the player to move is already sure of.
+   * @param beta The score the opponent is already sure of, negated.
+   * @param ply The number of moves made since the root.
+   * @return The score of the position.
+   */
+  private int quiesce(int alpha, int beta, int ply) {
+    if (countNode())
+      return 0;
+
+    boolean inCheck = position.getCheckers() != 0;
+    int bestScore = -INFINITE;
+
+    if (!inCheck || ply >= MAX_PLY) {
+      bestScore = evaluate(position);
+      if (bestScore >= beta || ply >= MAX_PLY)
+        return bestScore;
+      alpha = Math.max(alpha, bestScore);
+    }
+
+    int[] moves = moveStack[ply];
+    int count = position.generateLegalMoves(moves);
+    if (count == 0 && inCheck)
+      return -MATE + ply;
+
+    int[] scores = scoreStack[ply];
+    if (ordering)
+      scoreMoves(moves, scores, count, Move.NONE, ply);
+
+    for (int i = 0; i < count; i++) {
+      if (ordering)
+        pickMove(moves, scores, i, count);
+      int move = moves[i];
+      if (!inCheck && !isCapture(move)) {
+        // Captures are ordered ahead of every quiet move, so the rest are quiet as well.
+        if (ordering)
+          break;
+        continue;
+      }
+
+      position.makeMove(move);
+      int score = -quiesce(-beta, -alpha, ply + 1);
+      position.unmakeMove();
+
+      if (stopped)
+        return 0;
+      if (score > bestScore) {
+        bestScore = score;
+        if (score > alpha) {
+          alpha = score;
+          if (alpha >= beta)
+            break;
+        }
+      }
+    }
+    return bestScore;
+  }
+
+  /**
+   * Gives each move a score for the order to search it in: the stored move
+   * first, then captures and promotions by the value of the victim less a
+   * fraction of the value of the attacker, then the killer moves of the
+   * ply, then quiet moves by their history score.
+   * @param moves The moves to score.
+   * @param scores The buffer to put the score of each move into.
+   * @param count The number of moves.
+   * @param tableMove The move stored in the transposition table, or Move.NONE.
+   * @param ply The number of moves made since the root.
+   */
+  private void scoreMoves(int[] moves, int[] scores, int count, int tableMove, int ply) {
+    int[] playerHistory = history[position.getTurn()];
+    int[] plyKillers = killers[ply];
+
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      int from = Move.from(move);
+      int to = Move.to(move);
+
+      if (move == tableMove)
+        scores[i] = TABLE_MOVE_SCORE;
+      else if (isCapture(move)) {
+        // A move onto an empty square is either en passant, which takes a pawn, or a quiet promotion.
+        int victim = !position.isEmpty(to) ? Position.typeOf(position.getCode(to))
+                   : (to == position.getEnPassantSquare()) ? Position.PAWN : Position.EMPTY;
+        int attacker = Position.typeOf(position.getCode(from));
+        scores[i] = CAPTURE_SCORE + 16 * (Piece.getPieceValue(victim) + Piece.getPieceValue(Move.promotion(move)))
+                  - Piece.getPieceValue(attacker);
+      }
+      else if (move == plyKillers[0])
+        scores[i] = KILLER_SCORE;
+      else if (move == plyKillers[1])
+        scores[i] = KILLER_SCORE - 1;
+      else
+        scores[i] = playerHistory[from * 64 + to];
+    }
+  }
+
+  /**
+   * Moves the best scored of the moves not yet searched to the given index,
+   * so that the moves are only sorted as far as the search gets before a cutoff.
+   * @param moves The moves of the position.
+   * @param scores The score of each move.
+   * @param index The index of the next move to search.
+   * @param count The number of moves.
+   */
+  private static void pickMove(int[] moves, int[] scores, int index, int count) {
+    int best = index;
+    for (int i = index + 1; i < count; i++)
+      if (scores[i] > scores[best])
+        best = i;
+
+    int move = moves[best];
+    int score = scores[best];
+    moves[best] = moves[index];
+    scores[best] = scores[index];
+    moves[index] = move;
+    scores[index] = score;
+  }
+
+  /**
+   * Determines whether or not a move captures a piece or promotes a pawn,
+   * counting a diagonal pawn move onto an empty square as en passant.
+   * @param move The encoded move.
+   * @return Whether or not the move is a capture or promotion.
+   */
+  private boolean isCapture(int move) {
+    int to = Move.to(move);
+    if (!position.isEmpty(to) || Move.promotion(move) != Position.EMPTY)
+      return true;
+    return to == position.getEnPassantSquare()
+        && Position.typeOf(position.getCode(Move.from(move))) == Position.PAWN;
+  }
+
+  /**
+   * Remembers a quiet move which caused a cutoff, as a killer move of the ply
+   * and in the history of the player to move, where deeper cutoffs count for more.
+   * @param move The move which caused the cutoff.
+   * @param depth The remaining depth of the position.
+   * @param ply The number of moves made since the root.
+   */
+  private void rememberCutoff(int move, int depth, int ply) {
+    int[] plyKillers = killers[ply];
+    if (plyKillers[0] != move) {
+      plyKillers[1] = plyKillers[0];
+      plyKillers[0] = move;
+    }
+
+    int[] playerHistory = history[position.getTurn()];
+    int index = Move.from(move) * 64 + Move.to(move);
+    playerHistory[index] += depth * depth;
+
+    // Halve every score once one grows too large, keeping their order.
+    if (playerHistory[index] >= MAX_HISTORY)
+      for (int i = 0; i < playerHistory.length; i++)
+        playerHistory[i] >>= 1;
+  }
+
+  /**
+   * Counts one more node, then checks the node and time limits. The clock,
+   * and the node counts of any helpers, are only read every thousand or so
+   * nodes. Only the main engine checks the limits; it stops the helpers.
+   * @return Whether or not the search must stop.
+   */
+  private boolean countNode() {
+    nodes++;
+    if (helperId > 0)
+      return stopped;
+
+    if (nodeLimit > 0 && helpers.length == 0 && nodes >= nodeLimit)
+      stopped = true;
+    else if ((nodes & 1023) == 0) {
+      if (nodeLimit > 0 && getNodes() >= nodeLimit)
+        stopped = true;
+      else if (timeLimit > 0 && System.nanoTime() >= deadline)
+        stopped = true;
+    }
+    return stopped;
+  }
+
+  /**
+   * Scores a position for the player to move by the material of each side,
+   * using the value of each rank of Piece, with a small bonus for knights,
+   * bishops and queens near the middle of the board and for advanced pawns.
+   * @param position The position to score.
+   * @return The score, where one point of material is 100.
+   */
+  public static int evaluate(Position position) {
+    int score = 0;
+
+    for (int player = 0; player <= 1; player++) {
+      int sign = (player == position.getTurn()) ? 1 : -1;
+
+      for (int type = Position.PAWN; type < Position.KING; type++) {
+        long pieces = position.getBitboard(Position.code(player, type));
+        score += sign * POINT * Piece.getPieceValue(type) * Long.bitCount(pieces);
+
+        for (; pieces != 0; pieces &= pieces - 1) {
+          int sq = Long.numberOfTrailingZeros(pieces);
+          if (type == Position.PAWN)
+            score += sign * 5 * ((player == 0) ? Position.rowOf(sq) - 1 : 6 - Position.rowOf(sq));
+          else if (type == Position.KNIGHT)
+            score += sign * 8 * CENTRALITY[sq];
+          else if (type != Position.ROOK)
+            score += sign * 3 * CENTRALITY[sq];
+        }
+      }
+    }
+    return score;
+  }
+
+  /**
+   * Converts a checkmate score counted from the root into one counted from
+   * the current position, so that it stays correct wherever the entry is found.
+   * @param score The score of the position.
+   * @param ply The number of moves made since the root.
+   * @return The score to store in the table.
+   */
+  private static int toTable(int score, int ply) {
+    if (score >= MATE_BOUND)
+      return score + ply;
+    if (score <= -MATE_BOUND)
+      return score - ply;
+    return score;
+  }
+
+  /**
+   * Converts a checkmate score stored in the table back into one counted from the root.
+   * @param score The score from the table.
+   * @param ply The number of moves made since the root.
+   * @return The score of the position.
+   */
+  private static int fromTable(int score, int ply) {
+    if (score >= MATE_BOUND)
+      return score - ply;
+    if (score <= -MATE_BOUND)
+      return score + ply;
+    return score;
+  }
+
+  /**
+   * Converts a distance to checkmate from the tablebases into a score counted from the root.
+   * @param distance The number of plies until checkmate, or Tablebase.DRAW.
+   * @param ply The number of moves made since the root.
+   * @return The score of the position for the player to move.
+   */
+  private static int tablebaseScore(int distance, int ply) {
+    if (distance == Tablebase.DRAW)
+      return 0;
+    return (distance % 2 == 1) ? MATE - ply - distance : -MATE + ply + distance;
+  }
+
+  /**
+   * Returns the moves the last search expects both players to make, following
+   * the best move stored for each position from the root onwards.
+   * @param root The position that was searched.
+   * @return The line of encoded moves, starting with the best move.
+   */
+  public int[] getPrincipalVariation(Position root) {
+    Position line = new Position(root);
+    int[] moves = new int[Move.MAX_MOVES];
+    int[] pv = new int[Math.max(completedDepth, 1)];
+    int length = 0;
+    int move = bestMove;
+
+    while (move != Move.NONE && length < pv.length) {
+      // Only follow a stored move if it is legal, since another position may share the entry.
+      int count = line.generateLegalMoves(moves);
+      boolean legal = false;
+      for (int i = 0; i < count; i++)
+        legal |= moves[i] == move;
+      if (!legal)
+        break;
+
+      pv[length++] = move;
+      line.makeMove(move);
+      move = TranspositionTable.move(table.probe(line.getKey()));
+    }
+    return Arrays.copyOf(pv, length);
+  }
+}
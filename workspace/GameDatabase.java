@@ -0,0 +1,729 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/** A database of finished games stored on disk and mapped into memory. The
+ * games are kept as records in the compact binary format of GameRecord, one
+ * after another, in the database file. Beside it, an index file holds an entry
+ * for every position each game reached, sorted by the position's Zobrist key,
+ * so that finding the games that reached a position, and how they scored, is
+ * a binary search rather than a scan of every game.
+ *
+ * New games are appended to the end of the database file and indexed in memory
+ * until commit merges them into the index file. The index can also be rebuilt
+ * from the games alone, with the games split across several threads. Files
+ * larger than 2 GB are mapped in overlapping segments of 1 GB, so that every
+ * record and every index entry lies entirely within one segment. The methods
+ * are synchronized, so one database may be shared between threads.
+ *
+ * Usage: java GameDatabase games.db import games.bin
+ *    or: java GameDatabase games.db rebuild [threads]
+ *    or: java GameDatabase games.db query [fen]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class GameDatabase implements AutoCloseable {
+  /* # DATA STRUCTURES # */
+
+  /** The first eight bytes of a database file, "CHESSDB1". */
+  private static final long MAGIC = 0x4348455353444231L;
+
+  /** The first eight bytes of an index file, "CHESSIX1". */
+  private static final long INDEX_MAGIC = 0x4348455353495831L;
+
+  /** The size of the header of a database file, before the first record. */
+  private static final int HEADER_SIZE = 16;
+
+  /**
+   * The size of the header of an index file, which holds the magic number, the
+   * number of entries, the size of the database file indexed, and the number of
+   * games indexed.
+   */
+  private static final int INDEX_HEADER_SIZE = 32;
+
+  /** The size of an index entry: the key of the position, then the game it was reached in. */
+  private static final int ENTRY_SIZE = 16;
+
+  /** The size of each segment of a file mapped into memory. */
+  private static final long SEGMENT_SIZE = 1L << 30;
+
+  /** The number of index entries in each segment of the index file. */
+  private static final int SEGMENT_ENTRIES = (int) (SEGMENT_SIZE / ENTRY_SIZE);
+
+  /** The extra bytes mapped after each segment of the database file, enough for the largest record. */
+  private static final int OVERLAP = GameRecord.size(GameRecord.MAX_FEN_LENGTH, GameRecord.MAX_PLIES);
+
+  /** The size of the buffer appended games are gathered in. */
+  private static final int APPEND_BUFFER_SIZE = 1 << 20;
+
+  /** The path of the index file. */
+  private Path indexPath;
+
+  /** The database file. */
+  private FileChannel file;
+
+  /** The games appended but not yet written to the database file. */
+  private ByteBuffer appendBuffer;
+
+  /** The size of the database file, not counting the games in the append buffer. */
+  private long written;
+
+  /** The segments of the database file mapped into memory. */
+  private MappedByteBuffer[] segments;
+
+  /** The size of the database file when it was last mapped. */
+  private long mappedSize;
+
+  /** The segments of the index file mapped into memory. */
+  private MappedByteBuffer[] indexSegments;
+
+  /** The number of entries in the index file. */
+  private long indexEntries;
+
+  /** The size of the database file covered by the index file. */
+  private long indexedSize;
+
+  /** The number of games in the database. */
+  private long games;
+
+  /** The index entries of the games appended since the last commit, in the order they were added. */
+  private long[] pendingKeys, pendingValues;
+
+  /** The number of index entries of the games appended since the last commit. */
+  private int pendingCount;
+
+  /** The position the games are replayed on while indexing them. */
+  private Position position;
+
+  /**
+   * Constructor for the GameDatabase class. Opens the database file, creating
+   * it if it doesn't exist, along with its index, and indexes any games the
+   * index file doesn't cover yet.
+   * @param path The path of the database file. The index file has the same path followed by ".idx".
+   * @throws IOException if the files can't be read, or the database file isn't a database.
+   */
+  public GameDatabase(Path path) throws IOException {
+    indexPath = Paths.get(path + ".idx");
+    file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    appendBuffer = ByteBuffer.allocateDirect(APPEND_BUFFER_SIZE);
+    pendingKeys = new long[1024];
+    pendingValues = new long[1024];
+    position = new Position();
+
+    // Step 1: Write the header of a new database, or check the header of an existing one.
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    if (file.size() == 0) {
+      header.putLong(MAGIC).putLong(0).flip();
+      file.write(header, 0);
+    } else if (file.read(header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC)
+      throw new IOException("Not a game database: " + path);
+    written = file.size();
+    mapRecords();
+
+    // Step 2: Map the index, unless it is missing or doesn't belong to this database.
+    openIndex();
+
+    // Step 3: Index the games appended after the index was last written.
+    for (long offset = indexedSize; offset < written; ) {
+      GameRecordReader game = getGame(offset);
+      addPending(offset, game);
+      offset += game.getSize();
+    }
+  }
+
+  /**
+   * Returns the number of games in the database.
+   * @return The number of games.
+   */
+  public synchronized long getGameCount() {
+    return games;
+  }
+
+  /**
+   * Returns the size of the database file, including the games not yet written to it.
+   * @return The size in bytes.
+   */
+  public synchronized long getSize() {
+    return written + appendBuffer.position();
+  }
+
+  /**
+   * Appends a game to the database. The game can be found at once, but its
+   * index entries are only kept in memory until the next commit.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param game The position after the last move of the game, whose undo stack holds the moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @return The offset of the game in the database file.
+   * @throws IOException if the game can't be written.
+   */
+  public synchronized long append(CharSequence startFen, Position game, int result) throws IOException {
+    int size = GameRecord.size((startFen == null) ? 0 : startFen.length(), game.getPly());
+    if (appendBuffer.remaining() < size)
+      flushAppends();
+
+    long offset = getSize();
+    GameRecordWriter.write(appendBuffer, startFen, game, result);
+    games++;
+
+    // Index every position the game reached, from its start to its end.
+    int plies = game.getPly();
+    for (int ply = 0; ply <= plies; ply++)
+      addPending((ply < plies) ? game.getHistoryKey(ply) : game.getKey(), entryValue(offset, ply, result));
+    return offset;
+  }
+
+  /**
+   * Appends every game read from a file of records to the database.
+   * @param records The reader of the records, before the first record.
+   * @return The number of games appended.
+   * @throws IOException if the games can't be written.
+   */
+  public synchronized long appendAll(GameRecordReader records) throws IOException {
+    long count = 0;
+    while (records.next()) {
+      records.replay(position, records.getPlyCount());
+      append(records.getStartFen(), position, records.getResult());
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Writes the appended games to the database file, then merges their index
+   * entries into the index file, which is replaced in one step.
+   * @throws IOException if the files can't be written.
+   */
+  public synchronized void commit() throws IOException {
+    flushAppends();
+    if (pendingCount == 0 && indexedSize == written)
+      return;
+
+    sort(pendingKeys, pendingValues, 0, pendingCount);
+    writeIndex(new long[][] {pendingKeys}, new long[][] {pendingValues}, new int[] {pendingCount}, true);
+    pendingCount = 0;
+  }
+
+  /**
+   * Rebuilds the index file from the games alone, replaying an equal share
+   * of the games on each thread, then merging the sorted shares.
+   * @param threads The number of threads to replay the games on.
+   * @throws IOException if the files can't be read or written.
+   */
+  public synchronized void rebuildIndex(int threads) throws IOException {
+    flushAppends();
+
+    // Step 1: Find the offset of every game, reading only the headers of the records.
+    long[] offsets = new long[1024];
+    int count = 0;
+    for (long offset = HEADER_SIZE; offset < written; offset += getGame(offset).getSize()) {
+      if (count == offsets.length)
+        offsets = Arrays.copyOf(offsets, 2 * count);
+      offsets[count++] = offset;
+    }
+
+    // Step 2: Index an equal share of the games on each thread.
+    threads = Math.max(1, Math.min(threads, count));
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    List<Future<long[][]>> shares = new ArrayList<Future<long[][]>>();
+    try {
+      for (int t = 0; t < threads; t++) {
+        final long[] all = offsets;
+        final int from = (int) ((long) count * t / threads);
+        final int to = (int) ((long) count * (t + 1) / threads);
+        shares.add(pool.submit(new Callable<long[][]>() {
+          public long[][] call() throws IOException {
+            return indexShare(all, from, to);
+          }
+        }));
+      }
+
+      // Step 3: Merge the sorted shares into a new index file.
+      long[][] keys = new long[threads][];
+      long[][] values = new long[threads][];
+      int[] counts = new int[threads];
+      for (int t = 0; t < threads; t++) {
+        long[][] share = shares.get(t).get();
+        keys[t] = share[0];
+        values[t] = share[1];
+        counts[t] = share[0].length;
+      }
+      games = count;
+      writeIndex(keys, values, counts, false);
+      pendingCount = 0;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Rebuilding the index was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IOException("Rebuilding the index failed", e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  /**
+   * Counts the results of the games that reached a position. A game that reached
+   * the position more than once is only counted once.
+   * @param key The Zobrist key of the position.
+   * @return The number of games with each result, indexed from GameRecord.UNKNOWN to GameRecord.DRAW.
+   */
+  public synchronized long[] getResults(long key) {
+    long[] results = new long[4];
+    find(key, null, results);
+    return results;
+  }
+
+  /**
+   * Finds the games that reached a position.
+   * @param key The Zobrist key of the position.
+   * @param offsets The array to fill with the offsets of the games, in the order they were added.
+   * @return The number of offsets filled in, at most the length of the array.
+   */
+  public synchronized int findGames(long key, long[] offsets) {
+    return (int) Math.min(find(key, offsets, null), offsets.length);
+  }
+
+  /**
+   * Returns a reader positioned at the game at the given offset.
+   * @param offset The offset of the game, as returned by append or findGames.
+   * @return A GameRecordReader of the game.
+   * @throws IOException if the database file can't be mapped.
+   */
+  public synchronized GameRecordReader getGame(long offset) throws IOException {
+    if (offset >= mappedSize) {
+      flushAppends();
+      mapRecords();
+    }
+    int segment = (int) (offset / SEGMENT_SIZE);
+    GameRecordReader reader = new GameRecordReader(segments[segment]);
+    reader.seek((int) (offset - segment * SEGMENT_SIZE));
+    return reader;
+  }
+
+  /** Commits the appended games, then closes the database file. */
+  public synchronized void close() throws IOException {
+    commit();
+    file.close();
+  }
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      System.out.println("Usage: java GameDatabase games.db import games.bin | rebuild [threads] | query [fen]");
+      return;
+    }
+
+    try (GameDatabase db = new GameDatabase(Paths.get(args[0]))) {
+      long start = System.nanoTime();
+
+      // Case 1: Append the games of a file of records.
+      if (args[1].equals("import") && args.length > 2) {
+        long count = db.appendAll(GameRecordReader.open(Paths.get(args[2])));
+        db.commit();
+        System.out.printf("Imported %,d games in %.3f s%n", count, (System.nanoTime() - start) / 1e9);
+      }
+
+      // Case 2: Rebuild the index from the games.
+      else if (args[1].equals("rebuild")) {
+        int threads = (args.length > 2) ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        db.rebuildIndex(threads);
+        System.out.printf("Indexed %,d games on %d threads in %.3f s%n", db.getGameCount(), threads,
+                          (System.nanoTime() - start) / 1e9);
+      }
+
+      // Case 3: Count the results of the games that reached a position.
+      else if (args[1].equals("query")) {
+        Position target = new Position();
+        if (args.length > 2)
+          target.loadFen(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+        else
+          target.reset();
+
+        long[] results = db.getResults(target.getKey());
+        long total = results[0] + results[1] + results[2] + results[3];
+        System.out.printf("%,d games: %,d 1-0, %,d 0-1, %,d 1/2-1/2, %,d unfinished (%.1f us)%n", total,
+                          results[GameRecord.WHITE_WINS], results[GameRecord.BLACK_WINS], results[GameRecord.DRAW],
+                          results[GameRecord.UNKNOWN], (System.nanoTime() - start) / 1e3);
+      }
+      System.out.printf("%,d games in %,d bytes%n", db.getGameCount(), db.getSize());
+    }
+  }
+
+  /**
+   * Packs the game an index entry belongs to into the second half of the entry:
+   * the offset of the game in bits 18-63, the ply the position was reached at in
+   * bits 2-17, and the result of the game in bits 0-1. Since the offset comes
+   * first, the entries of a game for the same position sort next to each other.
+   * @param offset The offset of the game.
+   * @param ply The ply the position was reached at.
+   * @param result The result of the game.
+   * @return The packed value.
+   */
+  private static long entryValue(long offset, int ply, int result) {
+    return (offset << 18) | ((long) ply << 2) | result;
+  }
+
+  /**
+   * Finds the entries of a position, in the index file and among the games
+   * appended since the last commit.
+   * @param key The Zobrist key of the position.
+   * @param offsets The array to fill with the offsets of the games, or null.
+   * @param results The array to count the result of each game in, or null.
+   * @return The number of games that reached the position.
+   */
+  private long find(long key, long[] offsets, long[] results) {
+    long found = 0;
+    long lastOffset = -1;
+
+    // Step 1: Binary search the index file for the first entry of the position.
+    long low = 0;
+    long high = indexEntries;
+    while (low < high) {
+      long mid = (low + high) >>> 1;
+      if (indexKey(mid) < key)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    // Step 2: Take each game with an entry for the position once, since its entries sort next to each other.
+    for (long i = low; i < indexEntries && indexKey(i) == key; i++) {
+      long value = indexValue(i);
+      if ((value >>> 18) != lastOffset) {
+        lastOffset = value >>> 18;
+        found = take(value, found, offsets, results);
+      }
+    }
+
+    // Step 3: Do the same for the entries of the games appended since the last commit.
+    for (int j = 0; j < pendingCount; j++) {
+      long value = pendingValues[j];
+      if (pendingKeys[j] == key && (value >>> 18) != lastOffset) {
+        lastOffset = value >>> 18;
+        found = take(value, found, offsets, results);
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Adds a game found by find to the offsets and results.
+   * @param value The second half of the index entry of the game.
+   * @param found The number of games found so far.
+   * @param offsets The array to fill with the offsets of the games, or null.
+   * @param results The array to count the result of each game in, or null.
+   * @return The number of games found, including this one.
+   */
+  private static long take(long value, long found, long[] offsets, long[] results) {
+    if (offsets != null && found < offsets.length)
+      offsets[(int) found] = value >>> 18;
+    if (results != null)
+      results[(int) value & 3]++;
+    return found + 1;
+  }
+
+  /**
+   * Returns the key of an entry of the index file.
+   * @param i The index of the entry.
+   * @return The Zobrist key of the entry.
+   */
+  private long indexKey(long i) {
+    return indexSegments[(int) (i / SEGMENT_ENTRIES)].getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE);
+  }
+
+  /**
+   * Returns the game of an entry of the index file.
+   * @param i The index of the entry.
+   * @return The packed offset, ply and result of the entry.
+   */
+  private long indexValue(long i) {
+    return indexSegments[(int) (i / SEGMENT_ENTRIES)].getLong((int) (i % SEGMENT_ENTRIES) * ENTRY_SIZE + 8);
+  }
+
+  /**
+   * Replays a game read from the database and adds an index entry for every
+   * position it reached to the pending entries.
+   * @param offset The offset of the game.
+   * @param game The reader positioned at the game.
+   */
+  private void addPending(long offset, GameRecordReader game) {
+    int result = game.getResult();
+    game.loadStart(position);
+    addPending(position.getKey(), entryValue(offset, 0, result));
+    for (int ply = 1; ply <= game.getPlyCount(); ply++) {
+      position.makeMove(game.getMove(ply - 1));
+      addPending(position.getKey(), entryValue(offset, ply, result));
+    }
+    games++;
+  }
+
+  /**
+   * Adds an index entry to the pending entries.
+   * @param key The Zobrist key of the position.
+   * @param value The packed offset, ply and result of the game.
+   */
+  private void addPending(long key, long value) {
+    if (pendingCount == pendingKeys.length) {
+      pendingKeys = Arrays.copyOf(pendingKeys, 2 * pendingCount);
+      pendingValues = Arrays.copyOf(pendingValues, 2 * pendingCount);
+    }
+    pendingKeys[pendingCount] = key;
+    pendingValues[pendingCount++] = value;
+  }
+
+  /**
+   * Replays a share of the games on a thread of its own, and sorts their index entries.
+   * @param offsets The offsets of every game.
+   * @param from The index of the first offset of the share.
+   * @param to The index after the last offset of the share.
+   * @return The sorted keys and values of the entries of the share.
+   * @throws IOException if the database file can't be read.
+   */
+  private long[][] indexShare(long[] offsets, int from, int to) throws IOException {
+    // Step 1: Count the entries of the share, to size the arrays once.
+    GameRecordReader[] readers = new GameRecordReader[segments.length];
+    int size = 0;
+    for (int i = from; i < to; i++)
+      size += reader(readers, offsets[i]).getPlyCount() + 1;
+
+    // Step 2: Replay each game, adding an entry for each position it reached.
+    long[] keys = new long[size];
+    long[] values = new long[size];
+    Position replay = new Position();
+    int n = 0;
+    for (int i = from; i < to; i++) {
+      GameRecordReader game = reader(readers, offsets[i]);
+      int result = game.getResult();
+      game.loadStart(replay);
+      keys[n] = replay.getKey();
+      values[n++] = entryValue(offsets[i], 0, result);
+      for (int ply = 1; ply <= game.getPlyCount(); ply++) {
+        replay.makeMove(game.getMove(ply - 1));
+        keys[n] = replay.getKey();
+        values[n++] = entryValue(offsets[i], ply, result);
+      }
+    }
+
+    // Step 3: Sort the entries of the share.
+    sort(keys, values, 0, size);
+    return new long[][] {keys, values};
+  }
+
+  /**
+   * Returns a reader of the segment holding a game, positioned at the game.
+   * Each thread keeps its own readers, since a reader can't be shared.
+   * @param readers The readers of the thread, one per segment, created when first needed.
+   * @param offset The offset of the game.
+   * @return The reader of the segment.
+   */
+  private GameRecordReader reader(GameRecordReader[] readers, long offset) {
+    int segment = (int) (offset / SEGMENT_SIZE);
+    if (readers[segment] == null)
+      readers[segment] = new GameRecordReader(segments[segment]);
+    readers[segment].seek((int) (offset - segment * SEGMENT_SIZE));
+    return readers[segment];
+  }
+
+  /**
+   * Writes a new index file holding the given sorted runs of entries, and if
+   * asked, the entries of the current index file, merged into one sorted run.
+   * The new file replaces the current one in one step, then is mapped into memory.
+   * @param keys The keys of each sorted run.
+   * @param values The values of each sorted run.
+   * @param counts The number of entries of each sorted run.
+   * @param keepIndex Whether or not to merge in the entries of the current index file.
+   * @throws IOException if the index file can't be written.
+   */
+  private void writeIndex(long[][] keys, long[][] values, int[] counts, boolean keepIndex) throws IOException {
+    Path temporary = Paths.get(indexPath + ".tmp");
+    long total = keepIndex ? indexEntries : 0;
+    for (int count : counts)
+      total += count;
+
+    try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                            StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(APPEND_BUFFER_SIZE);
+      buffer.putLong(INDEX_MAGIC).putLong(total).putLong(written).putLong(games);
+
+      // Repeatedly take the smallest entry at the head of the index file or of any run.
+      int[] heads = new int[counts.length];
+      long indexHead = keepIndex ? 0 : indexEntries;
+      for (long n = 0; n < total; n++) {
+        int run = -1;
+        long key = 0;
+        long value = 0;
+        if (indexHead < indexEntries) {
+          key = indexKey(indexHead);
+          value = indexValue(indexHead);
+        }
+        for (int r = 0; r < counts.length; r++) {
+          if (heads[r] == counts[r])
+            continue;
+          long k = keys[r][heads[r]];
+          long v = values[r][heads[r]];
+          if ((run < 0 && indexHead >= indexEntries) || k < key || (k == key && v < value)) {
+            run = r;
+            key = k;
+            value = v;
+          }
+        }
+        if (run < 0)
+          indexHead++;
+        else
+          heads[run]++;
+
+        if (buffer.remaining() < ENTRY_SIZE)
+          drain(out, buffer);
+        buffer.putLong(key).putLong(value);
+      }
+      drain(out, buffer);
+      out.force(true);
+    }
+
+    Files.move(temporary, indexPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    openIndex();
+  }
+
+  /**
+   * Writes everything in a buffer to a channel, then clears the buffer.
+   * @param out The channel to write to.
+   * @param buffer The buffer to write.
+   * @throws IOException if the channel can't be written to.
+   */
+  private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      out.write(buffer);
+    buffer.clear();
+  }
+
+  /**
+   * Maps the index file into memory, or treats the index as empty if the
+   * file is missing or doesn't match the database file.
+   * @throws IOException if the index file can't be read.
+   */
+  private void openIndex() throws IOException {
+    indexSegments = new MappedByteBuffer[0];
+    indexEntries = 0;
+    indexedSize = HEADER_SIZE;
+    games = 0;
+    if (!Files.exists(indexPath))
+      return;
+
+    try (FileChannel index = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(INDEX_HEADER_SIZE);
+      if (index.read(header, 0) < INDEX_HEADER_SIZE || header.getLong(0) != INDEX_MAGIC
+          || header.getLong(16) > written
+          || index.size() != INDEX_HEADER_SIZE + header.getLong(8) * ENTRY_SIZE)
+        return;
+
+      long entries = header.getLong(8);
+      indexSegments = new MappedByteBuffer[(int) ((entries + SEGMENT_ENTRIES - 1) / SEGMENT_ENTRIES)];
+      for (int s = 0; s < indexSegments.length; s++) {
+        long first = (long) s * SEGMENT_ENTRIES;
+        indexSegments[s] = index.map(FileChannel.MapMode.READ_ONLY, INDEX_HEADER_SIZE + first * ENTRY_SIZE,
+                                     Math.min(SEGMENT_ENTRIES, entries - first) * ENTRY_SIZE);
+      }
+      indexEntries = entries;
+      indexedSize = header.getLong(16);
+      games = header.getLong(24);
+    }
+  }
+
+  /**
+   * Maps the database file into memory, in segments which each overlap the
+   * next by the size of the largest record.
+   * @throws IOException if the database file can't be mapped.
+   */
+  private void mapRecords() throws IOException {
+    segments = new MappedByteBuffer[(int) ((written + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+    for (int s = 0; s < segments.length; s++) {
+      long start = s * SEGMENT_SIZE;
+      segments[s] = file.map(FileChannel.MapMode.READ_ONLY, start, Math.min(SEGMENT_SIZE + OVERLAP, written - start));
+    }
+    mappedSize = written;
+  }
+
+  /**
+   * Writes the games gathered in the append buffer to the end of the database file.
+   * @throws IOException if the database file can't be written to.
+   */
+  private void flushAppends() throws IOException {
+    appendBuffer.flip();
+    while (appendBuffer.hasRemaining())
+      written += file.write(appendBuffer, written);
+    appendBuffer.clear();
+  }
+
+  /**
+   * Sorts entries by key, and entries with the same key by value, moving
+   * each value along with its key.
+   * @param keys The keys of the entries.
+   * @param values The values of the entries.
+   * @param from The index of the first entry to sort.
+   * @param to The index after the last entry to sort.
+   */
+  static void sort(long[] keys, long[] values, int from, int to) {
+    while (to - from > 16) {
+      // Partition around the middle entry, then sort the smaller side first to bound the recursion.
+      int mid = (from + to) >>> 1;
+      long pivotKey = keys[mid];
+      long pivotValue = values[mid];
+      int i = from;
+      int j = to - 1;
+      while (i <= j) {
+        while (keys[i] < pivotKey || (keys[i] == pivotKey && values[i] < pivotValue))
+          i++;
+        while (keys[j] > pivotKey || (keys[j] == pivotKey && values[j] > pivotValue))
+          j--;
+        if (i <= j)
+          swap(keys, values, i++, j--);
+      }
+      if (j - from < to - i) {
+        sort(keys, values, from, j + 1);
+        from = i;
+      } else {
+        sort(keys, values, i, to);
+        to = j + 1;
+      }
+    }
+
+    // Insertion sort the short ranges left over.
+    for (int i = from + 1; i < to; i++)
+      for (int j = i; j > from && (keys[j - 1] > keys[j] || (keys[j - 1] == keys[j] && values[j - 1] > values[j])); j--)
+        swap(keys, values, j, j - 1);
+  }
+
+  /**
+   * Swaps two entries.
+   * @param keys The keys of the entries.
+   * @param values The values of the entries.
+   * @param i The index of the first entry.
+   * @param j The index of the second entry.
+   */
+  private static void swap(long[] keys, long[] values, int i, int j) {
+    long key = keys[i];
+    keys[i] = keys[j];
+    keys[j] = key;
+    long value = values[i];
+    values[i] = values[j];
+    values[j] = value;
+  }
+}
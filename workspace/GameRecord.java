@@ -0,0 +1,86 @@
+/** Describes the compact binary format a finished game is stored in. A record
+ * starts with a four-byte header: the number of moves as an unsigned short,
+ * the result of the game as a byte, and the length of the starting position
+ * in Forsyth-Edwards Notation as a byte, which is 0 for the initial position.
+ * The starting position follows as ASCII, then each move as an unsigned short
+ * holding the low 16 bits of its Move encoding: the square moved from, the
+ * square moved to, and the promotion rank. All values are big-endian, and
+ * records follow each other with nothing in between, so a game of 80 moves
+ * from the initial position takes 164 bytes.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public final class GameRecord {
+  /** The result of a game that is unfinished or unknown, "*". */
+  public static final int UNKNOWN = 0;
+
+  /** The result of a game won by white, the bottom player, "1-0". */
+  public static final int WHITE_WINS = 1;
+
+  /** The result of a game won by black, the top player, "0-1". */
+  public static final int BLACK_WINS = 2;
+
+  /** The result of a drawn game, "1/2-1/2". */
+  public static final int DRAW = 3;
+
+  /** The size of the header of a record in bytes. */
+  public static final int HEADER_SIZE = 4;
+
+  /** The largest number of moves a record can hold. */
+  public static final int MAX_PLIES = 0xFFFF;
+
+  /** The longest starting position a record can hold, in characters. */
+  public static final int MAX_FEN_LENGTH = 0xFF;
+
+  /** The name of each result in Portable Game Notation. */
+  private static final String[] RESULT_NAMES = {"*", "1-0", "0-1", "1/2-1/2"};
+
+  /** The GameRecord class only holds static helpers, so it is never instantiated. */
+  private GameRecord() {
+  }
+
+  /**
+   * Returns the size of a record.
+   * @param fenLength The length of the starting position, or 0 for the initial position.
+   * @param plies The number of moves.
+   * @return The size of the record in bytes.
+   */
+  public static int size(int fenLength, int plies) {
+    return HEADER_SIZE + fenLength + 2 * plies;
+  }
+
+  /**
+   * Returns the result of a game from its name in Portable Game Notation.
+   * @param name The name of the result, such as "1-0", or null.
+   * @return WHITE_WINS, BLACK_WINS, DRAW, or UNKNOWN for anything else.
+   */
+  public static int resultOf(CharSequence name) {
+    for (int result = WHITE_WINS; name != null && result <= DRAW; result++)
+      if (RESULT_NAMES[result].contentEquals(name))
+        return result;
+    return UNKNOWN;
+  }
+
+  /**
+   * Returns the name of a result in Portable Game Notation.
+   * @param result The result, from UNKNOWN to DRAW.
+   * @return The name of the result, such as "1-0".
+   */
+  public static String resultName(int result) {
+    return RESULT_NAMES[result & 3];
+  }
+
+  /**
+   * Returns the result of a game that has ended on the board.
+   * @param status The status of the final position, as returned by Position.getStatus.
+   * @param turn The ID of the player to move in the final position.
+   * @return The result, or UNKNOWN if the game hasn't ended.
+   */
+  public static int resultOf(int status, int turn) {
+    if (status == Position.CHECKMATE)
+      return (turn == 0) ? WHITE_WINS : BLACK_WINS;
+    return (status == Position.ONGOING) ? UNKNOWN : DRAW;
+  }
+}
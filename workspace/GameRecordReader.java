@@ -0,0 +1,185 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Reads records in the compact binary format described by GameRecord from
+ * a ByteBuffer, such as a file mapped into memory. The reader moves over
+ * the records in place: the header fields, the moves and the starting position
+ * are read straight from the buffer when asked for, so nothing is copied
+ * or allocated for each record.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class GameRecordReader {
+  /* # DATA STRUCTURES # */
+
+  /** The records, with absolute offsets from the start of the buffer. */
+  private ByteBuffer buffer;
+
+  /** The offset of the current record, or -1 before the first record. */
+  private int offset;
+
+  /** The offset of the record after the current one. */
+  private int nextOffset;
+
+  /** The number of moves of the current record. */
+  private int plies;
+
+  /** The starting position of the current record, read from the buffer in place. */
+  private FenView startFen;
+
+  /**
+   * Constructor for the GameRecordReader class. The reader shares the
+   * contents of the buffer, from its position to its limit, without copying them.
+   * @param records The buffer holding the records.
+   */
+  public GameRecordReader(ByteBuffer records) {
+    buffer = records.slice();
+    startFen = new FenView();
+    offset = -1;
+  }
+
+  /**
+   * Maps a file of records into memory for reading.
+   * @param path The path of the file, which must be smaller than 2 GB.
+   * @return A new GameRecordReader.
+   * @throws IOException if the file can't be read.
+   */
+  public static GameRecordReader open(Path path) throws IOException {
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new GameRecordReader(file.map(FileChannel.MapMode.READ_ONLY, 0, file.size()));
+    }
+  }
+
+  /**
+   * Moves on to the next record.
+   * @return True if there is a next record, or false at the end of the buffer.
+   * @throws IllegalStateException if the next record is cut off by the end of the buffer.
+   */
+  public boolean next() {
+    if (nextOffset >= buffer.limit())
+      return false;
+    seek(nextOffset);
+    return true;
+  }
+
+  /**
+   * Moves to the record at the given offset, such as one kept in an index.
+   * @param recordOffset The offset of the record from the start of the buffer.
+   * @throws IllegalStateException if the record is cut off by the end of the buffer.
+   */
+  public void seek(int recordOffset) {
+    if (recordOffset + GameRecord.HEADER_SIZE > buffer.limit())
+      throw new IllegalStateException("Game record cut off at offset " + recordOffset);
+    offset = recordOffset;
+    plies = buffer.getShort(offset) & 0xFFFF;
+    startFen.length = buffer.get(offset + 3) & 0xFF;
+    nextOffset = offset + GameRecord.size(startFen.length, plies);
+    if (nextOffset > buffer.limit())
+      throw new IllegalStateException("Game record cut off at offset " + recordOffset);
+  }
+
+  /**
+   * Returns the offset of the current record from the start of the buffer.
+   * @return The offset of the record.
+   */
+  public int getOffset() {
+    return offset;
+  }
+
+  /**
+   * Returns the size of the current record.
+   * @return The size of the record in bytes.
+   */
+  public int getSize() {
+    return nextOffset - offset;
+  }
+
+  /**
+   * Returns the number of moves of the current record.
+   * @return The number of moves.
+   */
+  public int getPlyCount() {
+    return plies;
+  }
+
+  /**
+   * Returns the result of the current record.
+   * @return The result, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   */
+  public int getResult() {
+    return buffer.get(offset + 2) & 3;
+  }
+
+  /**
+   * Returns a move of the current record.
+   * @param index The index of the move, from 0 to getPlyCount() - 1.
+   * @return The encoded move.
+   */
+  public int getMove(int index) {
+    return buffer.getShort(offset + GameRecord.HEADER_SIZE + startFen.length + 2 * index) & 0xFFFF;
+  }
+
+  /**
+   * Returns the starting position of the current record, which is read from the
+   * buffer in place and stays valid only until the reader moves to another record.
+   * @return The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   */
+  public CharSequence getStartFen() {
+    return (startFen.length == 0) ? null : startFen;
+  }
+
+  /**
+   * Sets up a position in the starting position of the current record.
+   * @param position The position to set up.
+   */
+  public void loadStart(Position position) {
+    if (startFen.length == 0)
+      position.reset();
+    else
+      position.loadFen(startFen);
+  }
+
+  /**
+   * Sets up a position in the starting position of the current record, then
+   * plays its moves up to the given ply, so that they can be taken back.
+   * @param position The position to play the moves on.
+   * @param ply The number of moves to play, at most getPlyCount().
+   */
+  public void replay(Position position, int ply) {
+    loadStart(position);
+    for (int i = 0; i < ply; i++)
+      position.makeMove(getMove(i));
+  }
+
+  /** A view of the starting position of the current record, in place in the buffer. */
+  private class FenView implements CharSequence {
+    /** The length of the starting position. */
+    private int length;
+
+    public int length() {
+      return length;
+    }
+
+    public char charAt(int index) {
+      return (char) (buffer.get(offset + GameRecord.HEADER_SIZE + index) & 0xFF);
+    }
+
+    public CharSequence subSequence(int start, int end) {
+      return toString().subSequence(start, end);
+    }
+
+    public String toString() {
+      StringBuilder s = new StringBuilder(length);
+      for (int i = 0; i < length; i++)
+        s.append(charAt(i));
+      return s.toString();
+    }
+  }
+}
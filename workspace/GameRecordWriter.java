@@ -0,0 +1,174 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Writes finished games as records in the compact binary format described
+ * by GameRecord, either into a ByteBuffer or through a buffer into a channel
+ * such as a file or a socket.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class GameRecordWriter implements AutoCloseable {
+  /* # DATA STRUCTURES # */
+
+  /** The size of the buffer records are gathered in, enough for the largest record. */
+  private static final int BUFFER_SIZE = 1 << 18;
+
+  /** The channel the records are written to. */
+  private WritableByteChannel channel;
+
+  /** The records not yet written to the channel. */
+  private ByteBuffer buffer;
+
+  /** The number of records written. */
+  private long games;
+
+  /** The number of bytes written. */
+  private long bytes;
+
+  /**
+   * Constructor for the GameRecordWriter class.
+   * @param channel The channel to write the records to.
+   */
+  public GameRecordWriter(WritableByteChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  }
+
+  /**
+   * Opens a file of records for writing.
+   * @param path The path of the file.
+   * @param append True to add to the end of the file, or false to replace it.
+   * @return A new GameRecordWriter.
+   * @throws IOException if the file can't be opened.
+   */
+  public static GameRecordWriter open(Path path, boolean append) throws IOException {
+    return new GameRecordWriter(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING));
+  }
+
+  /**
+   * Writes a game, gathering it in the buffer until the buffer is full.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param moves The encoded moves of the game.
+   * @param count The number of moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @throws IOException if the channel can't be written to.
+   */
+  public void write(CharSequence startFen, int[] moves, int count, int result) throws IOException {
+    int size = GameRecord.size((startFen == null) ? 0 : startFen.length(), count);
+    if (buffer.remaining() < size)
+      flush();
+    bytes += write(buffer, startFen, moves, count, result);
+    games++;
+  }
+
+  /**
+   * Writes the moves played on a position since it was set up as a game.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param position The position after the last move, whose undo stack holds the moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @throws IOException if the channel can't be written to.
+   */
+  public void write(CharSequence startFen, Position position, int result) throws IOException {
+    int size = GameRecord.size((startFen == null) ? 0 : startFen.length(), position.getPly());
+    if (buffer.remaining() < size)
+      flush();
+    bytes += write(buffer, startFen, position, result);
+    games++;
+  }
+
+  /**
+   * Writes a game as a record into a ByteBuffer at its position.
+   * @param out The buffer to write into, which must have room for the record.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param moves The encoded moves of the game.
+   * @param count The number of moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @return The size of the record in bytes.
+   * @throws IllegalArgumentException if the game is too long for a record.
+   */
+  public static int write(ByteBuffer out, CharSequence startFen, int[] moves, int count, int result) {
+    writeHeader(out, startFen, count, result);
+    for (int i = 0; i < count; i++)
+      out.putShort((short) moves[i]);
+    return GameRecord.size((startFen == null) ? 0 : startFen.length(), count);
+  }
+
+  /**
+   * Writes the moves played on a position since it was set up as a game into a ByteBuffer at its position.
+   * @param out The buffer to write into, which must have room for the record.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param position The position after the last move, whose undo stack holds the moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @return The size of the record in bytes.
+   * @throws IllegalArgumentException if the game is too long for a record.
+   */
+  public static int write(ByteBuffer out, CharSequence startFen, Position position, int result) {
+    int count = position.getPly();
+    writeHeader(out, startFen, count, result);
+    for (int i = 0; i < count; i++)
+      out.putShort((short) position.getMove(i));
+    return GameRecord.size((startFen == null) ? 0 : startFen.length(), count);
+  }
+
+  /**
+   * Writes the header and the starting position of a record into a ByteBuffer.
+   * @param out The buffer to write into.
+   * @param startFen The starting position in Forsyth-Edwards Notation, or null for the initial position.
+   * @param count The number of moves.
+   * @param result The result of the game, from GameRecord.UNKNOWN to GameRecord.DRAW.
+   * @throws IllegalArgumentException if the game is too long for a record.
+   */
+  private static void writeHeader(ByteBuffer out, CharSequence startFen, int count, int result) {
+    int fenLength = (startFen == null) ? 0 : startFen.length();
+    if (count > GameRecord.MAX_PLIES || fenLength > GameRecord.MAX_FEN_LENGTH)
+      throw new IllegalArgumentException("Too long for a game record: " + count + " moves");
+
+    out.putShort((short) count);
+    out.put((byte) result);
+    out.put((byte) fenLength);
+    for (int i = 0; i < fenLength; i++)
+      out.put((byte) startFen.charAt(i));
+  }
+
+  /**
+   * Returns the number of games written.
+   * @return The number of records.
+   */
+  public long getGames() {
+    return games;
+  }
+
+  /**
+   * Returns the number of bytes written, including those still in the buffer.
+   * @return The number of bytes.
+   */
+  public long getBytesWritten() {
+    return bytes;
+  }
+
+  /**
+   * Writes the gathered records to the channel.
+   * @throws IOException if the channel can't be written to.
+   */
+  public void flush() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      channel.write(buffer);
+    buffer.clear();
+  }
+
+  /** Writes the gathered records, then closes the channel. */
+  public void close() throws IOException {
+    flush();
+    channel.close();
+  }
+}
@@ -0,0 +1,592 @@
+import java.io.IOException;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A server hosting games of Chess for clients connected over TCP or a
+ * Unix-domain socket. Each client sends commands one per line, and gets
+ * one line back for each command, starting with "ok" or "error":
+ *
+ *   new [fen]          Starts a game, from a position if given: "ok ID".
+ *   move ID MOVE       Plays a move, e.g. "e2e4", "e7e8q" or "Nf3": "ok MOVE STATUS".
+ *   moves ID           Lists the legal moves: "ok COUNT MOVE...".
+ *   status ID          Describes the game: "ok STATUS white|black FEN".
+ *   end ID             Ends a game, freeing it.
+ *   quit               Ends every game of the client and disconnects.
+ *
+ * A status is a name of Position.getStatus in lowercase, with dashes for
+ * spaces, e.g. "ongoing", "checkmate" or "fifty-move-rule".
+ *
+ * A single thread waits on every connection at once, so an idle client
+ * costs no thread, only its games. Each command read is run by a fixed pool
+ * of worker threads, one command of a client at a time, so the commands of
+ * a client are answered in order. Each game is a Position of its own.
+ * The server stops reading from a client which has too many commands
+ * waiting or replies it hasn't taken, until they have been dealt with.
+ *
+ * Usage: java GameServer [port=N | unix=PATH] [workers=N]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class GameServer implements Runnable {
+  /* # DATA STRUCTURES # */
+
+  /** The TCP port the server listens on by default. */
+  public static final int DEFAULT_PORT = 7878;
+
+  /** The longest command line a client may send. */
+  public static final int MAX_LINE = 1024;
+
+  /** The largest number of games a client may play at once. */
+  public static final int MAX_GAMES = 256;
+
+  /** The number of commands waiting to run at which the server stops reading from a client. */
+  public static final int MAX_PENDING = 64;
+
+  /** The command queued in place of a line longer than MAX_LINE, which no real line can equal. */
+  private static final String TOO_LONG = "\n";
+
+  /** The size of the buffer each connection reads into. */
+  private static final int READ_SIZE = 2048;
+
+  /** The channel accepting new connections. */
+  private ServerSocketChannel server;
+
+  /** The selector waiting on the server and every connection. */
+  private Selector selector;
+
+  /** The threads running the commands of the clients. */
+  private ExecutorService workers;
+
+  /** The connections whose interest in reading or writing has changed since the last select. */
+  private ConcurrentLinkedQueue<Connection> changed;
+
+  /** A shared buffer to read into, used only by the selecting thread. */
+  private ByteBuffer readBuffer;
+
+  /** The number of open connections. */
+  private AtomicInteger connections;
+
+  /** The number of games being played. */
+  private AtomicInteger games;
+
+  /** The number of commands run. */
+  private AtomicLong commands;
+
+  /** Whether or not the server has been told to stop. */
+  private volatile boolean stopped;
+
+  /**
+   * Constructor for the GameServer class. Opens the server socket, but
+   * accepts no connection until run is called.
+   * @param address The address to listen on, an InetSocketAddress or a UnixDomainSocketAddress.
+   * @param threads The number of worker threads running the commands.
+   * @throws IOException if the socket can't be opened.
+   */
+  public GameServer(SocketAddress address, int threads) throws IOException {
+    server = (address instanceof UnixDomainSocketAddress)
+        ? ServerSocketChannel.open(StandardProtocolFamily.UNIX) : ServerSocketChannel.open();
+    server.bind(address, 4096);
+    server.configureBlocking(false);
+    selector = Selector.open();
+    server.register(selector, SelectionKey.OP_ACCEPT);
+
+    workers = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Game server worker");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    changed = new ConcurrentLinkedQueue<Connection>();
+    readBuffer = ByteBuffer.allocateDirect(READ_SIZE);
+    connections = new AtomicInteger();
+    games = new AtomicInteger();
+    commands = new AtomicLong();
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the address the server listens on, e.g. to find the port chosen for port 0.
+   * @return The local address of the server socket.
+   * @throws IOException if the socket is closed.
+   */
+  public SocketAddress getAddress() throws IOException {
+    return server.getLocalAddress();
+  }
+
+  /**
+   * Returns the number of open connections.
+   * @return The number of clients connected.
+   */
+  public int getConnections() {
+    return connections.get();
+  }
+
+  /**
+   * Returns the number of games being played.
+   * @return The number of games over all clients.
+   */
+  public int getGames() {
+    return games.get();
+  }
+
+  /**
+   * Returns the number of commands run since the server started.
+   * @return The number of commands.
+   */
+  public long getCommands() {
+    return commands.get();
+  }
+
+  /** Tells the server, running on another thread, to close every connection and stop. */
+  public void stop() {
+    stopped = true;
+    selector.wakeup();
+  }
+
+  /**
+   * Accepts connections and reads their commands until the server is stopped.
+   */
+  public void run() {
+    try {
+      while (!stopped) {
+        selector.select();
+
+        // Step 1: Watch the sockets of the connections whose replies didn't fit, or which may read again.
+        for (Connection connection; (connection = changed.poll()) != null; )
+          connection.updateInterest();
+
+        // Step 2: Accept new connections, and read or write those that are ready.
+        Iterator<SelectionKey> ready = selector.selectedKeys().iterator();
+        while (ready.hasNext()) {
+          SelectionKey key = ready.next();
+          ready.remove();
+          try {
+            if (!key.isValid())
+              continue;
+            if (key.isAcceptable())
+              accept();
+            else {
+              Connection connection = (Connection) key.attachment();
+              if (key.isReadable())
+                connection.read();
+              if (key.isValid() && key.isWritable())
+                connection.flush();
+            }
+          } catch (IOException e) {
+            if (key.attachment() != null)
+              ((Connection) key.attachment()).close();
+          } catch (CancelledKeyException e) {
+            // A worker closed the connection after a quit while it was being read.
+          }
+        }
+      }
+    } catch (IOException e) {
+      System.out.println("The game server failed: " + e.getMessage());
+    } finally {
+      for (SelectionKey key : selector.keys())
+        if (key.attachment() != null)
+          ((Connection) key.attachment()).close();
+      workers.shutdown();
+      try {
+        selector.close();
+        server.close();
+      } catch (IOException e) {
+        // The server is closing anyway.
+      }
+    }
+  }
+
+  /**
+   * Accepts every waiting connection.
+   * @throws IOException if a connection can't be set up.
+   */
+  private void accept() throws IOException {
+    for (SocketChannel channel; (channel = server.accept()) != null; ) {
+      channel.configureBlocking(false);
+      Connection connection = new Connection(channel);
+      connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+      connections.incrementAndGet();
+    }
+  }
+
+  /** A client connected to the server, with its games. */
+  private class Connection implements Runnable {
+    /** The socket of the client. */
+    private SocketChannel channel;
+
+    /** The key of the socket with the selector. */
+    private SelectionKey key;
+
+    /** The part of a command line read so far. */
+    private StringBuilder line;
+
+    /** Whether or not the command line being read is longer than MAX_LINE. */
+    private boolean overflow;
+
+    /** The commands read but not yet run. */
+    private ArrayDeque<String> pending;
+
+    /** Whether or not a worker is running the commands. */
+    private boolean scheduled;
+
+    /** The replies the socket hasn't taken yet, or null if there are none. */
+    private ByteBuffer unsent;
+
+    /** The games of the client, by ID. */
+    private HashMap<Integer, Position> games;
+
+    /** The ID of the next game of the client. */
+    private int nextId;
+
+    /** A reusable buffer for the legal moves of a game. */
+    private int[] moves;
+
+    /** Whether or not the connection has been closed. */
+    private boolean closed;
+
+    /**
+     * Constructor for the Connection class.
+     * @param channel The socket of the client.
+     */
+    private Connection(SocketChannel channel) {
+      this.channel = channel;
+      line = new StringBuilder();
+      pending = new ArrayDeque<String>();
+      games = new HashMap<Integer, Position>();
+      nextId = 1;
+    }
+
+    /**
+     * Reads what the client has sent, and hands any complete command lines
+     * to a worker. Called on the selecting thread.
+     * @throws IOException if the socket can't be read.
+     */
+    private void read() throws IOException {
+      readBuffer.clear();
+      int read = channel.read(readBuffer);
+      if (read < 0) {
+        close();
+        return;
+      }
+
+      boolean added = false;
+      for (int i = 0; i < read; i++) {
+        char c = (char) (readBuffer.get(i) & 0xFF);
+        if (c == '\n') {
+          synchronized (this) {
+            pending.add(overflow ? TOO_LONG : line.toString().trim());
+          }
+          line.setLength(0);
+          overflow = false;
+          added = true;
+        } else if (line.length() < MAX_LINE)
+          line.append(c);
+        else
+          overflow = true;
+      }
+
+      synchronized (this) {
+        if (added && !scheduled && !closed) {
+          scheduled = true;
+          workers.execute(this);
+        }
+      }
+      // A single read may queue a few more than MAX_PENDING commands, but no more reads follow.
+      updateInterest();
+    }
+
+    /**
+     * Determines whether or not the server should stop reading from the client,
+     * since it has too many commands waiting or hasn't taken all of its replies.
+     * @return Whether or not reading is paused.
+     */
+    private synchronized boolean isThrottled() {
+      return pending.size() >= MAX_PENDING || unsent != null;
+    }
+
+    /**
+     * Watches the socket for reading unless the connection is throttled, and for
+     * writing while replies are left unsent. Called on the selecting thread.
+     */
+    private synchronized void updateInterest() {
+      if (!key.isValid())
+        return;
+      int ops = isThrottled() ? 0 : SelectionKey.OP_READ;
+      if (unsent != null)
+        ops |= SelectionKey.OP_WRITE;
+      key.interestOps(ops);
+    }
+
+    /**
+     * Runs the pending commands of the client in order, then lets the next
+     * command read schedule the connection again. Called on a worker thread.
+     */
+    public void run() {
+      while (true) {
+        String command;
+        synchronized (this) {
+          command = pending.poll();
+          if (command == null || closed) {
+            scheduled = false;
+            // The selecting thread left the games of a closed connection for the worker to end.
+            if (closed)
+              endGames();
+            return;
+          }
+          // Let the selecting thread read again once the queue has room.
+          if (pending.size() == MAX_PENDING - 1 && unsent == null) {
+            changed.add(this);
+            selector.wakeup();
+          }
+        }
+        commands.incrementAndGet();
+
+        String reply;
+        try {
+          reply = execute(command);
+        } catch (RuntimeException e) {
+          reply = "error " + e.getMessage();
+        }
+        try {
+          send(reply + "\n");
+        } catch (IOException e) {
+          close();
+        }
+        if (command.equalsIgnoreCase("quit"))
+          close();
+      }
+    }
+
+    /**
+     * Runs a single command of the client.
+     * @param command The command line.
+     * @return The reply, without the line break.
+     */
+    private String execute(String command) {
+      if (command.equals(TOO_LONG))
+        return "error line too long";
+      String[] words = command.split("\\s+");
+      String name = words[0].toLowerCase();
+
+      // Case 1: Start a game, from the initial position or from the given one.
+      if (name.equals("new")) {
+        if (games.size() >= MAX_GAMES)
+          return "error too many games";
+        Position position = new Position();
+        if (words.length > 1)
+          position.loadFen(command.substring(command.indexOf(' ') + 1).trim());
+        else
+          position.reset();
+        if (moves == null)
+          moves = new int[Move.MAX_MOVES];
+        games.put(nextId, position);
+        GameServer.this.games.incrementAndGet();
+        return "ok " + nextId++;
+      }
+
+      // Case 2: End every game and disconnect, which the worker does after replying.
+      if (name.equals("quit") || name.isEmpty())
+        return name.isEmpty() ? "error empty command" : "ok";
+
+      if (!name.equals("move") && !name.equals("moves") && !name.equals("status") && !name.equals("end"))
+        return "error unknown command " + words[0];
+
+      // Every other command names a game.
+      Position position = (words.length > 1) ? findGame(words[1]) : null;
+      if (position == null)
+        return "error no such game";
+
+      // Case 3: Play a move, given in coordinate notation or in standard algebraic notation.
+      if (name.equals("move") && words.length > 2) {
+        int move = findMove(position, words[2]);
+        if (move == Move.NONE)
+          return "error illegal move " + words[2];
+        position.makeMove(move);
+        return "ok " + Move.toString(move) + " " + statusOf(position);
+      }
+
+      // Case 4: List the legal moves.
+      if (name.equals("moves")) {
+        int count = position.generateLegalMoves(moves);
+        StringBuilder reply = new StringBuilder("ok ").append(count);
+        for (int i = 0; i < count; i++)
+          reply.append(' ').append(Move.toString(moves[i]));
+        return reply.toString();
+      }
+
+      // Case 5: Describe the game.
+      if (name.equals("status"))
+        return "ok " + statusOf(position) + ((position.getTurn() == 1) ? " white " : " black ") + position.toFen();
+
+      // Case 6: End a game.
+      if (name.equals("end")) {
+        games.remove(Integer.parseInt(words[1]));
+        GameServer.this.games.decrementAndGet();
+        return "ok";
+      }
+
+      return "error missing move";
+    }
+
+    /**
+     * Finds a game of the client.
+     * @param id The ID of the game, as sent by the client.
+     * @return The position of the game, or null if the client has no such game.
+     */
+    private Position findGame(String id) {
+      try {
+        return games.get(Integer.parseInt(id));
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+
+    /**
+     * Finds a legal move of a game from the way the client wrote it.
+     * @param position The position of the game.
+     * @param text The move in coordinate notation, e.g. "e7e8q", or in standard algebraic notation.
+     * @return The encoded move, or Move.NONE if it isn't legal.
+     */
+    private int findMove(Position position, String text) {
+      int count = position.generateLegalMoves(moves);
+      for (int i = 0; i < count; i++)
+        if (Move.toString(moves[i]).equalsIgnoreCase(text))
+          return moves[i];
+      return Move.parseSan(position, text, moves);
+    }
+
+    /**
+     * Returns the status of a game as a single word, e.g. "fifty-move-rule".
+     * @param position The position of the game.
+     * @return The status of the game.
+     */
+    private String statusOf(Position position) {
+      return Position.statusName(position.getStatus(moves)).toLowerCase().replace(' ', '-');
+    }
+
+    /**
+     * Sends a reply, writing as much as the socket takes at once and leaving
+     * the rest for the selecting thread to write when the socket is ready.
+     * @param reply The reply to send.
+     * @throws IOException if the socket can't be written to.
+     */
+    private synchronized void send(String reply) throws IOException {
+      ByteBuffer bytes = ByteBuffer.wrap(reply.getBytes(StandardCharsets.US_ASCII));
+      if (unsent == null)
+        channel.write(bytes);
+      if (bytes.hasRemaining()) {
+        if (unsent == null) {
+          unsent = ByteBuffer.allocate(Math.max(READ_SIZE, bytes.remaining()));
+          changed.add(this);
+          selector.wakeup();
+        } else if (unsent.remaining() < bytes.remaining()) {
+          ByteBuffer larger = ByteBuffer.allocate(2 * (unsent.position() + bytes.remaining()));
+          unsent.flip();
+          unsent = larger.put(unsent);
+        }
+        unsent.put(bytes);
+      }
+    }
+
+    /**
+     * Writes the replies the socket didn't take before. Called on the selecting thread.
+     * @throws IOException if the socket can't be written to.
+     */
+    private synchronized void flush() throws IOException {
+      if (unsent != null) {
+        unsent.flip();
+        channel.write(unsent);
+        unsent.compact();
+        if (unsent.position() > 0)
+          return;
+        unsent = null;
+      }
+      updateInterest();
+    }
+
+    /**
+     * Closes the connection and ends its games. A worker may be running a
+     * command on the games right now, so they are left for it to end once it
+     * sees the connection is closed.
+     */
+    private synchronized void close() {
+      if (closed)
+        return;
+      closed = true;
+      key.cancel();
+      try {
+        channel.close();
+      } catch (IOException e) {
+        // The connection is gone anyway.
+      }
+      connections.decrementAndGet();
+      if (!scheduled)
+        endGames();
+    }
+
+    /** Ends every game of a closed connection, once no worker is running its commands. */
+    private synchronized void endGames() {
+      GameServer.this.games.addAndGet(-games.size());
+      games.clear();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    SocketAddress address = new InetSocketAddress(DEFAULT_PORT);
+    int threads = Runtime.getRuntime().availableProcessors();
+    Path socketFile = null;
+
+    for (String arg : args) {
+      if (arg.startsWith("port="))
+        address = new InetSocketAddress(Integer.parseInt(arg.substring(5)));
+      else if (arg.startsWith("unix=")) {
+        socketFile = Paths.get(arg.substring(5));
+        Files.deleteIfExists(socketFile);
+        address = UnixDomainSocketAddress.of(socketFile);
+      } else if (arg.startsWith("workers="))
+        threads = Integer.parseInt(arg.substring(8));
+      else {
+        System.out.println("Usage: java GameServer [port=N | unix=PATH] [workers=N]");
+        return;
+      }
+    }
+
+    GameServer server = new GameServer(address, threads);
+    System.out.println("Serving games on " + server.getAddress() + " with " + threads + " workers");
+    try {
+      server.run();
+    } finally {
+      if (socketFile != null)
+        Files.deleteIfExists(socketFile);
+    }
+  }
+}
@@ -0,0 +1,184 @@
+/** Represents the state of one game of Chess: the board, both players, whose
+ * turn it is, and the castle buttons. Every part of a game reaches the rest
+ * of the game through its session instead of through shared fields, so one
+ * program can hold any number of games at once, e.g. a window for each game
+ * or a server hosting many games, without one game seeing another.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class GameSession {
+  /* # DATA STRUCTURES # */
+
+  /** The chess board carrying all of the pieces of the game. */
+  private Board board;
+
+  /** The top player in the game. */
+  private Player player0;
+
+  /** The bottom player in the game. */
+  private Player player1;
+
+  /** The current turn number: 0 for top player, 1 for bottom player. */
+  private int turnNumber;
+
+  /** The castle buttons for both players. */
+  private CastleButton[] castleButtons;
+
+  /** The width and height of the window showing the game, in pixels. */
+  private int scale;
+
+  /**
+   * The constructor for the GameSession class. Creates a new game between
+   * two players, with the board in the initial setup.
+   * @param s The scale/dimensions of the window showing the game, or 0 for a game without a window.
+   * @param top The top player, with an ID of 0.
+   * @param bottom The bottom player, with an ID of 1.
+   */
+  public GameSession(int s, Player top, Player bottom) {
+    scale = s;
+    turnNumber = 1;
+
+    // Instantiates the players, naming them after their location on the board.
+    player0 = top;
+    player1 = bottom;
+    player0.setSession(this);
+    player1.setSession(this);
+    player0.setName((player0 instanceof ComputerPlayer) ? "TOP COMPUTER" : "TOP");
+    player1.setName((player1 instanceof ComputerPlayer) ? "BOTTOM COMPUTER" : "BOTTOM");
+
+    // Creates the castle buttons.
+    castleButtons = new CastleButton[4];
+    for (int n = 0; n < 4; n++)
+      castleButtons[n] = new CastleButton(this, (n % 2 == 0) ? "left" : "right", n / 2);
+
+    // Instantiates the chess board
+    board = new Board(this);
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the width and height of the window showing the game.
+   * @return The width and height of the frame.
+   */
+  public int getScale() {
+    return scale;
+  }
+
+  /**
+   * Returns one unit size of the game. The frame is divided
+   * up into 12x12 squares, and so one unit is one-twelfth of
+   * the size of the frame.
+   * @return The unit size of the frame.
+   */
+  public int getUnit() {
+    return scale / 12;
+  }
+
+  /**
+   * Prints the board and the pieces captured by the top player
+   * and the bottom player. Used in the text-based chess game.
+   */
+  public void printContents() {
+    // Prints the chess board.
+    board.print();
+
+    // Prints the captured pieces of both players in order.
+    player0.printCapturedPieces();
+    player1.printCapturedPieces();
+  }
+
+  /**
+   * Resets the board to the initial setup, and also wipes
+   * all of the captured pieces held by both players.
+   */
+  public void reset() {
+    player0.reset();
+    player1.reset();
+    board.reset();
+    board.setSelectedPiece(null);
+    turnNumber = 1;
+  }
+
+  /**
+   * Returns the castle buttons of the game, for the window to show.
+   * @return The top left, top right, bottom left and bottom right buttons.
+   */
+  public CastleButton[] getCastleButtons() {
+    return castleButtons;
+  }
+
+  /**
+   * Sets a CastleButton on or off, specified by the parameters.
+   * If "left" or "right" is sent in, a left or right CastleButton will
+   * be turned on or off, respectively. The player ID sent in determines
+   * whether the top or the bottom CastleButton is set on or off.
+   * @param side The side of the button to set on or off, left or right.
+   * @param n The player ID of the button to set on or off.
+   * @param flag True to set the button on, false to turn it off.
+   */
+  public void setCastleButtonVisible(String side, int n, boolean flag) {
+    if (side.equals("left")) {
+      if (n == 0)
+        castleButtons[0].setVisible(flag);
+      else if (n == 1)
+        castleButtons[2].setVisible(flag);
+    }
+    else if (side.equals("right")) {
+      if (n == 0)
+        castleButtons[1].setVisible(flag);
+      else if (n == 1)
+        castleButtons[3].setVisible(flag);
+    }
+  }
+
+  /**
+   * Switches the turn from top player to bottom or bottom
+   * player to top.
+   */
+  public void incrementTurn() {
+    turnNumber = (turnNumber + 1) % 2;
+    board.getPosition().setTurn(turnNumber);
+  }
+
+  /**
+   * Returns the ID of the player whose turn it is currently.
+   * @return The current turn.
+   */
+  public int getTurn() {
+    return turnNumber;
+  }
+
+  /**
+   * Determines whether or not the game has ended, by a checkmate or by any
+   * of the draws classified by Board.getGameStatus.
+   * @return Whether or not the game is over.
+   */
+  public boolean isOver() {
+    return board.getGameStatus() != Position.ONGOING;
+  }
+
+  /**
+   * Returns the requested player based on the player's ID.
+   * @param n The player ID requested.
+   * @return An instance of the Player with the corresponding ID.
+   */
+  public Player getPlayer(int n) {
+    if (n == 0)
+      return player0;
+    else if (n == 1)
+      return player1;
+    else
+      return null;
+  }
+
+  /**
+   * Returns the current board being played.
+   * @return The Board of the Chess game.
+   */
+  public Board getBoard() {
+    return board;
+  }
+}
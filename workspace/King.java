@@ -15,7 +15,7 @@ public class King extends Piece {
    * @param col The initial column.
    */
   public King(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 0);
+    super(playerNumber, row, col, getPieceValue(Position.KING));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackKing.png");
     else
@@ -31,30 +31,92 @@ public class King extends Piece {
    * a position out of bounds returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
-    // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
       return false;
-    
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the king on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the king.
+   * @param to The square to send the king to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
+    // Case 1: The piece isn't moved.
+    if (from == to)
       return false;
     
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Determines how far the piece has moved
-    // in the horizontal and vertical direction.
-    int changeInX = Math.abs(col - getCol());
-    int changeInY = Math.abs(row - getRow());
+    // Look up the squares within one distance of the first square.
+    return (Bitboards.kingAttacks(from) & (1L << to)) != 0;
+  }
 
-    // If the king only moves one tile in either direction, the move is valid.
-    return changeInX <= 1 && changeInY <= 1;
+  /**
+   * Adds every move the king can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
+
+  /**
+   * Adds every square around the king on the given square that
+   * doesn't hold one of the player's own pieces. A castle is added
+   * as a move of the king two tiles towards a rook, as long as the
+   * castling right remains, nothing stands in between, the king is
+   * not in check, and the tile the king passes over is not attacked.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the king.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    long targets = Bitboards.kingAttacks(from) & ~position.getOccupancy(player);
+    count = Move.addAll(from, targets, moves, count);
+
+    // Look for a castle only if the king is on its initial tile with a castling right, and not in check.
+    int homeRow = (player == 0) ? 0 : 7;
+    if (from != Position.square(homeRow, 4) || (position.getCastlingRights() & (3 << (2 * player))) == 0
+        || position.isAttacked(from, 1 - player))
+      return count;
+
+    for (int direction = -1; direction <= 1; direction += 2) {
+      int rookSquare = Position.square(homeRow, (direction < 0) ? 0 : 7);
+      if ((position.getCastlingRights() & Position.castleRight(player, direction < 0)) != 0
+          && position.getCode(rookSquare) == Position.code(player, Position.ROOK)
+          && position.isPathClear(from, rookSquare) && !position.isAttacked(from + direction, 1 - player))
+        moves[count++] = Move.create(from, from + 2 * direction);
+    }
+    return count;
+  }
+
+  /**
+   * Returns the rank of a king.
+   * @return The rank of a king.
+   */
+  public int getType() {
+    return Position.KING;
   }
 
   /**
@@ -15,7 +15,7 @@ public class Knight extends Piece {
    * @param col The initial column.
    */
   public Knight(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 3);
+    super(playerNumber, row, col, getPieceValue(Position.KNIGHT));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackKnight.png");
     else
@@ -31,29 +31,74 @@ public class Knight extends Piece {
    * a position out of bounds returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
-    // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
       return false;
-    
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the knight on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the knight.
+   * @param to The square to send the knight to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
+    // Case 1: The piece isn't moved.
+    if (from == to)
       return false;
     
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Determines how far the piece has moved
-    // in the horizontal and vertical direction.
-    int changeInX = Math.abs(col - getCol());
-    int changeInY = Math.abs(row - getRow());
+    // Look up the squares a knight on the first square can leap to.
+    return (Bitboards.knightAttacks(from) & (1L << to)) != 0;
+  }
 
-    return ((changeInX == 1 && changeInY == 2) || (changeInX == 2 && changeInY == 1));
+  /**
+   * Adds every move the knight can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
+
+  /**
+   * Adds every square the knight on the given square can
+   * leap to, skipping the player's own pieces.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the knight.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    long targets = Bitboards.knightAttacks(from) & ~position.getOccupancy(player);
+    return Move.addAll(from, targets, moves, count);
+  }
+
+  /**
+   * Returns the rank of a knight.
+   * @return The rank of a knight.
+   */
+  public int getType() {
+    return Position.KNIGHT;
   }
 
   /**
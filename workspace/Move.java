@@ -0,0 +1,252 @@
+/** Encodes a Chess move as a single primitive int, so that moves can be
+ * stored in plain arrays instead of objects. The lowest six bits hold the
+ * square the piece moves from, the next six bits hold the square it moves
+ * to, and the next four bits hold the rank a pawn is promoted to, if any.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public final class Move {
+  /** The value representing no move at all. */
+  public static final int NONE = 0;
+
+  /** The largest number of moves any position can generate. */
+  public static final int MAX_MOVES = 256;
+
+  /** The Move class only holds static helpers, so it is never instantiated. */
+  private Move() {
+  }
+
+  /**
+   * Creates a move that does not promote a pawn.
+   * @param from The square of the piece to move.
+   * @param to The square to move the piece to.
+   * @return The encoded move.
+   */
+  public static int create(int from, int to) {
+    return from | (to << 6);
+  }
+
+  /**
+   * Creates a move that promotes a pawn to the given rank.
+   * @param from The square of the pawn to move.
+   * @param to The square to move the pawn to.
+   * @param promotion The rank to promote the pawn to.
+   * @return The encoded move.
+   */
+  public static int create(int from, int to, int promotion) {
+    return from | (to << 6) | (promotion << 12);
+  }
+
+  /**
+   * Returns the square the move starts from.
+   * @param move The encoded move.
+   * @return The initial square.
+   */
+  public static int from(int move) {
+    return move & 63;
+  }
+
+  /**
+   * Returns the square the move ends on.
+   * @param move The encoded move.
+   * @return The final square.
+   */
+  public static int to(int move) {
+    return (move >>> 6) & 63;
+  }
+
+  /**
+   * Returns the rank a pawn is promoted to by the move.
+   * @param move The encoded move.
+   * @return The promotion rank, or Position.EMPTY if there is none.
+   */
+  public static int promotion(int move) {
+    return (move >>> 12) & 15;
+  }
+
+  /**
+   * Adds a move from the given square to every square of a bitboard
+   * into the move buffer.
+   * @param from The square of the piece to move.
+   * @param targets The bitboard of squares to move to.
+   * @param moves The buffer to fill.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int addAll(int from, long targets, int[] moves, int count) {
+    while (targets != 0) {
+      moves[count++] = create(from, Long.numberOfTrailingZeros(targets));
+      targets &= targets - 1;
+    }
+    return count;
+  }
+
+  /**
+   * Returns the name of a square in algebraic notation, where the bottom
+   * player's back row is row "1" and the leftmost column is column "a".
+   * @param square The index of the square.
+   * @return The name of the square.
+   */
+  public static String squareName(int square) {
+    return "" + (char) ('a' + Position.colOf(square)) + (char) ('8' - Position.rowOf(square));
+  }
+
+  /**
+   * Finds the legal move of a position written in Standard Algebraic Notation,
+   * such as "e4", "Nbd7", "exd5", "e8=Q+" or "O-O". Marks of check and
+   * annotation are ignored, and castling may also be written with zeros.
+   * @param position The position the move is played in.
+   * @param san The move in Standard Algebraic Notation.
+   * @param moves A move buffer to generate the legal moves into.
+   * @return The encoded move, or NONE if the move is illegal or ambiguous.
+   */
+  public static int parseSan(Position position, CharSequence san, int[] moves) {
+    int end = san.length();
+    while (end > 0 && (san.charAt(end - 1) == '+' || san.charAt(end - 1) == '#'
+                       || san.charAt(end - 1) == '!' || san.charAt(end - 1) == '?'))
+      end--;
+    if (end < 2)
+      return NONE;
+
+    int type = Position.PAWN;
+    int to;
+    int promotion = Position.EMPTY;
+    int fromRow = -1;
+    int fromCol = -1;
+    char first = san.charAt(0);
+
+    // Case 1: Castling, which moves the king two tiles toward the rook.
+    if (first == 'O' || first == '0') {
+      int king = position.getKingSquare(position.getTurn());
+      if (king < 0)
+        return NONE;
+      type = Position.KING;
+      to = king + ((end >= 5) ? -2 : 2);
+    }
+
+    // Case 2: Any other move, ending with the tile moved to and any promotion.
+    else {
+      int start = 0;
+      if (first == 'N' || first == 'B' || first == 'R' || first == 'Q' || first == 'K') {
+        type = "PNBRQK".indexOf(first) + 1;
+        start = 1;
+      }
+
+      int rank = "PNBRQK".indexOf(Character.toUpperCase(san.charAt(end - 1))) + 1;
+      if (type == Position.PAWN && rank > Position.PAWN && rank < Position.KING) {
+        promotion = rank;
+        end -= (san.charAt(end - 2) == '=') ? 2 : 1;
+      }
+      if (end - start < 2)
+        return NONE;
+
+      int toRow = '8' - san.charAt(end - 1);
+      int toCol = san.charAt(end - 2) - 'a';
+      if (!Position.inBounds(toRow, toCol))
+        return NONE;
+      to = Position.square(toRow, toCol);
+
+      // The tiles between the rank and the destination tell apart pieces that could both move there.
+      for (int i = start; i < end - 2; i++) {
+        char c = san.charAt(i);
+        if (c >= 'a' && c <= 'h')
+          fromCol = c - 'a';
+        else if (c >= '1' && c <= '8')
+          fromRow = '8' - c;
+        else if (c != 'x' && c != ':' && c != '-')
+          return NONE;
+      }
+    }
+
+    // Find the one legal move that fits.
+    int found = NONE;
+    int count = position.generateLegalMoves(moves);
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      int from = from(move);
+      if (to(move) != to || promotion(move) != promotion
+          || Position.typeOf(position.getCode(from)) != type
+          || (fromRow >= 0 && Position.rowOf(from) != fromRow)
+          || (fromCol >= 0 && Position.colOf(from) != fromCol))
+        continue;
+      if (found != NONE)
+        return NONE;
+      found = move;
+    }
+    return found;
+  }
+
+  /**
+   * Writes a legal move of a position in Standard Algebraic Notation, such as
+   * "e4", "Nbd7", "exd5", "e8=Q+" or "O-O-O#", which parseSan reads back.
+   * @param position The position the move is played in, which is left as it was.
+   * @param move The encoded move, which must be legal.
+   * @param moves A move buffer to generate the legal moves into.
+   * @return The move in Standard Algebraic Notation.
+   */
+  public static String toSan(Position position, int move, int[] moves) {
+    StringBuilder san = new StringBuilder(8);
+    int from = from(move);
+    int to = to(move);
+    int type = Position.typeOf(position.getCode(from));
+    boolean capture = !position.isEmpty(to) || (type == Position.PAWN && Position.colOf(from) != Position.colOf(to));
+
+    // Case 1: Castling, which moves the king two tiles toward the rook.
+    if (type == Position.KING && Math.abs(to - from) == 2)
+      san.append((to < from) ? "O-O-O" : "O-O");
+
+    // Case 2: A pawn, named by its column only when it captures.
+    else if (type == Position.PAWN) {
+      if (capture)
+        san.append((char) ('a' + Position.colOf(from))).append('x');
+      san.append(squareName(to));
+      if (promotion(move) != Position.EMPTY)
+        san.append('=').append("PNBRQK".charAt(promotion(move) - 1));
+    }
+
+    // Case 3: Any other piece, with the column or row it moves from if another piece of its kind could move there too.
+    else {
+      san.append("PNBRQK".charAt(type - 1));
+      boolean ambiguous = false;
+      boolean sameCol = false;
+      boolean sameRow = false;
+      int count = position.generateLegalMoves(moves);
+      for (int i = 0; i < count; i++) {
+        int other = from(moves[i]);
+        if (to(moves[i]) == to && other != from && position.getCode(other) == position.getCode(from)) {
+          ambiguous = true;
+          sameCol |= Position.colOf(other) == Position.colOf(from);
+          sameRow |= Position.rowOf(other) == Position.rowOf(from);
+        }
+      }
+      if (ambiguous && (!sameCol || sameRow))
+        san.append((char) ('a' + Position.colOf(from)));
+      if (ambiguous && sameCol)
+        san.append((char) ('8' - Position.rowOf(from)));
+      if (capture)
+        san.append('x');
+      san.append(squareName(to));
+    }
+
+    // Mark a check, or a checkmate if the opponent has no legal reply.
+    position.makeMove(move);
+    if (position.getCheckers() != 0)
+      san.append((position.generateLegalMoves(moves) == 0) ? '#' : '+');
+    position.unmakeMove();
+    return san.toString();
+  }
+
+  /**
+   * Returns the move in coordinate notation, such as "e2e4" or "a7a8q".
+   * @param move The encoded move.
+   * @return The String representation of the move.
+   */
+  public static String toString(int move) {
+    String s = squareName(from(move)) + squareName(to(move));
+    if (promotion(move) != Position.EMPTY)
+      s += " pnbrqk".charAt(promotion(move));
+    return s;
+  }
+}
@@ -0,0 +1,305 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/** An opening book mapped into memory, which holds the moves played in the
+ * opening of a collection of games, so that a ComputerPlayer can reply at
+ * once in a known position instead of searching it. The book file holds a
+ * header, then one 16-byte entry per move of each position: the Zobrist key of
+ * the position, the move, its weight, and the number of games it was played
+ * in. The entries are sorted by key, so a position is found by binary search.
+ *
+ * A move's weight is the score of the player who made it, counting 2 points for
+ * each win and 1 for each draw, so that moves that did well are chosen more often.
+ *
+ * Usage: java OpeningBook build games.bin book.bin [plies=N] [min=N]
+ *    or: java OpeningBook probe book.bin [fen]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class OpeningBook {
+  /* # DATA STRUCTURES # */
+
+  /** The first eight bytes of a book file, "CHESSBK1". */
+  private static final long MAGIC = 0x4348455353424B31L;
+
+  /** The size of the header of a book file: the magic number and the number of entries. */
+  private static final int HEADER_SIZE = 16;
+
+  /** The size of an entry of a book file. */
+  private static final int ENTRY_SIZE = 16;
+
+  /** The number of plies of each game added to a book by default. */
+  public static final int DEFAULT_PLIES = 20;
+
+  /** The number of games a move must be played in to be added to a book by default. */
+  public static final int DEFAULT_MIN_GAMES = 2;
+
+  /** The entries of the book, mapped into memory. */
+  private MappedByteBuffer entries;
+
+  /** The number of entries of the book. */
+  private int size;
+
+  /**
+   * Constructor for the OpeningBook class. Maps a book file into memory.
+   * @param path The path of the book file.
+   * @throws IOException if the file can't be read, or isn't a book.
+   */
+  public OpeningBook(Path path) throws IOException {
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      if (file.read(header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC
+          || file.size() != HEADER_SIZE + header.getLong(8) * ENTRY_SIZE)
+        throw new IOException("Not an opening book: " + path);
+      size = (int) header.getLong(8);
+      entries = file.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, (long) size * ENTRY_SIZE);
+    }
+  }
+
+  /**
+   * Returns the number of entries of the book.
+   * @return The number of moves over all positions.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Finds the moves of the book for a position.
+   * @param key The Zobrist key of the position.
+   * @param moves The array to fill with the encoded moves.
+   * @param weights The array to fill with the weight of each move, or null.
+   * @return The number of moves filled in, at most the length of the array.
+   */
+  public int findMoves(long key, int[] moves, int[] weights) {
+    // Binary search for the first entry of the position.
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (entries.getLong(mid * ENTRY_SIZE) < key)
+        low = mid + 1;
+      else
+        high = mid;
+    }
+
+    int count = 0;
+    for (int i = low; i < size && count < moves.length && entries.getLong(i * ENTRY_SIZE) == key; i++) {
+      moves[count] = entries.getShort(i * ENTRY_SIZE + 8) & 0xFFFF;
+      if (weights != null)
+        weights[count] = entries.getShort(i * ENTRY_SIZE + 10) & 0xFFFF;
+      count++;
+    }
+    return count;
+  }
+
+  /**
+   * Chooses a move of the book for a position at random, each move with a
+   * chance in proportion to its weight. Only moves that are legal in the
+   * position are chosen, so a position which merely shares its key with a
+   * position of the book is never given a wrong move.
+   * @param position The position to choose a move for.
+   * @param moves A buffer of at least Move.MAX_MOVES entries for the moves of the book.
+   * @param weights A buffer of at least Move.MAX_MOVES entries for the weight of each move.
+   * @param buffer A move buffer of at least Move.MAX_MOVES entries for the legal moves.
+   * @return The encoded move, or Move.NONE if the position isn't in the book.
+   */
+  public int choose(Position position, int[] moves, int[] weights, int[] buffer) {
+    int count = findMoves(position.getKey(), moves, weights);
+    if (count == 0)
+      return Move.NONE;
+
+    // Drop any move that isn't legal, then pick from the rest by weight.
+    int legalCount = position.generateLegalMoves(buffer);
+    int total = 0;
+    for (int i = 0; i < count; i++) {
+      boolean legal = false;
+      for (int j = 0; j < legalCount && !legal; j++)
+        legal = buffer[j] == moves[i];
+      if (!legal)
+        weights[i] = 0;
+      total += weights[i];
+    }
+    if (total == 0)
+      return Move.NONE;
+
+    int pick = ThreadLocalRandom.current().nextInt(total);
+    for (int i = 0; i < count; i++) {
+      pick -= weights[i];
+      if (pick < 0)
+        return moves[i];
+    }
+    return Move.NONE;
+  }
+
+  /**
+   * Builds a book file from the openings of a collection of games.
+   * @param games The reader of the games, before the first game.
+   * @param path The path of the book file to write.
+   * @param plies The number of plies of each game to add.
+   * @param minGames The number of games a move must be played in to be added.
+   * @return The number of entries written.
+   * @throws IOException if the book file can't be written.
+   */
+  public static int build(GameRecordReader games, Path path, int plies, int minGames) throws IOException {
+    long[] keys = new long[1 << 16];
+    long[] values = new long[1 << 16];
+    int count = 0;
+    Position position = new Position();
+
+    // Step 1: Gather each opening move with the points it scored for the player who made it.
+    while (games.next()) {
+      int result = games.getResult();
+      games.loadStart(position);
+      for (int ply = 0; ply < Math.min(plies, games.getPlyCount()); ply++) {
+        int move = games.getMove(ply);
+        int winner = (result == GameRecord.WHITE_WINS) ? 1 : (result == GameRecord.BLACK_WINS) ? 0 : -1;
+        int points = (winner < 0) ? 1 : (winner == position.getTurn()) ? 2 : 0;
+
+        if (count == keys.length) {
+          keys = Arrays.copyOf(keys, 2 * count);
+          values = Arrays.copyOf(values, 2 * count);
+        }
+        keys[count] = position.getKey();
+        values[count++] = ((long) move << 32) | points;
+        position.makeMove(move);
+      }
+    }
+
+    // Step 2: Sort them, so that each move of each position comes together.
+    GameDatabase.sort(keys, values, 0, count);
+
+    // Step 3: Write one entry per move of each position, with its total points and games.
+    int written = 0;
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                             StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+      buffer.putLong(MAGIC).putLong(0);
+
+      for (int first = 0; first < count; ) {
+        // Find the end of the position's entries, and the largest weight of any of its moves.
+        int end = first;
+        long largest = 0;
+        while (end < count && keys[end] == keys[first]) {
+          int next = nextMove(values, end, count, keys);
+          largest = Math.max(largest, weightOf(values, end, next));
+          end = next;
+        }
+
+        // Write each move played often enough, scaling the weights down together to fit in 16 bits.
+        for (int i = first; i < end; ) {
+          int next = nextMove(values, i, end, keys);
+          long weight = weightOf(values, i, next);
+          if (next - i >= minGames && weight > 0) {
+            if (buffer.remaining() < ENTRY_SIZE)
+              drain(file, buffer);
+            weight = Math.max(1, (largest > 0xFFFF) ? weight * 0xFFFF / largest : weight);
+            buffer.putLong(keys[i]).putShort((short) (values[i] >>> 32)).putShort((short) weight).putInt(next - i);
+            written++;
+          }
+          i = next;
+        }
+        first = end;
+      }
+      drain(file, buffer);
+
+      buffer.putLong(MAGIC).putLong(written).flip();
+      file.write(buffer, 0);
+    }
+    return written;
+  }
+
+  /**
+   * Returns the index after the last gathered entry of the same position and move as the given one.
+   * @param values The gathered moves and points, sorted.
+   * @param i The index of the entry.
+   * @param end The index after the last entry of the position.
+   * @param keys The gathered keys, sorted.
+   * @return The index of the next move.
+   */
+  private static int nextMove(long[] values, int i, int end, long[] keys) {
+    int j = i + 1;
+    while (j < end && keys[j] == keys[i] && (values[j] >>> 32) == (values[i] >>> 32))
+      j++;
+    return j;
+  }
+
+  /**
+   * Returns the total points of a run of gathered entries of the same position and move.
+   * @param values The gathered moves and points, sorted.
+   * @param from The index of the first entry.
+   * @param to The index after the last entry.
+   * @return The total points.
+   */
+  private static long weightOf(long[] values, int from, int to) {
+    long weight = 0;
+    for (int i = from; i < to; i++)
+      weight += values[i] & 0xFFFFFFFFL;
+    return weight;
+  }
+
+  public static void main(String[] args) throws IOException {
+    // Case 1: Build a book from a file of game records.
+    if (args.length >= 3 && args[0].equals("build")) {
+      int plies = DEFAULT_PLIES;
+      int minGames = DEFAULT_MIN_GAMES;
+      for (int i = 3; i < args.length; i++) {
+        if (args[i].startsWith("plies="))
+          plies = Integer.parseInt(args[i].substring(6));
+        else if (args[i].startsWith("min="))
+          minGames = Integer.parseInt(args[i].substring(4));
+      }
+
+      long start = System.nanoTime();
+      int entries = build(GameRecordReader.open(Paths.get(args[1])), Paths.get(args[2]), plies, minGames);
+      System.out.printf("Wrote %,d entries in %.3f s%n", entries, (System.nanoTime() - start) / 1e9);
+    }
+
+    // Case 2: Print the moves of the book for a position.
+    else if (args.length >= 2 && args[0].equals("probe")) {
+      OpeningBook book = new OpeningBook(Paths.get(args[1]));
+      Position position = new Position();
+      if (args.length > 2)
+        position.loadFen(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+      else
+        position.reset();
+
+      int[] moves = new int[Move.MAX_MOVES];
+      int[] weights = new int[Move.MAX_MOVES];
+      long start = System.nanoTime();
+      int count = book.findMoves(position.getKey(), moves, weights);
+      long nanos = System.nanoTime() - start;
+      for (int i = 0; i < count; i++)
+        System.out.println(Move.toString(moves[i]) + "  weight " + weights[i]);
+      System.out.printf("%d moves in the book, found in %.1f us%n", count, nanos / 1e3);
+    }
+
+    else
+      System.out.println("Usage: java OpeningBook build games.bin book.bin [plies=N] [min=N] | probe book.bin [fen]");
+  }
+
+  /**
+   * Writes everything in a buffer to a channel, then clears the buffer.
+   * @param out The channel to write to.
+   * @param buffer The buffer to write.
+   * @throws IOException if the channel can't be written to.
+   */
+  private static void drain(FileChannel out, ByteBuffer buffer) throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining())
+      out.write(buffer);
+    buffer.clear();
+  }
+}
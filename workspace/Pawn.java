@@ -17,7 +17,7 @@ public class Pawn extends Piece {
    * @param col The initial column.
    */
   public Pawn(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 1);
+    super(playerNumber, row, col, getPieceValue(Position.PAWN));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackPawn.png");
     else
@@ -33,76 +33,128 @@ public class Pawn extends Piece {
    * for a move to a position out of bounds returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
+      return false;
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the pawn on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the pawn.
+   * @param to The square to send the pawn to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
     // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+    if (from == to)
       return false;
     
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
-      return false;
-    
-    // Case 4: The outgoing tile is occupied.
-    else if (board.getPiece(row, col) != null) {
-      /*
-       * Make sure the player has moved up or down one tile
-       * diagonally, the direction depending on the player ID.
-       */
-      // Subcase 1: The player is on top.
-      if (getPlayerNumber() == 0)
-        return (Math.abs(getCol() - col) == 1
-          && (row - getRow()) == 1);
-      
-      // Sub-subcase 2: The player is on bottom.
-      else
-        return (Math.abs(getCol() - col) == 1
-          && (getRow() - row) == 1);
-    }
+    int player = Position.playerOf(position.getCode(from));
+    int direction = (player == 0) ? 1 : -1; // The top player moves down, the bottom player up.
+    int startRow = (player == 0) ? 1 : 6;
+    int rowChange = Position.rowOf(to) - Position.rowOf(from);
+    int colChange = Position.colOf(to) - Position.colOf(from);
+
+    // Case 3: The outgoing tile is occupied.
+    // Make sure the pawn has moved forward one tile diagonally.
+    if (target != Position.EMPTY)
+      return (Bitboards.pawnAttacks(player, from) & (1L << to)) != 0;
+
+    // Case 4: The outgoing tile is the en passant square, which the pawn may capture onto diagonally.
+    else if (to == position.getEnPassantSquare() && player == position.getTurn())
+      return (Bitboards.pawnAttacks(player, from) & (1L << to)) != 0;
+
     // Case 5: The outgoing tile is empty, and the pawn has not been moved.
-    else if (!moved()) {
-      // Subcase 1: The pawn moves two and there's a piece in between.
-      if (Math.abs(row - getRow()) == 2 && getCol() - col == 0
-        && board.getPiece((row + getRow()) / 2, col) != null)
-        return false;
-      
-      /*
-       * Make sure the pawn has moved up or down one or two
-       * tiles only, the direction depending on the player ID.
-       */
-      // Subcase 2: The player is on top.
-      else if (getPlayerNumber() == 0)
-        return (getCol() - col == 0
-          && (row - getRow() == 2 || row - getRow() == 1));
-      
-      // Subcase 3: The player is on bottom.
-      else
-        return (getCol() - col == 0
-          && (getRow() - row == 2 || getRow() - row == 1));
+    // The pawn may move forward two tiles if there's no piece in between.
+    else if (Position.rowOf(from) == startRow && colChange == 0 && rowChange == 2 * direction)
+      return position.isEmpty(from + 8 * direction);
+
+    // Case 6: The outgoing tile is empty. Make sure the pawn has moved forward one tile only.
+    else
+      return colChange == 0 && rowChange == direction;
+  }
+
+  /**
+   * Adds every move the pawn can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
+
+  /**
+   * Adds every forward step and diagonal capture of the pawn
+   * on the given square, including a capture en passant of an
+   * enemy pawn that has just stepped two tiles past it. A pawn
+   * reaching the far end of the board adds one move for each
+   * rank it may be promoted to.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the pawn.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    int direction = (player == 0) ? 8 : -8; // The top player moves down, the bottom player up.
+    int startRow = (player == 0) ? 1 : 6;
+    int lastRow = (player == 0) ? 7 : 0;
+
+    // A pawn left on the far end of the board cannot move any further.
+    if (Position.rowOf(from) == lastRow)
+      return count;
+
+    // Step 1: Collect the captures, including en passant, then the one or two steps forward.
+    long targets = Bitboards.pawnAttacks(player, from) & position.getOccupancy(1 - player);
+    if (position.getEnPassantSquare() >= 0 && player == position.getTurn())
+      targets |= Bitboards.pawnAttacks(player, from) & (1L << position.getEnPassantSquare());
+    int one = from + direction;
+    if (position.isEmpty(one)) {
+      targets |= 1L << one;
+      if (Position.rowOf(from) == startRow && position.isEmpty(one + direction))
+        targets |= 1L << (one + direction);
     }
-    // Case 6: The outgoing tile is empty, and the pawn has been moved already.
-    else {
-      /*
-       * Make sure the pawn has moved up or down one tile only,
-       * depending on which player the pawn belongs to.
-       */
-      // Subcase 1: The player is on top.
-      if (getPlayerNumber() == 0)
-        return (getCol() - col == 0
-          && row - getRow() == 1);
-      
-      // Subcase 2: The player is on bottom.
-      else
-        return (getCol() - col == 0
-          && getRow() - row == 1);
+
+    // Step 2: Add each move, expanding the ones that reach the far end into promotions.
+    while (targets != 0) {
+      int to = Long.numberOfTrailingZeros(targets);
+      targets &= targets - 1;
+      if (Position.rowOf(to) == lastRow) {
+        moves[count++] = Move.create(from, to, Position.QUEEN);
+        moves[count++] = Move.create(from, to, Position.KNIGHT);
+        moves[count++] = Move.create(from, to, Position.ROOK);
+        moves[count++] = Move.create(from, to, Position.BISHOP);
+      } else
+        moves[count++] = Move.create(from, to);
     }
+    return count;
+  }
+
+  /**
+   * Returns the rank of a pawn.
+   * @return The rank of a pawn.
+   */
+  public int getType() {
+    return Position.PAWN;
   }
 
   /**
@@ -0,0 +1,281 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/** Counts the leaf nodes of the tree of legal moves from a position to a fixed
+ * depth, known as perft. Since the counts of many positions are well known,
+ * perft checks the move generation for correctness, and the time it takes
+ * measures its speed. The divide mode prints the count below each legal move
+ * of the root, so that a wrong count can be traced to the move that causes it.
+ * A hashed mode remembers the counts of positions reached more than once, and
+ * a parallel mode splits the root moves across a fork/join pool.
+ *
+ * Usage: java Perft [depth] [fen] [divide] [hash=MB] [parallel]
+ *    or: java Perft suite [hash=MB] [parallel]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class Perft {
+  /* # DATA STRUCTURES # */
+
+  /** The positions of the suite, with their counts for depths 1 and up. */
+  private static final String[][] SUITE = {
+    {"rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1", "20 400 8902 197281 4865609"},
+    {"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", "48 2039 97862 4085603"},
+    {"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", "14 191 2812 43238 674624"},
+    {"r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", "6 264 9467 422333"},
+    {"rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", "44 1486 62379 2103487"},
+    {"r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", "46 2079 89890 3894594"},
+  };
+
+  /** The position searched when none is given. */
+  private static final String START = SUITE[0][0];
+
+  /** The counts of positions already reached, or null when hashing is off. */
+  private PerftTable table;
+
+  /** The pool splitting the root moves across threads, or null when parallel mode is off. */
+  private ForkJoinPool pool;
+
+  /**
+   * Constructor for the Perft class.
+   * @param megabytes The size of the table of counts, or 0 to count without one.
+   * @param parallel Whether or not to count the root moves on several threads.
+   */
+  public Perft(int megabytes, boolean parallel) {
+    table = (megabytes > 0) ? new PerftTable(megabytes) : null;
+    pool = parallel ? ForkJoinPool.commonPool() : null;
+  }
+
+  public static void main(String[] args) {
+    int depth = 5;
+    int megabytes = 0;
+    boolean divide = false;
+    boolean parallel = false;
+    boolean suite = false;
+    StringBuilder fen = new StringBuilder();
+
+    // Read the options; anything else is part of the position.
+    for (String arg : args) {
+      if (arg.equals("divide"))
+        divide = true;
+      else if (arg.equals("parallel"))
+        parallel = true;
+      else if (arg.equals("suite"))
+        suite = true;
+      else if (arg.startsWith("hash="))
+        megabytes = Integer.parseInt(arg.substring(5));
+      else if (fen.length() == 0 && arg.matches("\\d+"))
+        depth = Integer.parseInt(arg);
+      else
+        fen.append(fen.length() == 0 ? "" : " ").append(arg);
+    }
+
+    Perft perft = new Perft(megabytes, parallel);
+    Position position = new Position();
+
+    // Case 1: Check every position of the suite against its known counts.
+    if (suite) {
+      boolean passed = true;
+      long nodes = 0;
+      long start = System.nanoTime();
+
+      for (String[] test : SUITE) {
+        String[] counts = test[1].split(" ");
+        position.loadFen(test[0]);
+        System.out.println(test[0]);
+
+        for (int d = 1; d <= counts.length; d++) {
+          long count = perft.count(position, d);
+          boolean correct = count == Long.parseLong(counts[d - 1]);
+          passed &= correct;
+          nodes += count;
+          System.out.println("  perft(" + d + ") = " + count + (correct ? "" : "  WRONG, expected " + counts[d - 1]));
+        }
+      }
+      report(nodes, System.nanoTime() - start);
+      System.out.println(passed ? "All counts are correct." : "SOME COUNTS ARE WRONG!");
+      if (!passed)
+        System.exit(1);
+    }
+
+    // Case 2: Count the given position, or the initial position.
+    else {
+      position.loadFen((fen.length() == 0) ? START : fen.toString());
+      long start = System.nanoTime();
+      long nodes = divide ? perft.divide(position, depth) : perft.count(position, depth);
+      System.out.println("perft(" + depth + ") = " + nodes);
+      report(nodes, System.nanoTime() - start);
+    }
+  }
+
+  /**
+   * Prints how long counting took, and how many nodes were counted per second.
+   * @param nodes The number of nodes counted.
+   * @param nanos The time taken in nanoseconds.
+   */
+  private static void report(long nodes, long nanos) {
+    System.out.printf("%d nodes in %.3f s, %.0f nodes/s%n", nodes, nanos / 1e9, nodes / (nanos / 1e9));
+  }
+
+  /**
+   * Counts the leaf nodes below a position, on several threads in parallel mode.
+   * @param position The position to count from; it is left unchanged.
+   * @param depth The number of plies to count.
+   * @return The number of leaf nodes.
+   */
+  public long count(Position position, int depth) {
+    if (pool == null || depth < 2)
+      return perft(position, depth, new int[depth + 1][Move.MAX_MOVES]);
+
+    // Count each root move as its own task on its own copy of the position.
+    int[] moves = new int[Move.MAX_MOVES];
+    int count = position.generateLegalMoves(moves);
+    RootTask[] tasks = new RootTask[count];
+    for (int i = 0; i < count; i++)
+      tasks[i] = new RootTask(position, moves[i], depth - 1);
+    return pool.invoke(new RecursiveTask<Long>() {
+      protected Long compute() {
+        long nodes = 0;
+        invokeAll(tasks);
+        for (RootTask task : tasks)
+          nodes += task.join();
+        return nodes;
+      }
+    });
+  }
+
+  /**
+   * Counts and prints the leaf nodes below each legal move of a position.
+   * @param position The position to count from; it is left unchanged.
+   * @param depth The number of plies to count, at least 1.
+   * @return The total number of leaf nodes.
+   */
+  public long divide(Position position, int depth) {
+    int[] moves = new int[Move.MAX_MOVES];
+    int count = position.generateLegalMoves(moves);
+    long total = 0;
+
+    for (int i = 0; i < count; i++) {
+      position.makeMove(moves[i]);
+      long nodes = (depth > 1) ? count(position, depth - 1) : 1;
+      position.unmakeMove();
+
+      System.out.println(Move.toString(moves[i]) + ": " + nodes);
+      total += nodes;
+    }
+    System.out.println("Moves: " + count);
+    return total;
+  }
+
+  /**
+   * Counts the leaf nodes below a position on the calling thread. The last ply
+   * is not played out, since the number of its legal moves is the count.
+   * @param position The position to count from; it is left unchanged.
+   * @param depth The number of plies to count.
+   * @param moveStack A move buffer for each remaining ply.
+   * @return The number of leaf nodes.
+   */
+  private long perft(Position position, int depth, int[][] moveStack) {
+    if (depth == 0)
+      return 1;
+
+    long key = position.getKey();
+    if (table != null && depth > 1) {
+      long stored = table.get(key, depth);
+      if (stored >= 0)
+        return stored;
+    }
+
+    int[] moves = moveStack[depth];
+    int count = position.generateLegalMoves(moves);
+    if (depth == 1)
+      return count;
+
+    long nodes = 0;
+    for (int i = 0; i < count; i++) {
+      position.makeMove(moves[i]);
+      nodes += perft(position, depth - 1, moveStack);
+      position.unmakeMove();
+    }
+
+    if (table != null)
+      table.put(key, depth, nodes);
+    return nodes;
+  }
+
+  /** Counts the leaf nodes below one root move on a thread of the pool. */
+  private class RootTask extends RecursiveTask<Long> {
+    /** The version of the task's serialized form, which is never used. */
+    private static final long serialVersionUID = 1L;
+
+    /** The position after the root move, copied for this task alone. */
+    private Position position;
+
+    /** The number of plies left to count. */
+    private int depth;
+
+    /**
+     * Constructor for the RootTask class.
+     * @param root The root position, which is copied.
+     * @param move The root move to count below.
+     * @param depth The number of plies left to count after the move.
+     */
+    RootTask(Position root, int move, int depth) {
+      position = new Position(root);
+      position.makeMove(move);
+      this.depth = depth;
+    }
+
+    protected Long compute() {
+      return perft(position, depth, new int[depth + 1][Move.MAX_MOVES]);
+    }
+  }
+
+  /** A table of counts keyed by the Zobrist key and depth of a position, shared
+   * between threads without locks in the same way as the TranspositionTable. */
+  private static class PerftTable {
+    /** The key and count of each entry, two longs per entry. */
+    private long[] entries;
+
+    /** The number of entries minus one. */
+    private int mask;
+
+    /**
+     * Constructor for the PerftTable class.
+     * @param megabytes The size of the table.
+     */
+    PerftTable(int megabytes) {
+      int size = (int) Math.min(Long.highestOneBit(((long) megabytes << 20) / 16), 1 << 28);
+      entries = new long[2 * size];
+      mask = size - 1;
+    }
+
+    /**
+     * Returns the stored count of a position.
+     * @param key The Zobrist key of the position.
+     * @param depth The depth counted.
+     * @return The count, or -1 if it isn't stored.
+     */
+    long get(long key, int depth) {
+      long lock = key ^ depth;
+      int i = 2 * ((int) (lock ^ (lock >>> 32)) & mask);
+      long count = entries[i + 1];
+      return ((entries[i] ^ count) == lock && count != 0) ? count : -1;
+    }
+
+    /**
+     * Stores the count of a position, replacing whatever was in its entry.
+     * @param key The Zobrist key of the position.
+     * @param depth The depth counted.
+     * @param count The count.
+     */
+    void put(long key, int depth, long count) {
+      long lock = key ^ depth;
+      int i = 2 * ((int) (lock ^ (lock >>> 32)) & mask);
+      entries[i] = lock ^ count;
+      entries[i + 1] = count;
+    }
+  }
+}
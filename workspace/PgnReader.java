@@ -0,0 +1,318 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/** Splits a file of games in Portable Game Notation into tokens: tag pairs,
+ * moves in Standard Algebraic Notation, and game results. Comments, variations,
+ * move numbers and numeric annotations are skipped. The file is streamed through
+ * a small buffer, or through a window mapped into memory that slides along the
+ * file, so that files larger than memory can be read. Each token is kept in a
+ * reusable buffer that is overwritten by the next token, so reading allocates
+ * nothing once the reader is open.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class PgnReader implements AutoCloseable {
+  /* # DATA STRUCTURES # */
+
+  /** The token returned at the end of the file. */
+  public static final int END = 0;
+
+  /** The token of a tag pair, such as [White "Morphy"]. */
+  public static final int TAG = 1;
+
+  /** The token of a move in Standard Algebraic Notation, such as "Nf3" or "O-O". */
+  public static final int MOVE = 2;
+
+  /** The token of a game result: "1-0", "0-1", "1/2-1/2" or "*". */
+  public static final int RESULT = 3;
+
+  /** The size of the buffer a stream is read through in bytes. */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The size of the window of a file mapped into memory at once in bytes. */
+  private static final long WINDOW_SIZE = 1L << 26;
+
+  /** The channel the games are read from. */
+  private ReadableByteChannel channel;
+
+  /** Whether or not the channel is a file read through windows mapped into memory. */
+  private boolean mapped;
+
+  /** The size of the file in bytes, or -1 if the size isn't known. */
+  private long size;
+
+  /** The bytes being read: the stream buffer, or the mapped window. */
+  private ByteBuffer buffer;
+
+  /** The offset in the file of the first byte of the buffer. */
+  private long base;
+
+  /** A character read too far and put back, or -1. */
+  private int pushback;
+
+  /** The text of the last move or result, or the name of the last tag. */
+  private StringBuilder token;
+
+  /** The value of the last tag. */
+  private StringBuilder value;
+
+  /**
+   * Constructor for the PgnReader class. Reads from any channel through a
+   * buffer, such as a file, a socket or standard input.
+   * @param channel The channel to read the games from.
+   */
+  public PgnReader(ReadableByteChannel channel) {
+    this.channel = channel;
+    buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    buffer.limit(0);
+    size = -1;
+    pushback = -1;
+    token = new StringBuilder(64);
+    value = new StringBuilder(256);
+  }
+
+  /**
+   * Opens a file of games for reading.
+   * @param path The path of the file.
+   * @param map True to map the file into memory, or false to read it through a buffer.
+   * @return A new PgnReader.
+   * @throws IOException if the file can't be opened.
+   */
+  public static PgnReader open(Path path, boolean map) throws IOException {
+    FileChannel file = FileChannel.open(path, StandardOpenOption.READ);
+    PgnReader reader = new PgnReader(file);
+    reader.size = file.size();
+    reader.mapped = map;
+    return reader;
+  }
+
+  /**
+   * Returns the number of bytes read so far.
+   * @return The offset in the file of the next byte to read.
+   */
+  public long getBytesRead() {
+    return base + buffer.position();
+  }
+
+  /**
+   * Returns the size of the file being read.
+   * @return The size in bytes, or -1 if the size isn't known.
+   */
+  public long getSize() {
+    return size;
+  }
+
+  /**
+   * Returns the text of the last move or result token, which stays
+   * valid only until the next token is read.
+   * @return The text of the token.
+   */
+  public CharSequence getToken() {
+    return token;
+  }
+
+  /**
+   * Returns the name of the last tag, which stays valid only until the next token is read.
+   * @return The name of the tag, such as "White".
+   */
+  public CharSequence getTagName() {
+    return token;
+  }
+
+  /**
+   * Returns the value of the last tag, which stays valid only until the next token is read.
+   * @return The value of the tag, without its quotes or escapes.
+   */
+  public CharSequence getTagValue() {
+    return value;
+  }
+
+  /**
+   * Reads the next token of the file.
+   * @return TAG, MOVE, RESULT, or END at the end of the file.
+   * @throws IOException if the file can't be read.
+   */
+  public int next() throws IOException {
+    while (true) {
+      int c = read();
+      switch (c) {
+        case -1 : return END;
+        case '[' : readTag(); return TAG;
+        case '{' : skipUntil('}'); break;
+        case ';' : case '%' : skipUntil('\n'); break;
+        case '(' : skipVariation(); break;
+        case '$' : readWord(c); break;
+        case '*' : token.setLength(0); token.append('*'); return RESULT;
+
+        default :
+          // Case 1: A move number, a result, or castling written with zeros.
+          if (c >= '0' && c <= '9') {
+            readWord(c);
+            if (isResult())
+              return RESULT;
+            if (token.length() >= 3 && token.charAt(0) == '0' && token.charAt(1) == '-')
+              return MOVE;
+          }
+
+          // Case 2: A move, which always starts with a letter, unless it's an "e.p." mark.
+          else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+            readWord(c);
+            if (token.length() != 4 || token.charAt(0) != 'e' || token.charAt(1) != '.' || token.charAt(2) != 'p')
+              return MOVE;
+          }
+      }
+    }
+  }
+
+  /** Closes the channel. */
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Returns whether or not the last token read is a game result.
+   * @return True for "1-0", "0-1" and "1/2-1/2".
+   */
+  private boolean isResult() {
+    int length = token.length();
+    if (length == 3)
+      return token.charAt(1) == '-' && (token.charAt(0) == '1' ^ token.charAt(2) == '1')
+          && (token.charAt(0) == '0' ^ token.charAt(2) == '0');
+    return length == 7 && token.charAt(1) == '/' && token.charAt(3) == '-';
+  }
+
+  /**
+   * Reads a word into the token, up to a space or the start of another token.
+   * Move numbers end at their dots, so "12.e4" is read as "12" and then "e4".
+   * @param first The first character of the word, already read.
+   * @throws IOException if the file can't be read.
+   */
+  private void readWord(int first) throws IOException {
+    token.setLength(0);
+    token.append((char) first);
+    boolean number = first >= '0' && first <= '9';
+
+    int c;
+    while ((c = read()) > ' ' && c != '{' && c != '}' && c != '(' && c != ')' && c != '[' && c != ';') {
+      if (c == '.' && number) {
+        // Skip the dots of a move number, e.g. "12." or "12...".
+        while ((c = read()) == '.')
+          ;
+        break;
+      }
+      token.append((char) c);
+    }
+    pushback = c;
+  }
+
+  /**
+   * Reads a tag pair after its opening bracket: its name into the token,
+   * and its quoted value into the value.
+   * @throws IOException if the file can't be read.
+   */
+  private void readTag() throws IOException {
+    token.setLength(0);
+    value.setLength(0);
+
+    int c;
+    while ((c = read()) == ' ')
+      ;
+    for (; c > ' ' && c != '"' && c != ']'; c = read())
+      token.append((char) c);
+    while (c >= 0 && c != '"' && c != ']')
+      c = read();
+
+    if (c == '"') {
+      for (c = read(); c >= 0 && c != '"' && c != '\n'; c = read()) {
+        if (c == '\\')
+          c = read();
+        value.append((char) c);
+      }
+      skipUntil(']');
+    }
+  }
+
+  /**
+   * Skips characters up to and including the given one.
+   * @param last The character to stop after.
+   * @throws IOException if the file can't be read.
+   */
+  private void skipUntil(int last) throws IOException {
+    int c;
+    while ((c = read()) >= 0 && c != last)
+      ;
+  }
+
+  /**
+   * Skips a variation after its opening parenthesis, along with any
+   * variations and comments nested inside it.
+   * @throws IOException if the file can't be read.
+   */
+  private void skipVariation() throws IOException {
+    int depth = 1;
+    while (depth > 0) {
+      int c = read();
+      if (c < 0)
+        return;
+      else if (c == '(')
+        depth++;
+      else if (c == ')')
+        depth--;
+      else if (c == '{')
+        skipUntil('}');
+    }
+  }
+
+  /**
+   * Reads the next character of the file, refilling the buffer when it runs out.
+   * The file is read as single-byte characters, which covers the moves and the
+   * tag names; other characters in tag values or comments are kept as bytes.
+   * @return The next character, or -1 at the end of the file.
+   * @throws IOException if the file can't be read.
+   */
+  private int read() throws IOException {
+    if (pushback >= 0) {
+      int c = pushback;
+      pushback = -1;
+      return c;
+    }
+    if (!buffer.hasRemaining() && !refill())
+      return -1;
+    return buffer.get() & 0xFF;
+  }
+
+  /**
+   * Moves the buffer along to the next bytes of the file.
+   * @return True if there are more bytes, or false at the end of the file.
+   * @throws IOException if the file can't be read.
+   */
+  private boolean refill() throws IOException {
+    long next = base + buffer.limit();
+
+    // Case 1: Map the next window of the file into memory.
+    if (mapped) {
+      if (next >= size)
+        return false;
+      base = next;
+      buffer = ((FileChannel) channel).map(FileChannel.MapMode.READ_ONLY, base, Math.min(WINDOW_SIZE, size - base));
+      return true;
+    }
+
+    // Case 2: Read the next bytes of the stream into the buffer.
+    base = next;
+    buffer.clear();
+    int n;
+    while ((n = channel.read(buffer)) == 0)
+      ;
+    buffer.flip();
+    return n > 0;
+  }
+}
@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.io.PrintStream;
+
+import java.nio.channels.Channels;
+
+import java.nio.file.Paths;
+
+/** Replays every game of a file in Portable Game Notation on a Position,
+ * resolving each move in Standard Algebraic Notation against the legal moves,
+ * so that a whole archive can be checked for illegal moves. Each illegal move
+ * is reported along with the game and the position it was played in, and the
+ * rest of that game is skipped. While running, the progress through the file
+ * and the throughput in megabytes, games and moves per second are printed to
+ * the error stream once a second; at the end, the totals and the results of
+ * the games are printed. The legal games can also be written out as records in
+ * the compact binary format of GameRecord.
+ *
+ * Usage: java PgnReplayer [file.pgn | -] [map] [quiet] [out=games.bin]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class PgnReplayer {
+  /* # DATA STRUCTURES # */
+
+  /** The time between progress reports in nanoseconds. */
+  private static final long PROGRESS_INTERVAL = 1000000000L;
+
+  /** The result tokens counted, in the order their counts are kept. */
+  private static final String[] RESULTS = {"1-0", "0-1", "1/2-1/2", "*"};
+
+  /** The position the games are replayed on. */
+  private Position position;
+
+  /** A reusable buffer for the legal moves of the position. */
+  private int[] moves;
+
+  /** Where illegal moves are reported, or null to count them without reporting them. */
+  private PrintStream report;
+
+  /** Where the legal games are written as records, or null to not write them. */
+  private GameRecordWriter writer;
+
+  /** The start of the current game in Forsyth-Edwards Notation, or empty for the initial position. */
+  private StringBuilder startFen;
+
+  /** The players of the current game, for reporting illegal moves. */
+  private StringBuilder white, black;
+
+  /** Whether or not the current game has reached its moves. */
+  private boolean inMoves;
+
+  /** Whether or not the rest of the current game is skipped after an illegal move. */
+  private boolean skipping;
+
+  /** The number of games replayed. */
+  private long games;
+
+  /** The number of moves replayed. */
+  private long plies;
+
+  /** The number of games with an illegal move. */
+  private long illegalGames;
+
+  /** The number of games with each result in RESULTS, and of games without a result. */
+  private long[] resultCounts;
+
+  /** The number of games that ended in checkmate or stalemate on the board. */
+  private long checkmates, stalemates;
+
+  /**
+   * Constructor for the PgnReplayer class.
+   * @param report Where to report illegal moves, or null to only count them.
+   */
+  public PgnReplayer(PrintStream report) {
+    this.report = report;
+    position = new Position();
+    moves = new int[Move.MAX_MOVES];
+    startFen = new StringBuilder();
+    white = new StringBuilder();
+    black = new StringBuilder();
+    resultCounts = new long[RESULTS.length + 1];
+  }
+
+  public static void main(String[] args) throws IOException {
+    String file = "-";
+    boolean map = false;
+    boolean quiet = false;
+    String out = null;
+    for (String arg : args) {
+      if (arg.startsWith("out="))
+        out = arg.substring(4);
+      else if (arg.equals("map"))
+        map = true;
+      else if (arg.equals("quiet"))
+        quiet = true;
+      else
+        file = arg;
+    }
+
+    PgnReplayer replayer = new PgnReplayer(quiet ? null : System.out);
+    if (out != null)
+      replayer.setWriter(GameRecordWriter.open(Paths.get(out), false));
+    try (PgnReader reader = file.equals("-") ? new PgnReader(Channels.newChannel(System.in))
+                                             : PgnReader.open(Paths.get(file), map)) {
+      long start = System.nanoTime();
+      replayer.replay(reader, System.err);
+      replayer.printSummary(System.out, reader.getBytesRead(), System.nanoTime() - start);
+    }
+    if (out != null)
+      replayer.writer.close();
+  }
+
+  /**
+   * Sets where the legal games are written as records in the compact binary format.
+   * @param writer The writer of the records, or null to not write them.
+   */
+  public void setWriter(GameRecordWriter writer) {
+    this.writer = writer;
+  }
+
+  /**
+   * Replays every game read from a file.
+   * @param reader The reader of the file.
+   * @param progress Where to print the progress once a second, or null for no progress.
+   * @throws IOException if the file can't be read.
+   */
+  public void replay(PgnReader reader, PrintStream progress) throws IOException {
+    long start = System.nanoTime();
+    long nextReport = start + PROGRESS_INTERVAL;
+    int token;
+
+    while ((token = reader.next()) != PgnReader.END) {
+      switch (token) {
+        case PgnReader.TAG :
+          // A tag after the moves of a game without a result starts the next game.
+          if (inMoves)
+            endGame(null);
+          readTag(reader.getTagName(), reader.getTagValue());
+          break;
+
+        case PgnReader.MOVE :
+          if (!inMoves)
+            startGame();
+          if (!skipping)
+            playMove(reader.getToken());
+          break;
+
+        case PgnReader.RESULT :
+          if (!inMoves)
+            startGame();
+          endGame(reader.getToken());
+          break;
+      }
+
+      // Check the clock only every few games, since reading it takes time too.
+      if (progress != null && (games & 255) == 0 && !inMoves && System.nanoTime() >= nextReport) {
+        printProgress(progress, reader, System.nanoTime() - start);
+        nextReport += PROGRESS_INTERVAL;
+      }
+    }
+    if (inMoves)
+      endGame(null);
+  }
+
+  /**
+   * Remembers the tags of the current game that the replay needs.
+   * @param name The name of the tag.
+   * @param value The value of the tag.
+   */
+  private void readTag(CharSequence name, CharSequence value) {
+    StringBuilder target = equals(name, "FEN") ? startFen : equals(name, "White") ? white
+                         : equals(name, "Black") ? black : null;
+    if (target != null) {
+      target.setLength(0);
+      target.append(value);
+    }
+  }
+
+  /** Sets up the position the current game starts from. */
+  private void startGame() {
+    inMoves = true;
+    skipping = false;
+    if (startFen.length() == 0) {
+      position.reset();
+      return;
+    }
+    try {
+      position.loadFen(startFen);
+    } catch (IllegalArgumentException e) {
+      reportIllegal("FEN", "not a valid starting position");
+    }
+  }
+
+  /**
+   * Plays a move of the current game, or reports it if it is illegal.
+   * @param san The move in Standard Algebraic Notation.
+   */
+  private void playMove(CharSequence san) {
+    int move = Move.parseSan(position, san, moves);
+    if (move == Move.NONE) {
+      reportIllegal(san, "illegal or ambiguous move in " + position.toFen());
+      return;
+    }
+    position.makeMove(move);
+    plies++;
+  }
+
+  /**
+   * Counts the current game and its result, then clears its tags.
+   * @param result The result token of the game, or null if it has none.
+   * @throws IOException if the game can't be written as a record.
+   */
+  private void endGame(CharSequence result) throws IOException {
+    int index = RESULTS.length;
+    for (int i = 0; result != null && i < RESULTS.length; i++)
+      if (equals(result, RESULTS[i]))
+        index = i;
+    resultCounts[index]++;
+
+    if (!skipping) {
+      int status = position.getStatus(moves);
+      if (status == Position.CHECKMATE)
+        checkmates++;
+      else if (status == Position.STALEMATE)
+        stalemates++;
+      if (writer != null)
+        writer.write((startFen.length() == 0) ? null : startFen, position, GameRecord.resultOf(result));
+    }
+
+    games++;
+    inMoves = false;
+    startFen.setLength(0);
+    white.setLength(0);
+    black.setLength(0);
+  }
+
+  /**
+   * Reports a problem with the current game and skips the rest of its moves.
+   * @param token The token of the problem.
+   * @param problem A description of the problem.
+   */
+  private void reportIllegal(CharSequence token, String problem) {
+    if (!skipping)
+      illegalGames++;
+    skipping = true;
+    if (report != null)
+      report.println("Game " + (games + 1) + " (" + white + " - " + black + "), move "
+                     + (position.getFullmoveNumber()) + (position.getTurn() == 0 ? "... " : ". ")
+                     + token + ": " + problem);
+  }
+
+  /**
+   * Prints how far through the file the replay is, and how fast it is going.
+   * @param out Where to print the progress.
+   * @param reader The reader of the file.
+   * @param nanos The time taken so far in nanoseconds.
+   */
+  private void printProgress(PrintStream out, PgnReader reader, long nanos) {
+    double seconds = nanos / 1e9;
+    long bytes = reader.getBytesRead();
+    String percent = (reader.getSize() > 0) ? String.format("%5.1f%% ", 100.0 * bytes / reader.getSize()) : "";
+    out.printf("%s%,d MB, %,.1f MB/s, %,d games, %,.0f games/s, %,.0f moves/s%n", percent, bytes >> 20,
+               bytes / seconds / (1 << 20), games, games / seconds, plies / seconds);
+  }
+
+  /**
+   * Prints the totals of the replay.
+   * @param out Where to print the totals.
+   * @param bytes The number of bytes read.
+   * @param nanos The time taken in nanoseconds.
+   */
+  public void printSummary(PrintStream out, long bytes, long nanos) {
+    double seconds = nanos / 1e9;
+    out.printf("%,d games, %,d moves, %,d bytes in %.3f s%n", games, plies, bytes, seconds);
+    out.printf("%,.1f MB/s, %,.0f games/s, %,.0f moves/s%n", bytes / seconds / (1 << 20), games / seconds,
+               plies / seconds);
+    out.printf("Games with an illegal move: %,d%n", illegalGames);
+    out.printf("Results: %,d 1-0, %,d 0-1, %,d 1/2-1/2, %,d unfinished, %,d missing%n", resultCounts[0],
+               resultCounts[1], resultCounts[2], resultCounts[3], resultCounts[4]);
+    out.printf("Ending on the board: %,d checkmates, %,d stalemates%n", checkmates, stalemates);
+  }
+
+  /**
+   * Returns the number of games replayed.
+   * @return The number of games.
+   */
+  public long getGames() {
+    return games;
+  }
+
+  /**
+   * Returns the number of games with an illegal move.
+   * @return The number of illegal games.
+   */
+  public long getIllegalGames() {
+    return illegalGames;
+  }
+
+  /**
+   * Returns whether or not a token holds the given text, without creating a String.
+   * @param token The token.
+   * @param text The text to compare with.
+   * @return True if the token and the text match.
+   */
+  private static boolean equals(CharSequence token, String text) {
+    if (token.length() != text.length())
+      return false;
+    for (int i = 0; i < text.length(); i++)
+      if (token.charAt(i) != text.charAt(i))
+        return false;
+    return true;
+  }
+}
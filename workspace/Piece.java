@@ -19,12 +19,21 @@ public abstract class Piece {
   /** The column of the piece on the chess board. */
   private int col;
 
+  /** The numerical value of each rank of piece, indexed by Position.PAWN through Position.KING. */
+  private static final int[] PIECE_VALUES = {0, 1, 3, 3, 5, 9, 0};
+
   /** The numerical value of the piece. */
   private int pieceValue;
 
-  /** The image representing the piece. */
+  /** The location of the image file representing the piece. */
+  private String iconFile;
+
+  /** The image representing the piece, scaled when first shown. */
   private ImageIcon icon;
 
+  /** The width and height the image was scaled to. */
+  private int iconSize;
+
   /** Indicator of whether or not the piece has moved. */
   private boolean hasMoved;
 
@@ -45,18 +54,24 @@ public abstract class Piece {
     hasMoved = false;
   }
 
-  /** Sets the image representation of the Piece.
+  /** Sets the image representation of the Piece. The image is only
+   * read once the Piece is shown.
    * @param file The location of the image file.
    */
   protected void setImageIcon(String file) {
-    int u = Game.getUnit();
-    icon = new ImageIcon(new ImageIcon(file).getImage().getScaledInstance(u, u, Image.SCALE_SMOOTH));
+    iconFile = file;
+    icon = null;
   }
 
   /** Returns the image representation of the Piece.
+   * @param size The width and height of the image in pixels.
    * @return The ImageIcon representing the look of the Piece.
    */
-  public ImageIcon getImageIcon() {
+  public ImageIcon getImageIcon(int size) {
+    if (icon == null || iconSize != size) {
+      icon = new ImageIcon(new ImageIcon(iconFile).getImage().getScaledInstance(size, size, Image.SCALE_SMOOTH));
+      iconSize = size;
+    }
     return icon;
   }
 
@@ -113,6 +128,22 @@ public abstract class Piece {
     return hasMoved;
   }
 
+  /**
+   * Returns the square index of the piece on the chess board.
+   * @return The square of the piece, from 0 to 63.
+   */
+  public int getSquare() {
+    return Position.square(row, col);
+  }
+
+  /**
+   * Returns the code of the piece as stored in a Position.
+   * @return The piece code, combining ownership and rank.
+   */
+  public int getCode() {
+    return Position.code(playerNumber, getType());
+  }
+
   /**
    * Returns the numerical value of the piece in points.
    * @return The numerical value of the piece.
@@ -121,14 +152,40 @@ public abstract class Piece {
     return pieceValue;
   }
 
+  /**
+   * Returns the numerical value of a rank of piece, without needing an
+   * instance of the piece. The king has no value, since it is never traded.
+   * @param type The rank of the piece, Position.PAWN through Position.KING.
+   * @return The value of the rank.
+   */
+  public static int getPieceValue(int type) {
+    return PIECE_VALUES[type];
+  }
+
   /**
    * Checks whether or not the proposed move is valid.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public abstract boolean moveIsValid(int row, int col, Board board);
+  public abstract boolean moveIsValid(int row, int col, Position position);
+
+  /**
+   * Adds every move the piece can make according to its own movement
+   * rules, ignoring checks, into a buffer supplied by the caller.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public abstract int generateMoves(Position position, int[] moves, int count);
+
+  /**
+   * Returns the rank of the piece, as defined in the Position class.
+   * @return The rank of the piece.
+   */
+  public abstract int getType();
 
   /**
    * Returns the String value representation of the piece,
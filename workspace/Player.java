@@ -27,6 +27,12 @@ public class Player extends JLabel {
   /** The player's ID: 0 for top player, 1 for bottom player. */
   private int playerNumber;
 
+  /** A reusable buffer for the moves generated for the player's pieces. */
+  private int[] moveBuffer;
+
+  /** The game the player is playing. */
+  private GameSession session;
+
   /**
    * This is the constructor for the Player class, when called it creates a new 
    * player object. This constructor provides the players with "0" points and initiates an arrayList
@@ -37,9 +43,26 @@ public class Player extends JLabel {
   public Player(int pn) {
     playerNumber = pn;
     name = "Player";
+    moveBuffer = new int[Move.MAX_MOVES];
     reset();
   }
 
+  /**
+   * Returns the game the player is playing.
+   * @return The GameSession of the player, or null before it joins a game.
+   */
+  public GameSession getSession() {
+    return session;
+  }
+
+  /**
+   * Sets the game the player is playing.
+   * @param session The GameSession the player joins.
+   */
+  public void setSession(GameSession session) {
+    this.session = session;
+  }
+
   /**
    * This method returns the player's name when called.
    * @return The name of the player.
@@ -71,7 +94,7 @@ public class Player extends JLabel {
     while (!done) {
       // Prints all the necessary information.
       System.out.println();
-      Game.printContents();
+      board.getSession().printContents();
       System.out.println("\nIt is now " + getName() + "'s turn!");
 
       try {
@@ -110,12 +133,14 @@ public class Player extends JLabel {
 
         // Case 3: The tile contains the player's piece.
         else {
+          int encoded = findMove(pieceToMove, board, move[1][0], move[1][1]);
+
           // Subcase 1: The move is invalid.
-          if (!pieceToMove.moveIsValid(move[1][0], move[1][1], board))
+          if (encoded == Move.NONE)
             System.out.println("\nInvalid location!");
 
           // Subcase 2: The move puts the player's king in check.
-          else if (board.checkExists(pieceToMove, move[1][0], move[1][1]))
+          else if (board.findLegalMove(move[0][0], move[0][1], move[1][0], move[1][1]) == Move.NONE)
             System.out.println("\nYou can't leave your king in check!");
 
           // Subcase 3: The move is valid.
@@ -130,6 +155,38 @@ public class Player extends JLabel {
     return move;
   }
 
+  /**
+   * Prompts the player for a move, then returns it as the encoded legal
+   * move of the board. A pawn reaching the far end is promoted to a queen.
+   * @param board The chess board being played.
+   * @return The encoded move.
+   */
+  public int chooseMove(Board board) {
+    int[][] move = getMove(board);
+    return board.findLegalMove(move[0][0], move[0][1], move[1][0], move[1][1]);
+  }
+
+  /**
+   * Returns the first move generated for the given piece which sends it
+   * to the given row and column, without considering checks.
+   * @param piece The piece to move.
+   * @param board The chess board being played.
+   * @param row The row to send the piece to.
+   * @param col The column to send the piece to.
+   * @return The encoded move, or Move.NONE if the piece can't reach the tile.
+   */
+  private int findMove(Piece piece, Board board, int row, int col) {
+    if (!Position.inBounds(row, col))
+      return Move.NONE;
+
+    int to = Position.square(row, col);
+    int count = piece.generateMoves(board.getPosition(), moveBuffer, 0);
+    for (int i = 0; i < count; i++)
+      if (Move.to(moveBuffer[i]) == to)
+        return moveBuffer[i];
+    return Move.NONE;
+  }
+
   /**
    * This is a void type method that allows the player to change the name of the player
    * object when called.
@@ -253,7 +310,7 @@ public class Player extends JLabel {
     super.paintComponent(g);
 
     int x, y; // Coordinates of the image on the content pane.
-    int u = Game.getUnit();
+    int u = session.getUnit();
     int x0 = u * (9 * playerNumber + 1); // Initial x-coordinate.
     int y0 = u * (7 * playerNumber + 2); // Initial y-coordinate.
     int xs = u * (2 * playerNumber - 1); // x- Scale factor.
@@ -262,7 +319,7 @@ public class Player extends JLabel {
     for (int n = 0; n < capturedPieces.size(); n++) {
       x = x0 + (n / 8) * xs;
       y = y0 + (n % 8) * ys;
-      capturedPieces.get(n).getImageIcon().paintIcon(this, g, x, y);
+      capturedPieces.get(n).getImageIcon(u).paintIcon(this, g, x, y);
     }
   }
 }
\ No newline at end of file
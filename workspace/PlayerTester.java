@@ -10,11 +10,11 @@ public class PlayerTester
 {
   public static void main(String[] args) {
     Game game = new Game(800);
-    Board board = game.getBoard();
+    Board board = game.getSession().getBoard();
     Scanner scan = new Scanner(System.in);
 
     // Creating a new player, ID of 1 because the bottom player starts first.
-    Player player = game.getPlayer(1);
+    Player player = game.getSession().getPlayer(1);
 
     // Testing getMove()
     System.out.println("[1] Testing getMove(). Please enter a valid or invalid move.");
@@ -0,0 +1,1111 @@
+import java.util.Arrays;
+
+/** Represents the arrangement of pieces on a Chess board as plain data.
+ * Each of the 64 squares holds a piece code which combines the ownership
+ * ID and the rank of the piece, so that moves can be tried and taken back
+ * without touching any of the graphical components of the game.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class Position {
+  /* # DATA STRUCTURES # */
+
+  /** The code of an empty square. */
+  public static final int EMPTY = 0;
+
+  /** The rank of a pawn. */
+  public static final int PAWN = 1;
+
+  /** The rank of a knight. */
+  public static final int KNIGHT = 2;
+
+  /** The rank of a bishop. */
+  public static final int BISHOP = 3;
+
+  /** The rank of a rook. */
+  public static final int ROOK = 4;
+
+  /** The rank of a queen. */
+  public static final int QUEEN = 5;
+
+  /** The rank of a king. */
+  public static final int KING = 6;
+
+  /** The castling right of the top player with the left rook. */
+  public static final int TOP_LEFT = 1;
+
+  /** The castling right of the top player with the right rook. */
+  public static final int TOP_RIGHT = 2;
+
+  /** The castling right of the bottom player with the left rook. */
+  public static final int BOTTOM_LEFT = 4;
+
+  /** The castling right of the bottom player with the right rook. */
+  public static final int BOTTOM_RIGHT = 8;
+
+  /** The status of a game which hasn't ended. */
+  public static final int ONGOING = 0;
+
+  /** The status of a game in which the player to move is checkmated. */
+  public static final int CHECKMATE = 1;
+
+  /** The status of a game in which the player to move has no legal move but isn't in check. */
+  public static final int STALEMATE = 2;
+
+  /** The status of a game in which neither player has enough pieces left to checkmate. */
+  public static final int INSUFFICIENT_MATERIAL = 3;
+
+  /** The status of a game with 50 moves by each player since the last capture or pawn move. */
+  public static final int FIFTY_MOVE_RULE = 4;
+
+  /** The status of a game in which the same position has occurred three times. */
+  public static final int REPETITION = 5;
+
+  /** The description of each status of a game. */
+  private static final String[] STATUS_NAMES = {"Ongoing", "Checkmate", "Stalemate",
+      "Insufficient material", "Fifty-move rule", "Threefold repetition"};
+
+  /** The number of buckets counting the keys of the remembered positions, a power of two. */
+  private static final int COUNT_BUCKETS = 4096;
+
+  /** The letter of each piece code in Forsyth-Edwards Notation, lowercase for the top player. */
+  private static final String FEN_LETTERS = " pnbrqk  PNBRQK ";
+
+  /** The piece code of each letter in Forsyth-Edwards Notation, or EMPTY for any other character. */
+  private static final int[] FEN_CODES = new int[128];
+
+  /** The castling rights left after a piece moves from or onto each square. */
+  private static final int[] CASTLE_MASKS = new int[64];
+
+  static {
+    for (int code = 0; code < FEN_LETTERS.length(); code++)
+      if (FEN_LETTERS.charAt(code) != ' ')
+        FEN_CODES[FEN_LETTERS.charAt(code)] = code;
+
+    for (int sq = 0; sq < 64; sq++)
+      CASTLE_MASKS[sq] = TOP_LEFT | TOP_RIGHT | BOTTOM_LEFT | BOTTOM_RIGHT;
+    CASTLE_MASKS[square(0, 0)] &= ~TOP_LEFT;
+    CASTLE_MASKS[square(0, 7)] &= ~TOP_RIGHT;
+    CASTLE_MASKS[square(0, 4)] &= ~(TOP_LEFT | TOP_RIGHT);
+    CASTLE_MASKS[square(7, 0)] &= ~BOTTOM_LEFT;
+    CASTLE_MASKS[square(7, 7)] &= ~BOTTOM_RIGHT;
+    CASTLE_MASKS[square(7, 4)] &= ~(BOTTOM_LEFT | BOTTOM_RIGHT);
+  }
+
+  /** The piece codes of each square, indexed by row * 8 + column. */
+  private int[] squares;
+
+  /** The squares of the top and bottom players' kings, or -1 if missing. */
+  private int[] kingSquares;
+
+  /** The bitboard of squares holding each piece code. */
+  private long[] bitboards;
+
+  /** The bitboard of squares holding the top and bottom players' pieces. */
+  private long[] occupancy;
+
+  /** The ID of the player to move: 0 for top player, 1 for bottom player. */
+  private int turn;
+
+  /** The castling rights that remain, as a combination of TOP_LEFT through BOTTOM_RIGHT. */
+  private int castlingRights;
+
+  /** The square a pawn skipped over with a double step on the last move, or -1. */
+  private int enPassantSquare;
+
+  /** The number of moves since the last capture or pawn move. */
+  private int halfmoveClock;
+
+  /** The number of the full move being played, starting at 1 and increasing after the top player moves. */
+  private int fullmoveNumber;
+
+  /** The Zobrist hash key of the position, kept up to date as it changes. */
+  private long key;
+
+  /**
+   * The undo stack of every move made. Each entry packs the move into bits 0-15,
+   * the captured piece code into bits 16-19, the previous castling rights into
+   * bits 20-23, the previous en passant square plus one into bits 24-30, and the
+   * previous halfmove clock into bits 32-47. Bit 48 is set if the attack maps
+   * saved for the ply are valid.
+   */
+  private long[] history;
+
+  /** The number of entries on the undo stack. */
+  private int ply;
+
+  /** The squares attacked by the top and bottom players' pieces. */
+  private long[] attackMaps;
+
+  /** Whether or not the attack maps match the current arrangement of pieces. */
+  private boolean attackMapsValid;
+
+  /** The attack maps saved before each move, two entries per ply. */
+  private long[] attackHistory;
+
+  /** The hash key of the position before each move on the undo stack. */
+  private long[] keyHistory;
+
+  /**
+   * The number of keys on the key history falling into each bucket of their lowest
+   * bits. A position whose bucket is empty can't be a repetition, so most positions
+   * are ruled out by a single lookup before the key history is searched.
+   */
+  private int[] keyCounts;
+
+  /** Constructor for the Position class. Creates an empty position. */
+  public Position() {
+    squares = new int[64];
+    history = new long[256];
+    attackMaps = new long[2];
+    attackHistory = new long[2 * history.length];
+    keyHistory = new long[history.length];
+    keyCounts = new int[COUNT_BUCKETS];
+    kingSquares = new int[2];
+    bitboards = new long[16];
+    occupancy = new long[2];
+    clear();
+  }
+
+  /**
+   * Copy constructor for the Position class. Creates an independent copy
+   * of another position, including the moves that can be taken back, so
+   * that the copy can be searched while the original is left untouched.
+   * @param other The position to copy.
+   */
+  public Position(Position other) {
+    squares = other.squares.clone();
+    history = other.history.clone();
+    attackMaps = other.attackMaps.clone();
+    attackHistory = other.attackHistory.clone();
+    keyHistory = other.keyHistory.clone();
+    keyCounts = other.keyCounts.clone();
+    kingSquares = other.kingSquares.clone();
+    bitboards = other.bitboards.clone();
+    occupancy = other.occupancy.clone();
+    turn = other.turn;
+    castlingRights = other.castlingRights;
+    enPassantSquare = other.enPassantSquare;
+    halfmoveClock = other.halfmoveClock;
+    fullmoveNumber = other.fullmoveNumber;
+    key = other.key;
+    ply = other.ply;
+    attackMapsValid = other.attackMapsValid;
+  }
+
+  /**
+   * Returns the square index of the given row and column.
+   * @param row The row of the square.
+   * @param col The column of the square.
+   * @return The index of the square, from 0 to 63.
+   */
+  public static int square(int row, int col) {
+    return row * 8 + col;
+  }
+
+  /**
+   * Returns the row of the given square index.
+   * @param square The index of the square.
+   * @return The row of the square.
+   */
+  public static int rowOf(int square) {
+    return square >> 3;
+  }
+
+  /**
+   * Returns the column of the given square index.
+   * @param square The index of the square.
+   * @return The column of the square.
+   */
+  public static int colOf(int square) {
+    return square & 7;
+  }
+
+  /**
+   * Determines whether or not the given row and column lie on the board.
+   * @param row The row to check.
+   * @param col The column to check.
+   * @return Whether or not the row and column are in bounds.
+   */
+  public static boolean inBounds(int row, int col) {
+    return row >= 0 && row < 8 && col >= 0 && col < 8;
+  }
+
+  /**
+   * Returns the piece code for a piece of the given rank and owner.
+   * @param player The ownership ID of the piece.
+   * @param type The rank of the piece, PAWN through KING.
+   * @return The piece code.
+   */
+  public static int code(int player, int type) {
+    return (player << 3) | type;
+  }
+
+  /**
+   * Returns the rank of the given piece code.
+   * @param code The piece code.
+   * @return The rank of the piece, or EMPTY.
+   */
+  public static int typeOf(int code) {
+    return code & 7;
+  }
+
+  /**
+   * Returns the ownership ID of the given piece code.
+   * @param code The piece code, which must not be EMPTY.
+   * @return The ownership ID of the piece.
+   */
+  public static int playerOf(int code) {
+    return code >> 3;
+  }
+
+  /** Removes every piece from the position. */
+  public void clear() {
+    for (int sq = 0; sq < 64; sq++)
+      squares[sq] = EMPTY;
+    for (int code = 0; code < 16; code++)
+      bitboards[code] = 0L;
+    occupancy[0] = 0L;
+    occupancy[1] = 0L;
+    kingSquares[0] = -1;
+    kingSquares[1] = -1;
+    turn = 1;
+    castlingRights = 0;
+    enPassantSquare = -1;
+    halfmoveClock = 0;
+    fullmoveNumber = 1;
+    key = 0L; // The bottom player to move with no castling rights has no key of its own.
+
+    // Empty only the buckets the key history filled, rather than every bucket.
+    while (ply > 0)
+      keyCounts[(int) keyHistory[--ply] & (COUNT_BUCKETS - 1)]--;
+    attackMapsValid = false;
+  }
+
+  /** Clears the position, then sets up the initial arrangement of pieces. */
+  public void reset() {
+    int[] backRank = {ROOK, KNIGHT, BISHOP, QUEEN, KING, BISHOP, KNIGHT, ROOK};
+
+    clear();
+    for (int col = 0; col < 8; col++) {
+      put(code(0, backRank[col]), square(0, col));
+      put(code(0, PAWN), square(1, col));
+      put(code(1, PAWN), square(6, col));
+      put(code(1, backRank[col]), square(7, col));
+    }
+    setCastlingRights(TOP_LEFT | TOP_RIGHT | BOTTOM_LEFT | BOTTOM_RIGHT);
+  }
+
+  /**
+   * Clears the position, then sets it up from Forsyth-Edwards Notation, e.g.
+   * "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1". The first rank
+   * listed is the top row, white is the bottom player, and every field after
+   * the pieces is optional. The notation is read one character at a time, so
+   * that loading a position allocates nothing.
+   * @param fen The position in Forsyth-Edwards Notation.
+   * @throws IllegalArgumentException if the notation is not a valid position.
+   */
+  public void loadFen(CharSequence fen) {
+    clear();
+    int length = fen.length();
+    int i = 0;
+    int row = 0;
+    int col = 0;
+
+    // Step 1: The pieces, from the top row down, separated by slashes.
+    for (; i < length && fen.charAt(i) != ' '; i++) {
+      char c = fen.charAt(i);
+      int code = (c < 128) ? FEN_CODES[c] : EMPTY;
+
+      if (c == '/' && col == 8 && row < 7) {
+        row++;
+        col = 0;
+      } else if (c >= '1' && c <= '8' && col + c - '0' <= 8)
+        col += c - '0';
+      else if (code != EMPTY && col < 8)
+        put(code, square(row, col++));
+      else
+        throw new IllegalArgumentException("Not a valid position: " + fen);
+    }
+    if (row != 7 || col != 8)
+      throw new IllegalArgumentException("Not a valid position: " + fen);
+
+    // Step 2: The player to move.
+    if (++i < length)
+      setTurn((fen.charAt(i++) == 'b') ? 0 : 1);
+
+    // Step 3: The castling rights.
+    int rights = 0;
+    for (i++; i < length && fen.charAt(i) != ' '; i++) {
+      char c = fen.charAt(i);
+      if (c == 'K' || c == 'Q' || c == 'k' || c == 'q')
+        rights |= castleRight(Character.isUpperCase(c) ? 1 : 0, Character.toLowerCase(c) == 'q');
+    }
+    setCastlingRights(rights);
+
+    // Step 4: The en passant square, kept only if an enemy pawn could capture onto it.
+    if (++i + 1 < length && fen.charAt(i) != '-') {
+      int epCol = fen.charAt(i) - 'a';
+      int epRow = '8' - fen.charAt(i + 1);
+      if (inBounds(epRow, epCol)
+          && (Bitboards.pawnAttacks(1 - turn, square(epRow, epCol)) & bitboards[code(turn, PAWN)]) != 0)
+        setEnPassantSquare(square(epRow, epCol));
+    }
+    while (i < length && fen.charAt(i) != ' ')
+      i++;
+
+    // Step 5: The halfmove clock and the fullmove number.
+    int halfmoves = 0;
+    for (i++; i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++)
+      halfmoves = Math.min(halfmoves * 10 + fen.charAt(i) - '0', 0xFFFF);
+    int fullmoves = 0;
+    for (i++; i < length && fen.charAt(i) >= '0' && fen.charAt(i) <= '9'; i++)
+      fullmoves = Math.min(fullmoves * 10 + fen.charAt(i) - '0', 0xFFFFFF);
+    halfmoveClock = halfmoves;
+    fullmoveNumber = Math.max(fullmoves, 1);
+  }
+
+  /**
+   * Returns the position in Forsyth-Edwards Notation, which loadFen reads back
+   * into the same position. An en passant square is only written if an enemy
+   * pawn could capture onto it.
+   * @return The position in Forsyth-Edwards Notation.
+   */
+  public String toFen() {
+    return appendFen(new StringBuilder(90)).toString();
+  }
+
+  /**
+   * Appends the position in Forsyth-Edwards Notation to a StringBuilder,
+   * so that many positions can be written out with a single buffer.
+   * @param out The StringBuilder to append to.
+   * @return The same StringBuilder.
+   */
+  public StringBuilder appendFen(StringBuilder out) {
+    // Step 1: The pieces, from the top row down, counting runs of empty tiles.
+    for (int row = 0; row < 8; row++) {
+      int empty = 0;
+      for (int col = 0; col < 8; col++) {
+        int code = squares[square(row, col)];
+        if (code == EMPTY)
+          empty++;
+        else {
+          if (empty > 0)
+            out.append((char) ('0' + empty));
+          out.append(FEN_LETTERS.charAt(code));
+          empty = 0;
+        }
+      }
+      if (empty > 0)
+        out.append((char) ('0' + empty));
+      if (row < 7)
+        out.append('/');
+    }
+
+    // Step 2: The player to move, the castling rights and the en passant square.
+    out.append((turn == 0) ? " b " : " w ");
+    if (castlingRights == 0)
+      out.append('-');
+    if ((castlingRights & BOTTOM_RIGHT) != 0)
+      out.append('K');
+    if ((castlingRights & BOTTOM_LEFT) != 0)
+      out.append('Q');
+    if ((castlingRights & TOP_RIGHT) != 0)
+      out.append('k');
+    if ((castlingRights & TOP_LEFT) != 0)
+      out.append('q');
+    out.append(' ');
+    if (enPassantSquare < 0)
+      out.append('-');
+    else
+      out.append((char) ('a' + colOf(enPassantSquare))).append((char) ('8' - rowOf(enPassantSquare)));
+
+    // Step 3: The halfmove clock and the fullmove number.
+    return out.append(' ').append(halfmoveClock).append(' ').append(fullmoveNumber);
+  }
+
+  /**
+   * Returns the piece code on the given square.
+   * @param square The index of the square.
+   * @return The piece code on the square.
+   */
+  public int getCode(int square) {
+    return squares[square];
+  }
+
+  /**
+   * Returns the piece code on the given row and column, or EMPTY if
+   * the row or column is out of bounds.
+   * @param row The row of the square.
+   * @param col The column of the square.
+   * @return The piece code on the square.
+   */
+  public int getCode(int row, int col) {
+    if (!inBounds(row, col))
+      return EMPTY;
+
+    return squares[square(row, col)];
+  }
+
+  /**
+   * Determines whether or not the given square is empty.
+   * @param square The index of the square.
+   * @return Whether or not the square is empty.
+   */
+  public boolean isEmpty(int square) {
+    return squares[square] == EMPTY;
+  }
+
+  /**
+   * Returns the ID of the player whose turn it is.
+   * @return The player to move.
+   */
+  public int getTurn() {
+    return turn;
+  }
+
+  /**
+   * Sets the ID of the player whose turn it is.
+   * @param player The player to move.
+   */
+  public void setTurn(int player) {
+    key ^= Zobrist.turn(turn) ^ Zobrist.turn(player);
+    turn = player;
+  }
+
+  /**
+   * Returns the castling rights that remain.
+   * @return A combination of TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, and BOTTOM_RIGHT.
+   */
+  public int getCastlingRights() {
+    return castlingRights;
+  }
+
+  /**
+   * Sets the castling rights that remain.
+   * @param rights A combination of TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, and BOTTOM_RIGHT.
+   */
+  public void setCastlingRights(int rights) {
+    key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+    castlingRights = rights;
+  }
+
+  /**
+   * Returns the castling right of the given player on the given side.
+   * @param player The ownership ID of the king.
+   * @param left True for the left rook, false for the right rook.
+   * @return The castling right, TOP_LEFT through BOTTOM_RIGHT.
+   */
+  public static int castleRight(int player, boolean left) {
+    return 1 << (player * 2 + (left ? 0 : 1));
+  }
+
+  /**
+   * Returns the square a pawn skipped over with a double step on the
+   * last move, which an enemy pawn may capture onto en passant.
+   * @return The en passant square, or -1 if there is none.
+   */
+  public int getEnPassantSquare() {
+    return enPassantSquare;
+  }
+
+  /**
+   * Sets the square a pawn skipped over on the last move.
+   * @param square The en passant square, or -1 if there is none.
+   */
+  public void setEnPassantSquare(int square) {
+    key ^= Zobrist.enPassant(enPassantSquare) ^ Zobrist.enPassant(square);
+    enPassantSquare = square;
+  }
+
+  /**
+   * Returns the number of moves made since the last capture or pawn move.
+   * @return The halfmove clock.
+   */
+  public int getHalfmoveClock() {
+    return halfmoveClock;
+  }
+
+  /**
+   * Sets the number of moves made since the last capture or pawn move.
+   * @param clock The halfmove clock.
+   */
+  public void setHalfmoveClock(int clock) {
+    halfmoveClock = clock;
+  }
+
+  /**
+   * Returns the number of the full move being played, which starts at 1
+   * and increases each time the top player moves.
+   * @return The fullmove number.
+   */
+  public int getFullmoveNumber() {
+    return fullmoveNumber;
+  }
+
+  /**
+   * Sets the number of the full move being played.
+   * @param number The fullmove number, at least 1.
+   */
+  public void setFullmoveNumber(int number) {
+    fullmoveNumber = number;
+  }
+
+  /**
+   * Returns the Zobrist hash key of the position, which identifies the
+   * arrangement of pieces, the player to move, the castling rights, and
+   * the column of the en passant square.
+   * @return The 64-bit hash key.
+   */
+  public long getKey() {
+    return key;
+  }
+
+  /**
+   * Returns the number of moves on the undo stack.
+   * @return The number of moves that can be taken back.
+   */
+  public int getPly() {
+    return ply;
+  }
+
+  /**
+   * Returns a move on the undo stack.
+   * @param index The index of the move, from 0 for the first move made to getPly() - 1 for the last.
+   * @return The encoded move.
+   */
+  public int getMove(int index) {
+    return (int) (history[index] & 0xFFFF);
+  }
+
+  /**
+   * Returns the hash key of the position before a move on the undo stack.
+   * @param index The index of the move, from 0 for the first move made to getPly() - 1 for the last.
+   * @return The 64-bit hash key.
+   */
+  public long getHistoryKey(int index) {
+    return keyHistory[index];
+  }
+
+  /**
+   * Returns the bitboard of every square holding the given piece code.
+   * @param code The piece code.
+   * @return The bitboard of the piece code.
+   */
+  public long getBitboard(int code) {
+    return bitboards[code];
+  }
+
+  /**
+   * Returns the bitboard of every square holding the given player's pieces.
+   * @param player The ownership ID of the pieces.
+   * @return The bitboard of the player's pieces.
+   */
+  public long getOccupancy(int player) {
+    return occupancy[player];
+  }
+
+  /**
+   * Returns the bitboard of every occupied square.
+   * @return The bitboard of all pieces.
+   */
+  public long getOccupied() {
+    return occupancy[0] | occupancy[1];
+  }
+
+  /**
+   * Returns the square of the given player's king.
+   * @param player The ownership ID of the king.
+   * @return The square of the king, or -1 if it is not on the board.
+   */
+  public int getKingSquare(int player) {
+    return kingSquares[player];
+  }
+
+  /**
+   * Places a piece code onto a square, then returns the code that was
+   * previously there. No other state of the position is changed.
+   * @param code The piece code to place, or EMPTY to clear the square.
+   * @param square The index of the square.
+   * @return The piece code that was removed from the square.
+   */
+  public int put(int code, int square) {
+    int previous = squares[square];
+    long b = 1L << square;
+
+    key ^= Zobrist.piece(previous, square) ^ Zobrist.piece(code, square);
+    if (previous != EMPTY) {
+      bitboards[previous] &= ~b;
+      occupancy[playerOf(previous)] &= ~b;
+      if (typeOf(previous) == KING && kingSquares[playerOf(previous)] == square)
+        kingSquares[playerOf(previous)] = -1;
+    }
+    if (code != EMPTY) {
+      bitboards[code] |= b;
+      occupancy[playerOf(code)] |= b;
+      if (typeOf(code) == KING)
+        kingSquares[playerOf(code)] = square;
+    }
+    attackMapsValid = false;
+
+    squares[square] = code;
+    return previous;
+  }
+
+  /**
+   * Moves the piece on one square to another without applying any of the
+   * special rules of a move, then returns the code of the piece that was
+   * replaced. Castling rights involving either square are lost, and the
+   * move cannot be taken back. Moving a piece onto its own square leaves
+   * the position unchanged.
+   * @param from The square of the piece to move.
+   * @param to The square to move the piece to.
+   * @return The piece code that was removed from the second square.
+   */
+  public int relocate(int from, int to) {
+    if (from == to)
+      return EMPTY;
+
+    int previous = put(squares[from], to);
+    put(EMPTY, from);
+    setCastlingRights(castlingRights & CASTLE_MASKS[from] & CASTLE_MASKS[to]);
+    setEnPassantSquare(-1);
+    return previous;
+  }
+
+  /**
+   * Makes a move generated for this position and pushes everything needed
+   * to take it back onto the undo stack. A king moving two tiles castles,
+   * a pawn moving onto the en passant square captures the pawn beside it,
+   * and a promotion replaces the pawn. The turn passes to the other player.
+   * @param move The encoded move to make.
+   */
+  public void makeMove(int move) {
+    int from = Move.from(move);
+    int to = Move.to(move);
+    int code = squares[from];
+    int type = typeOf(code);
+    int captured = squares[to];
+    int capturedSquare = to;
+
+    // An en passant capture takes the pawn beside the moving pawn's tile.
+    if (type == PAWN && to == enPassantSquare) {
+      capturedSquare = to + ((playerOf(code) == 0) ? -8 : 8);
+      captured = squares[capturedSquare];
+    }
+
+    // Save the state that the move cannot recover by itself.
+    if (ply == history.length) {
+      history = Arrays.copyOf(history, 2 * ply);
+      attackHistory = Arrays.copyOf(attackHistory, 4 * ply);
+      keyHistory = Arrays.copyOf(keyHistory, 2 * ply);
+    }
+    attackHistory[2 * ply] = attackMaps[0];
+    attackHistory[2 * ply + 1] = attackMaps[1];
+    keyHistory[ply] = key;
+    keyCounts[(int) key & (COUNT_BUCKETS - 1)]++;
+    history[ply++] = (move & 0xFFFFL) | ((long) captured << 16) | ((long) castlingRights << 20)
+                   | ((long) (enPassantSquare + 1) << 24) | ((long) halfmoveClock << 32)
+                   | (attackMapsValid ? 1L << 48 : 0L);
+
+    // Move the piece, removing any captured piece and applying a promotion.
+    if (captured != EMPTY)
+      put(EMPTY, capturedSquare);
+    put(EMPTY, from);
+    put((Move.promotion(move) != EMPTY) ? code(playerOf(code), Move.promotion(move)) : code, to);
+
+    // A castle: move the rook over to the other side of the king.
+    if (type == KING && (to - from == 2 || from - to == 2)) {
+      int rookFrom = (to < from) ? from - 4 : from + 3;
+      put(put(EMPTY, rookFrom), (from + to) / 2);
+    }
+
+    // A double step only leaves an en passant square if an enemy pawn could capture onto it,
+    // so that positions differing only in an unusable en passant square share a key.
+    int skipped = (from + to) / 2;
+    boolean doubleStep = type == PAWN && (to - from == 16 || from - to == 16)
+        && (Bitboards.pawnAttacks(playerOf(code), skipped) & bitboards[code(1 - playerOf(code), PAWN)]) != 0;
+
+    setCastlingRights(castlingRights & CASTLE_MASKS[from] & CASTLE_MASKS[to]);
+    setEnPassantSquare(doubleStep ? skipped : -1);
+    halfmoveClock = (type == PAWN || captured != EMPTY) ? 0 : halfmoveClock + 1;
+    if (turn == 0)
+      fullmoveNumber++;
+    setTurn(1 - turn);
+  }
+
+  /** Takes back the last move made with makeMove, restoring the position exactly. */
+  public void unmakeMove() {
+    long entry = history[--ply];
+    int move = (int) (entry & 0xFFFF);
+    keyCounts[(int) keyHistory[ply] & (COUNT_BUCKETS - 1)]--;
+    int from = Move.from(move);
+    int to = Move.to(move);
+    int captured = (int) ((entry >>> 16) & 15);
+
+    setCastlingRights((int) ((entry >>> 20) & 15));
+    setEnPassantSquare((int) ((entry >>> 24) & 127) - 1);
+    halfmoveClock = (int) ((entry >>> 32) & 0xFFFF);
+    setTurn(1 - turn);
+    if (turn == 0)
+      fullmoveNumber--;
+
+    // Move the piece back, turning a promoted piece back into a pawn.
+    int code = put(EMPTY, to);
+    if (Move.promotion(move) != EMPTY)
+      code = code(playerOf(code), PAWN);
+    put(code, from);
+
+    // Put back any captured piece, beside the pawn's tile for an en passant capture.
+    if (captured != EMPTY)
+      put(captured, (typeOf(code) == PAWN && to == enPassantSquare) ? to + ((playerOf(code) == 0) ? -8 : 8) : to);
+
+    // A castle: move the rook back into its corner.
+    if (typeOf(code) == KING && (to - from == 2 || from - to == 2)) {
+      int rookFrom = (to < from) ? from - 4 : from + 3;
+      put(put(EMPTY, (from + to) / 2), rookFrom);
+    }
+
+    // Restore the attack maps of the position before the move.
+    attackMaps[0] = attackHistory[2 * ply];
+    attackMaps[1] = attackHistory[2 * ply + 1];
+    attackMapsValid = ((entry >>> 48) & 1) != 0;
+  }
+
+  /**
+   * Determines whether or not a move generated for this position would leave
+   * the moving player's king out of check, by making and taking back the move.
+   * @param move The encoded move to test.
+   * @return Whether or not the move is legal.
+   */
+  public boolean isLegal(int move) {
+    int player = playerOf(squares[Move.from(move)]);
+
+    makeMove(move);
+    boolean legal = !inCheck(player);
+    unmakeMove();
+    return legal;
+  }
+
+  /**
+   * Determines whether or not every square strictly between two squares
+   * on the same row, column, or diagonal is empty.
+   * @param from The first square.
+   * @param to The second square, aligned with the first.
+   * @return Whether or not the path between the squares is clear.
+   */
+  public boolean isPathClear(int from, int to) {
+    return (Bitboards.between(from, to) & getOccupied()) == 0;
+  }
+
+  /**
+   * Checks whether or not the piece on the first square may move to the
+   * second square according to its own movement rules, ignoring checks.
+   * @param from The square of the piece to move.
+   * @param to The square to move the piece to.
+   * @return True if the move is valid, false if not.
+   */
+  public boolean canMove(int from, int to) {
+    switch (typeOf(squares[from])) {
+      case PAWN : return Pawn.canMove(this, from, to);
+      case KNIGHT : return Knight.canMove(this, from, to);
+      case BISHOP : return Bishop.canMove(this, from, to);
+      case ROOK : return Rook.canMove(this, from, to);
+      case QUEEN : return Queen.canMove(this, from, to);
+      case KING : return King.canMove(this, from, to);
+      default : return false;
+    }
+  }
+
+  /**
+   * Adds every move the given player's pieces can make according to their
+   * own movement rules, ignoring checks, into a buffer supplied by the caller.
+   * @param player The ownership ID of the player to move.
+   * @param moves The buffer to fill, at least Move.MAX_MOVES long.
+   * @return The number of moves in the buffer.
+   */
+  public int generateMoves(int player, int[] moves) {
+    int count = 0;
+    long pieces = occupancy[player];
+
+    while (pieces != 0) {
+      int from = Long.numberOfTrailingZeros(pieces);
+      pieces &= pieces - 1;
+      switch (typeOf(squares[from])) {
+        case PAWN : count = Pawn.generate(this, from, moves, count);
+        break;
+        case KNIGHT : count = Knight.generate(this, from, moves, count);
+        break;
+        case BISHOP : count = Bishop.generate(this, from, moves, count);
+        break;
+        case ROOK : count = Rook.generate(this, from, moves, count);
+        break;
+        case QUEEN : count = Queen.generate(this, from, moves, count);
+        break;
+        case KING : count = King.generate(this, from, moves, count);
+        break;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Fills a buffer supplied by the caller with every strictly legal move of
+   * the player whose turn it is. The pieces giving check and the pieces pinned
+   * to the king are found up front, so that a move only needs a few bit tests:
+   * in double check only the king may move, in single check every other piece
+   * must capture the checking piece or step in between, and a pinned piece may
+   * only move along the line of its pin. The king itself may not step onto an
+   * attacked tile, which is tested with the king taken off the board so that
+   * it cannot hide behind itself. Only an en passant capture, which removes
+   * two pieces from a row at once, is tested by making the move.
+   * @param moves The buffer to fill, at least Move.MAX_MOVES long.
+   * @return The number of legal moves in the buffer.
+   */
+  public int generateLegalMoves(int[] moves) {
+    int player = turn;
+    int king = kingSquares[player];
+
+    // Without a king, every move is legal.
+    if (king < 0)
+      return generateMoves(player, moves);
+
+    long occupied = getOccupied();
+    long checkers = attackersTo(king, occupied, 1 - player);
+    long pinned = getPinnedPieces(player);
+
+    // Step 1: In double check only the king may move; otherwise generate every move.
+    int count = (Long.bitCount(checkers) > 1) ? King.generate(this, king, moves, 0) : generateMoves(player, moves);
+
+    // Step 2: In single check, a move must capture the checking piece or block it.
+    long evasions = ~0L;
+    if (checkers != 0)
+      evasions = checkers | Bitboards.between(king, Long.numberOfTrailingZeros(checkers));
+
+    // Step 3: Keep only the legal moves.
+    int legal = 0;
+    for (int i = 0; i < count; i++) {
+      int move = moves[i];
+      int from = Move.from(move);
+      int to = Move.to(move);
+      boolean keep;
+
+      if (from == king) {
+        if (to - from == 2 || from - to == 2)
+          keep = attackersTo(to, occupied, 1 - player) == 0;
+        else
+          keep = attackersTo(to, occupied ^ (1L << king), 1 - player) == 0;
+      } else if (to == enPassantSquare && typeOf(squares[from]) == PAWN)
+        keep = isLegal(move);
+      else
+        keep = ((evasions >>> to) & 1) != 0
+            && (((pinned >>> from) & 1) == 0 || ((Bitboards.line(king, from) >>> to) & 1) != 0);
+
+      if (keep)
+        moves[legal++] = move;
+    }
+    return legal;
+  }
+
+  /**
+   * Returns the given player's pieces which are pinned to their own king,
+   * i.e. which stand alone between the king and an enemy rook, bishop, or
+   * queen lined up with it.
+   * @param player The ownership ID of the king.
+   * @return The bitboard of pinned pieces.
+   */
+  public long getPinnedPieces(int player) {
+    int king = kingSquares[player];
+    if (king < 0)
+      return 0L;
+
+    int enemy = 1 - player;
+    long queens = bitboards[code(enemy, QUEEN)];
+    long enemies = occupancy[enemy];
+
+    // Look from the king through the player's own pieces for enemy sliding pieces.
+    long snipers = (Bitboards.rookAttacks(king, enemies) & (bitboards[code(enemy, ROOK)] | queens))
+                 | (Bitboards.bishopAttacks(king, enemies) & (bitboards[code(enemy, BISHOP)] | queens));
+
+    long pinned = 0L;
+    for (; snipers != 0; snipers &= snipers - 1) {
+      long blockers = Bitboards.between(king, Long.numberOfTrailingZeros(snipers)) & getOccupied();
+      if (blockers != 0 && (blockers & (blockers - 1)) == 0 && (blockers & occupancy[player]) != 0)
+        pinned |= blockers;
+    }
+    return pinned;
+  }
+
+  /**
+   * Returns the given player's pieces which attack a square, given which
+   * squares are occupied.
+   * @param square The index of the square.
+   * @param occupied The bitboard of occupied squares which block sliding pieces.
+   * @param player The ownership ID of the attacking player.
+   * @return The bitboard of attacking pieces.
+   */
+  private long attackersTo(int square, long occupied, int player) {
+    long queens = bitboards[code(player, QUEEN)];
+
+    // A piece attacks the square exactly when the same piece on the square would attack it back.
+    return (Bitboards.pawnAttacks(1 - player, square) & bitboards[code(player, PAWN)])
+         | (Bitboards.knightAttacks(square) & bitboards[code(player, KNIGHT)])
+         | (Bitboards.kingAttacks(square) & bitboards[code(player, KING)])
+         | (Bitboards.bishopAttacks(square, occupied) & (bitboards[code(player, BISHOP)] | queens))
+         | (Bitboards.rookAttacks(square, occupied) & (bitboards[code(player, ROOK)] | queens));
+  }
+
+  /**
+   * Determines whether or not any piece belonging to the given player
+   * could move onto the given square. The attack maps are used if they
+   * are ready; otherwise only the pieces that could reach the square are
+   * looked up, rather than building the maps just for one square.
+   * @param square The index of the square to test.
+   * @param player The ownership ID of the attacking player.
+   * @return Whether or not the square is attacked.
+   */
+  public boolean isAttacked(int square, int player) {
+    if (square < 0)
+      return false;
+    if (attackMapsValid)
+      return ((attackMaps[player] >>> square) & 1) != 0;
+
+    return attackersTo(square, getOccupied(), player) != 0;
+  }
+
+  /**
+   * Determines whether or not any piece belonging to the given player attacks
+   * the given square, using the attack maps. The maps are rebuilt at most once
+   * per arrangement of pieces, and makeMove and unmakeMove save and restore
+   * them, so every other query on the same position is a single lookup.
+   * @param square The index of the square to test.
+   * @param player The ownership ID of the attacking player.
+   * @return Whether or not the square is attacked.
+   */
+  public boolean isSquareAttacked(int square, int player) {
+    if (square < 0)
+      return false;
+
+    return ((getAttacks(player) >>> square) & 1) != 0;
+  }
+
+  /**
+   * Returns every square attacked by the given player's pieces.
+   * @param player The ownership ID of the attacking player.
+   * @return The bitboard of attacked squares.
+   */
+  public long getAttacks(int player) {
+    if (!attackMapsValid)
+      updateAttackMaps();
+
+    return attackMaps[player];
+  }
+
+  /** Rebuilds the attack maps of both players from the bitboards. */
+  private void updateAttackMaps() {
+    long occupied = getOccupied();
+
+    for (int player = 0; player <= 1; player++) {
+      long attacks = Bitboards.pawnAttacksAll(player, bitboards[code(player, PAWN)]);
+      long queens = bitboards[code(player, QUEEN)];
+
+      for (long b = bitboards[code(player, KNIGHT)]; b != 0; b &= b - 1)
+        attacks |= Bitboards.knightAttacks(Long.numberOfTrailingZeros(b));
+      for (long b = bitboards[code(player, BISHOP)] | queens; b != 0; b &= b - 1)
+        attacks |= Bitboards.bishopAttacks(Long.numberOfTrailingZeros(b), occupied);
+      for (long b = bitboards[code(player, ROOK)] | queens; b != 0; b &= b - 1)
+        attacks |= Bitboards.rookAttacks(Long.numberOfTrailingZeros(b), occupied);
+      if (kingSquares[player] >= 0)
+        attacks |= Bitboards.kingAttacks(kingSquares[player]);
+
+      attackMaps[player] = attacks;
+    }
+    attackMapsValid = true;
+  }
+
+  /**
+   * Returns the number of times the current position occurred before, with the
+   * same player to move, since the last capture or pawn move. Positions before
+   * such a move can't repeat, so only those are compared.
+   * @return The number of earlier occurrences.
+   */
+  public int repetitions() {
+    if (keyCounts[(int) key & (COUNT_BUCKETS - 1)] == 0)
+      return 0;
+
+    int count = 0;
+    int earliest = Math.max(0, ply - halfmoveClock);
+    for (int i = ply - 4; i >= earliest; i -= 2)
+      if (keyHistory[i] == key)
+        count++;
+    return count;
+  }
+
+  /**
+   * Determines whether or not neither player has enough pieces left to
+   * checkmate: only kings, a king and one knight or bishop against a lone
+   * king, or kings and bishops which all stand on tiles of one color.
+   * @return Whether or not the material is insufficient to checkmate.
+   */
+  public boolean hasInsufficientMaterial() {
+    long heavy = 0L;
+    for (int player = 0; player <= 1; player++)
+      heavy |= bitboards[code(player, PAWN)] | bitboards[code(player, ROOK)] | bitboards[code(player, QUEEN)];
+    if (heavy != 0)
+      return false;
+
+    long knights = bitboards[code(0, KNIGHT)] | bitboards[code(1, KNIGHT)];
+    long bishops = bitboards[code(0, BISHOP)] | bitboards[code(1, BISHOP)];
+    long lightSquares = 0xAA55AA55AA55AA55L; // The top left tile is light.
+
+    return Long.bitCount(knights | bishops) <= 1
+        || (knights == 0 && ((bishops & lightSquares) == 0 || (bishops & ~lightSquares) == 0));
+  }
+
+  /**
+   * Classifies the state of the game from the point of view of the player to move.
+   * A checkmate or stalemate takes precedence over the draws by rule.
+   * @param moves A buffer to generate the legal moves into, at least Move.MAX_MOVES long.
+   * @return ONGOING, CHECKMATE, STALEMATE, INSUFFICIENT_MATERIAL, FIFTY_MOVE_RULE, or REPETITION.
+   */
+  public int getStatus(int[] moves) {
+    if (generateLegalMoves(moves) == 0)
+      return (getCheckers() != 0) ? CHECKMATE : STALEMATE;
+    if (hasInsufficientMaterial())
+      return INSUFFICIENT_MATERIAL;
+    if (halfmoveClock >= 100)
+      return FIFTY_MOVE_RULE;
+    if (repetitions() >= 2)
+      return REPETITION;
+    return ONGOING;
+  }
+
+  /**
+   * Returns the description of a status of the game, e.g. "Stalemate".
+   * @param status The status, from ONGOING to REPETITION.
+   * @return The description of the status.
+   */
+  public static String statusName(int status) {
+    return STATUS_NAMES[status];
+  }
+
+  /**
+   * Returns the enemy pieces giving check to the king of the player to move.
+   * @return The bitboard of checking pieces.
+   */
+  public long getCheckers() {
+    int king = kingSquares[turn];
+    return (king < 0) ? 0L : attackersTo(king, getOccupied(), 1 - turn);
+  }
+
+  /**
+   * Determines whether or not the given player's king is under attack.
+   * @param player The ownership ID of the king.
+   * @return Whether or not the king is in check.
+   */
+  public boolean inCheck(int player) {
+    return isAttacked(kingSquares[player], 1 - player);
+  }
+}
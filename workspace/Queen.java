@@ -15,7 +15,7 @@ public class Queen extends Piece {
    * @param col The initial column.
    */
   public Queen(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 9);
+    super(playerNumber, row, col, getPieceValue(Position.QUEEN));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackQueen.png");
     else
@@ -31,134 +31,74 @@ public class Queen extends Piece {
    * a position out of bounds returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
-    // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
       return false;
-    
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the queen on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the queen.
+   * @param to The square to send the queen to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
+    // Case 1: The piece isn't moved.
+    if (from == to)
       return false;
     
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Case 4: The queen is moved vertically.
-    else if (getCol() == col) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      // Condition 1: The queen is moved down.
-      if (row > getRow()) {
-        for (int i = getRow() + 1; i < row; i++)
-          if (board.getPiece(i, col) != null)
-            return false;
-      }
-      // Condition 2: The queen is moved up.
-      else
-        for (int i = row + 1; i < getRow(); i++)
-          if (board.getPiece(i, col) != null)
-            return false;
-
-      return true;
-    }
-    // Case 5: The queen is moved horizontally.
-    else if (getRow() == row) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      // Condition 1: The queen is moved right.
-      if (col > getCol()) {
-        for (int i = getCol() + 1; i < col; i++)
-          if (board.getPiece(row, i) != null)
-            return false;
-      }
-      // Condition 2: The queen is moved left.
-      else
-        for (int i = col + 1; i < getCol(); i++)
-          if (board.getPiece(row, i) != null)
-            return false;
+    // Look up the lines and diagonals of the queen, stopping at the first piece in the way.
+    return (Bitboards.queenAttacks(from, position.getOccupied()) & (1L << to)) != 0;
+  }
 
-      return true;
-    }
-    // Case 6: The queen is moved diagonally.
-    else if (Math.abs(row - getRow()) == Math.abs(col - getCol())) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      int currentRow = getRow();
-      int currentCol = getCol();
-      // Subcase 1: The queen moves down.
-      if (row > getRow()) {
-        // Sub-subcase 1: The queen moves right.
-        if (col > getCol()) {
-          currentRow++;
-          currentCol++;
-          while (currentRow < row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow++;
-            currentCol++;
-          }
-        }
-        // Sub-subcase 2: The queen moves left.
-        else {
-          currentRow++;
-          currentCol--;
-          while (currentRow < row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow++;
-            currentCol--;
-          }
-        }
-      }
-      // Subcase 2: The queen moves up.
-      else {
-        // Sub-subcase 1: The queen moves right.
-        if (col > getCol()) {
-          currentRow--;
-          currentCol++;
-          while (currentRow > row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow--;
-            currentCol++;
-          }
-        }
-        // Sub-subcase 2: The queen moves left.
-        else {
-          currentRow--;
-          currentCol--;
-          while (currentRow > row) {
-            if (board.getPiece(currentRow, currentCol) != null)
-              return false;
-            
-            currentRow--;
-            currentCol--;
-          }
-        }
-      }
+  /**
+   * Adds every move the queen can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
 
-      return true;
-    }
+  /**
+   * Adds every square along the lines and diagonals of the queen
+   * on the given square, up to and including the first enemy piece.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the queen.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    long targets = Bitboards.queenAttacks(from, position.getOccupied()) & ~position.getOccupancy(player);
+    return Move.addAll(from, targets, moves, count);
+  }
 
-    // Since the queen's move is not horizontal, vertical, or diagonal, it's invalid.
-    return false;
+  /**
+   * Returns the rank of a queen.
+   * @return The rank of a queen.
+   */
+  public int getType() {
+    return Position.QUEEN;
   }
 
   /**
@@ -15,7 +15,7 @@ public class Rook extends Piece {
    * @param col The initial column.
    */
   public Rook(int playerNumber, int row, int col) {
-    super(playerNumber, row, col, 5);
+    super(playerNumber, row, col, getPieceValue(Position.ROOK));
     if (playerNumber == 0)
       setImageIcon("../images/pieces/blackRook.png");
     else
@@ -30,71 +30,74 @@ public class Rook extends Piece {
    * returns false.
    * @param row The row to send the piece to.
    * @param col The column to send the piece to.
-   * @param board The Chess board being played.
+   * @param position The position of the Chess board being played.
    * @return  True if the move is valid, false if not.
    */
-  public boolean moveIsValid(int row, int col, Board board) {
-    // Case 1: The piece isn't moved.
-    if (row == getRow() && col == getCol())
+  public boolean moveIsValid(int row, int col, Position position) {
+    // The outgoing tile is out of bounds.
+    if (!Position.inBounds(row, col))
       return false;
-    
-    // Case 2: The outgoing tile is out of bounds.
-    else if (row < 0 || row > 7 || col < 0 || col > 7)
+
+    return canMove(position, getSquare(), Position.square(row, col));
+  }
+
+  /**
+   * Checks whether or not the rook on the first square
+   * may move to the second square of the given position.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the rook.
+   * @param to The square to send the rook to.
+   * @return  True if the move is valid, false if not.
+   */
+  public static boolean canMove(Position position, int from, int to) {
+    int target = position.getCode(to);
+
+    // Case 1: The piece isn't moved.
+    if (from == to)
       return false;
     
-    // Case 3: The outgoing tile contains a piece belonging to the same player.
-    else if (board.getPiece(row, col) != null &&
-    board.getPiece(row, col).getPlayerNumber() == getPlayerNumber())
+    // Case 2: The outgoing tile contains a piece belonging to the same player.
+    else if (target != Position.EMPTY &&
+    Position.playerOf(target) == Position.playerOf(position.getCode(from)))
       return false;
 
-    // Case 3: The rook is moved horizontally.
-    if (row == getRow()) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      // Subcase 1: The rook is moved to the right.
-      if (getCol() < col) {
-        for (int i = getCol() + 1; i < col; i++)
-          if (board.getPiece(row, i) != null)
-            return false;
-      }
-
-      // Subcase 2: The rook is moved to the left.
-      else
-        for (int i = col + 1; i < getCol(); i++)
-          if (board.getPiece(row, i) != null)
-            return false;
+    // Look up the straight lines of the rook, stopping at the first piece in the way.
+    return (Bitboards.rookAttacks(from, position.getOccupied()) & (1L << to)) != 0;
+  }
 
-      return true;
-    }
-    // Case 4: The rook is moved vertically.
-    else if (col == getCol()) {
-      /*
-       * For each of the following conditions, check whether or not
-       * a piece exists in between the initial and final position.
-       * If so, then the move is not valid.
-       */
-      // Subcase 1: The rook is moved down.
-      if (getRow() < row) {
-        for (int i = getRow() + 1; i < row; i++)
-          if (board.getPiece(i, col) != null)
-            return false;
-      }
+  /**
+   * Adds every move the rook can make according to its own movement
+   * rules, ignoring checks, into the given move buffer.
+   * @param position The position of the Chess board being played.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public int generateMoves(Position position, int[] moves, int count) {
+    return generate(position, getSquare(), moves, count);
+  }
 
-      // Subcase 2: The rook is moved up.
-      else
-        for (int i = row + 1; i < getRow(); i++)
-          if (board.getPiece(i, col) != null)
-            return false;
+  /**
+   * Adds every square along the lines of the rook on the
+   * given square, up to and including the first enemy piece.
+   * @param position The position of the Chess board being played.
+   * @param from The square of the rook.
+   * @param moves The buffer to fill with encoded moves.
+   * @param count The number of moves already in the buffer.
+   * @return The number of moves in the buffer afterwards.
+   */
+  public static int generate(Position position, int from, int[] moves, int count) {
+    int player = Position.playerOf(position.getCode(from));
+    long targets = Bitboards.rookAttacks(from, position.getOccupied()) & ~position.getOccupancy(player);
+    return Move.addAll(from, targets, moves, count);
+  }
 
-      return true;
-    }
-    
-    // The piece is neither to be moved horizontally
-    // or vertically, and so the move is invalid.
-    return false;
+  /**
+   * Returns the rank of a rook.
+   * @return The rank of a rook.
+   */
+  public int getType() {
+    return Position.ROOK;
   }
 
   /**
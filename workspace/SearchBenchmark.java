@@ -0,0 +1,93 @@
+/**
+ * SearchBenchmark.java
+ *
+ * @author: Paul Shin
+ *
+ * Brief Program Description: Counts the nodes the Engine needs to search each of
+ * a fixed suite of positions to a fixed depth, once with only the stored move
+ * tried first and once with the full move ordering of captures, killer moves and
+ * history, printing the node counts, times and best moves side by side. Each
+ * search gets a fresh transposition table and a single thread, so that the
+ * counts are the same from run to run. Without ordering the capture search
+ * can take billions of nodes on a busy position, so each search also stops at
+ * a node limit, and a count which reached the limit is marked with a '+'.
+ * Usage: java SearchBenchmark [depth] [hash=MB] [nodes=limit]
+ */
+public class SearchBenchmark {
+  /** The positions to search, with a short name for each. */
+  private static final String[][] POSITIONS = {
+    {"opening", "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1"},
+    {"italian", "r1bqk2r/pppp1ppp/2n2n2/2b1p3/2B1P3/3P1N2/PPP2PPP/RNBQK2R w KQkq - 4 5"},
+    {"kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1"},
+    {"sicilian", "r1b1kb1r/1pqp1ppp/p1n1pn2/8/3NP3/2N1B3/PPP1BPPP/R2QK2R b KQkq - 3 8"},
+    {"promotion", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1"},
+    {"tactics", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8"},
+    {"symmetric", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10"},
+    {"rook end", "8/5pk1/6p1/8/3R4/6P1/r4PK1/8 w - - 0 40"},
+    {"pawn end", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"},
+  };
+
+  public static void main(String[] args) {
+    int depth = 5;
+    int megabytes = 16;
+    long nodeLimit = 5000000;
+    for (String arg : args) {
+      if (arg.startsWith("hash="))
+        megabytes = Integer.parseInt(arg.substring(5));
+      else if (arg.startsWith("nodes="))
+        nodeLimit = Long.parseLong(arg.substring(6));
+      else
+        depth = Integer.parseInt(arg);
+    }
+
+    System.out.printf("%-10s %13s %13s %7s %9s %9s %-7s %-7s%n",
+        "Position", "Nodes before", "Nodes after", "Ratio", "ms before", "ms after", "Before", "After");
+    long totalBefore = 0, totalAfter = 0, timeBefore = 0, timeAfter = 0;
+    for (String[] test : POSITIONS) {
+      Position position = new Position();
+      position.loadFen(test[1]);
+
+      Engine before = createEngine(megabytes, depth, nodeLimit, false);
+      int moveBefore = before.search(position);
+      Engine after = createEngine(megabytes, depth, nodeLimit, true);
+      int moveAfter = after.search(position);
+
+      totalBefore += before.getNodes();
+      totalAfter += after.getNodes();
+      timeBefore += before.getElapsed();
+      timeAfter += after.getElapsed();
+      System.out.printf("%-10s %13s %13s %7.3f %9d %9d %-7s %-7s%n", test[0],
+          count(before, nodeLimit), count(after, nodeLimit), (double) after.getNodes() / before.getNodes(),
+          before.getElapsed(), after.getElapsed(), Move.toString(moveBefore), Move.toString(moveAfter));
+    }
+    System.out.printf("%-10s %13d %13d %7.3f %9d %9d%n", "total",
+        totalBefore, totalAfter, (double) totalAfter / totalBefore, timeBefore, timeAfter);
+  }
+
+  /**
+   * Creates an engine with a fresh table which searches to a fixed depth on one thread.
+   * @param megabytes The size of the transposition table.
+   * @param depth The depth to search.
+   * @param nodeLimit The largest number of nodes to search.
+   * @param ordering Whether or not to order the moves beyond the stored move.
+   * @return The engine.
+   */
+  private static Engine createEngine(int megabytes, int depth, long nodeLimit, boolean ordering) {
+    Engine engine = new Engine(new TranspositionTable(megabytes));
+    engine.setDepthLimit(depth);
+    engine.setNodeLimit(nodeLimit);
+    engine.setMoveOrdering(ordering);
+    return engine;
+  }
+
+  /**
+   * Returns the node count of the last search of an engine, marked with a '+'
+   * if the search was cut short by the node limit.
+   * @param engine The engine.
+   * @param nodeLimit The node limit of the engine.
+   * @return The node count as text.
+   */
+  private static String count(Engine engine, long nodeLimit) {
+    return engine.getNodes() + ((engine.getNodes() >= nodeLimit) ? "+" : "");
+  }
+}
@@ -0,0 +1,438 @@
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.Writer;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Plays many games of the Engine against itself at once, to test changes
+ * to the engine by the volume of games and to gather games as data. Each
+ * thread of a fixed pool plays one game after another on a Position of its
+ * own, with an Engine of its own for each side, so no game shares anything
+ * with another. Each game starts with a few random moves, so that the games
+ * differ, then each move is searched to a fixed number of nodes or a fixed
+ * time. A game still going after the longest number of moves is a draw.
+ *
+ * The games can be written as records in the compact binary format of
+ * GameRecord, or in Portable Game Notation, depending on the file's
+ * extension. While running, the number of games played is printed once a
+ * second, and at the end the games per hour, the results, and how much of
+ * the processors the threads kept busy.
+ *
+ * Usage: java SelfPlay [games=N] [threads=N] [nodes=N | time=MILLISECONDS] [depth=N]
+ *                      [hash=MEGABYTES] [random=PLIES] [maxplies=N] [seed=N] [out=FILE.bin|FILE.pgn]
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class SelfPlay {
+  /* # DATA STRUCTURES # */
+
+  /** The number of nodes searched for each move by default. */
+  public static final long DEFAULT_NODES = 20000;
+
+  /** The size of each engine's transposition table by default, in megabytes. */
+  public static final int DEFAULT_HASH = 4;
+
+  /** The number of random moves each game starts with by default. */
+  public static final int DEFAULT_RANDOM_PLIES = 8;
+
+  /** The number of moves after which a game is drawn by default. */
+  public static final int DEFAULT_MAX_PLIES = 400;
+
+  /** The time between progress reports in nanoseconds. */
+  private static final long PROGRESS_INTERVAL = 1000000000L;
+
+  /** The number of games to play. */
+  private int games;
+
+  /** The number of games played at once. */
+  private int threads;
+
+  /** The number of nodes searched for each move, or 0 for no limit. */
+  private long nodeLimit;
+
+  /** The time searched for each move in milliseconds, or 0 for no limit. */
+  private long timeLimit;
+
+  /** The deepest iteration searched for each move. */
+  private int depthLimit;
+
+  /** The size of each engine's transposition table in megabytes. */
+  private int hash;
+
+  /** The number of random moves each game starts with. */
+  private int randomPlies;
+
+  /** The number of moves after which a game is drawn. */
+  private int maxPlies;
+
+  /** The seed of the random openings, so that a run can be repeated. */
+  private long seed;
+
+  /** Where the games are written as records, or null. */
+  private GameRecordWriter records;
+
+  /** Where the games are written in Portable Game Notation, or null. */
+  private Writer pgn;
+
+  /** The index of the next game to start. */
+  private AtomicInteger nextGame;
+
+  /** The number of games finished. */
+  private AtomicInteger finished;
+
+  /** The number of moves played over all games. */
+  private AtomicLong plies;
+
+  /** The processor time used by the threads playing the games, in nanoseconds. */
+  private AtomicLong cpuTime;
+
+  /** The number of games with each result, from GameRecord.UNKNOWN to GameRecord.DRAW. */
+  private long[] results;
+
+  /**
+   * Constructor for the SelfPlay class. Sets up a run with the default limits.
+   * @param games The number of games to play.
+   * @param threads The number of games played at once.
+   */
+  public SelfPlay(int games, int threads) {
+    this.games = games;
+    this.threads = Math.max(1, threads);
+    nodeLimit = DEFAULT_NODES;
+    depthLimit = Engine.MAX_PLY;
+    hash = DEFAULT_HASH;
+    randomPlies = DEFAULT_RANDOM_PLIES;
+    maxPlies = DEFAULT_MAX_PLIES;
+    nextGame = new AtomicInteger();
+    finished = new AtomicInteger();
+    plies = new AtomicLong();
+    cpuTime = new AtomicLong();
+    results = new long[4];
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Sets how long each move is searched. Whichever limit is reached first ends the search.
+   * @param nodes The number of nodes, or 0 for no limit.
+   * @param milliseconds The time, or 0 for no limit.
+   * @param depth The deepest iteration.
+   */
+  public void setLimits(long nodes, long milliseconds, int depth) {
+    nodeLimit = nodes;
+    timeLimit = milliseconds;
+    depthLimit = depth;
+  }
+
+  /**
+   * Sets the size of each engine's transposition table.
+   * @param megabytes The size in megabytes.
+   */
+  public void setHash(int megabytes) {
+    hash = Math.max(1, megabytes);
+  }
+
+  /**
+   * Sets how each game starts and how long it may last.
+   * @param random The number of random moves each game starts with.
+   * @param max The number of moves after which a game is drawn.
+   * @param seed The seed of the random openings.
+   */
+  public void setOpenings(int random, int max, long seed) {
+    randomPlies = random;
+    maxPlies = max;
+    this.seed = seed;
+  }
+
+  /**
+   * Sets where the games are written.
+   * @param records The writer of the records, or null.
+   * @param pgn The writer of the games in Portable Game Notation, or null.
+   */
+  public void setOutput(GameRecordWriter records, Writer pgn) {
+    this.records = records;
+    this.pgn = pgn;
+  }
+
+  /**
+   * Creates an engine searching each move within the limits of the run.
+   * @return The new Engine.
+   */
+  public Engine createEngine() {
+    Engine engine = new Engine(new TranspositionTable(hash));
+    engine.setNodeLimit(nodeLimit);
+    engine.setTimeLimit(timeLimit);
+    engine.setDepthLimit(depthLimit);
+    return engine;
+  }
+
+  /**
+   * Plays every game on the pool of threads, and waits until they are finished.
+   * @param progress Where to print the progress once a second, or null for no progress.
+   * @return The time taken in nanoseconds.
+   * @throws IOException if the games can't be written.
+   */
+  public long run(PrintStream progress) throws IOException {
+    ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Self-play");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    long start = System.nanoTime();
+    List<Future<Void>> players = new ArrayList<Future<Void>>();
+    for (int i = 0; i < threads; i++)
+      players.add(pool.submit(new Callable<Void>() {
+        public Void call() throws IOException {
+          playGames();
+          return null;
+        }
+      }));
+
+    try {
+      for (Future<Void> player : players) {
+        while (true) {
+          try {
+            player.get(PROGRESS_INTERVAL, TimeUnit.NANOSECONDS);
+            break;
+          } catch (TimeoutException e) {
+            if (progress != null)
+              progress.printf("%,d of %,d games, %.0f games/hour%n", finished.get(), games,
+                              finished.get() * 3.6e12 / (System.nanoTime() - start));
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IllegalStateException("A self-play thread failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+    }
+    return System.nanoTime() - start;
+  }
+
+  /**
+   * Plays games on the calling thread, one after another, until every game has been started.
+   * @throws IOException if the games can't be written.
+   */
+  private void playGames() throws IOException {
+    ThreadMXBean cpu = ManagementFactory.getThreadMXBean();
+    long cpuStart = cpu.getCurrentThreadCpuTime();
+    Engine[] engines = {createEngine(), createEngine()};
+    Position position = new Position();
+    int[] moves = new int[Move.MAX_MOVES];
+
+    for (int game; (game = nextGame.getAndIncrement()) < games; ) {
+      position.reset();
+      playRandomMoves(position, new Random(seed * 1000003L + game), randomPlies, moves);
+      for (Engine engine : engines)
+        engine.getTable().clear();
+      int result = play(position, engines, maxPlies, moves);
+      record(game, position, result, moves);
+    }
+    cpuTime.addAndGet(cpu.getCurrentThreadCpuTime() - cpuStart);
+  }
+
+  /**
+   * Plays random legal moves on a position, stopping early if the game ends.
+   * @param position The position to play the moves on.
+   * @param random The source of the random choices.
+   * @param count The number of moves to play.
+   * @param moves A buffer to generate the legal moves into.
+   */
+  public static void playRandomMoves(Position position, Random random, int count, int[] moves) {
+    for (int i = 0; i < count; i++) {
+      int legal = position.generateLegalMoves(moves);
+      if (legal == 0 || position.getStatus(moves) != Position.ONGOING)
+        return;
+      position.makeMove(moves[random.nextInt(legal)]);
+    }
+  }
+
+  /**
+   * Plays a game from a position until it ends, each side searching its moves
+   * with its own engine. A game still going after the longest number of moves,
+   * counted from the start of the position's moves, is a draw.
+   * @param position The position to play from, which holds every move afterwards.
+   * @param engines The engine of each player, by player ID.
+   * @param maxPlies The number of moves after which the game is drawn.
+   * @param moves A buffer to generate the legal moves into.
+   * @return The result of the game, from GameRecord.WHITE_WINS to GameRecord.DRAW.
+   */
+  public static int play(Position position, Engine[] engines, int maxPlies, int[] moves) {
+    int status;
+    while ((status = position.getStatus(moves)) == Position.ONGOING && position.getPly() < maxPlies)
+      position.makeMove(engines[position.getTurn()].search(position));
+    return (status == Position.ONGOING) ? GameRecord.DRAW : GameRecord.resultOf(status, position.getTurn());
+  }
+
+  /**
+   * Counts a finished game and writes it out.
+   * @param game The index of the game.
+   * @param position The final position of the game, which holds every move from the initial position.
+   * @param result The result of the game.
+   * @param moves A buffer to generate the legal moves into.
+   * @throws IOException if the game can't be written.
+   */
+  private void record(int game, Position position, int result, int[] moves) throws IOException {
+    String text = (pgn != null) ? toPgn(position, "Self-play", game + 1, "Engine", "Engine", result, moves) : null;
+    synchronized (this) {
+      results[result]++;
+      if (records != null)
+        records.write(null, position, result);
+      if (text != null)
+        pgn.write(text);
+    }
+    plies.addAndGet(position.getPly());
+    finished.incrementAndGet();
+  }
+
+  /**
+   * Writes a game played from the initial position in Portable Game Notation.
+   * @param position The final position of the game, which holds every move from the initial position.
+   * @param event The name of the event.
+   * @param round The round of the game.
+   * @param white The name of the white player.
+   * @param black The name of the black player.
+   * @param result The result of the game.
+   * @param moves A buffer to generate the legal moves into.
+   * @return The game, with its tags, moves and result, followed by an empty line.
+   */
+  public static String toPgn(Position position, String event, int round, String white, String black,
+                             int result, int[] moves) {
+    String resultName = GameRecord.resultName(result);
+    StringBuilder out = new StringBuilder(1024);
+    out.append("[Event \"").append(event).append("\"]\n[Site \"?\"]\n[Date \"????.??.??\"]\n");
+    out.append("[Round \"").append(round).append("\"]\n[White \"").append(white).append("\"]\n");
+    out.append("[Black \"").append(black).append("\"]\n[Result \"").append(resultName).append("\"]\n\n");
+
+    // Replay the moves from the start, writing each in Standard Algebraic Notation, with lines of at most 80 characters.
+    Position replay = new Position();
+    replay.reset();
+    int lineStart = out.length();
+    for (int ply = 0; ply < position.getPly(); ply++) {
+      int move = position.getMove(ply);
+      String san = ((ply % 2 == 0) ? (ply / 2 + 1) + ". " : "") + Move.toSan(replay, move, moves);
+      if (out.length() - lineStart + san.length() >= 80) {
+        out.append('\n');
+        lineStart = out.length();
+      } else if (ply > 0)
+        out.append(' ');
+      out.append(san);
+      replay.makeMove(move);
+    }
+    if (out.length() - lineStart + resultName.length() >= 80)
+      out.append('\n');
+    else if (position.getPly() > 0)
+      out.append(' ');
+    return out.append(resultName).append("\n\n").toString();
+  }
+
+  /**
+   * Prints the totals of a finished run.
+   * @param out Where to print them.
+   * @param nanos The time the run took in nanoseconds.
+   */
+  public void printSummary(PrintStream out, long nanos) {
+    int played = finished.get();
+    double seconds = nanos / 1e9;
+    double busy = cpuTime.get() / (nanos * (double) Runtime.getRuntime().availableProcessors());
+    out.printf("Played %,d games and %,d moves in %.1f s on %d threads%n", played, plies.get(), seconds, threads);
+    out.printf("%.0f games/hour, %.0f moves/s, %.1f moves per game%n", played * 3600 / seconds,
+               plies.get() / seconds, (played > 0) ? plies.get() / (double) played : 0.0);
+    out.printf("White won %,d, black won %,d, drawn %,d%n", results[GameRecord.WHITE_WINS],
+               results[GameRecord.BLACK_WINS], results[GameRecord.DRAW]);
+    out.printf("Processors busy %.0f%% of the time (%.1f s of %d processors)%n", 100 * busy,
+               cpuTime.get() / 1e9, Runtime.getRuntime().availableProcessors());
+  }
+
+  public static void main(String[] args) throws IOException {
+    int games = 100;
+    int threads = Runtime.getRuntime().availableProcessors();
+    long nodes = DEFAULT_NODES;
+    long time = 0;
+    int depth = Engine.MAX_PLY;
+    int hash = DEFAULT_HASH;
+    int random = DEFAULT_RANDOM_PLIES;
+    int maxPlies = DEFAULT_MAX_PLIES;
+    long seed = System.nanoTime();
+    String out = null;
+
+    for (String arg : args) {
+      String value = arg.substring(arg.indexOf('=') + 1);
+      if (arg.startsWith("games="))
+        games = Integer.parseInt(value);
+      else if (arg.startsWith("threads="))
+        threads = Integer.parseInt(value);
+      else if (arg.startsWith("nodes="))
+        nodes = Long.parseLong(value);
+      else if (arg.startsWith("time=")) {
+        time = Long.parseLong(value);
+        nodes = 0;
+      } else if (arg.startsWith("depth="))
+        depth = Integer.parseInt(value);
+      else if (arg.startsWith("hash="))
+        hash = Integer.parseInt(value);
+      else if (arg.startsWith("random="))
+        random = Integer.parseInt(value);
+      else if (arg.startsWith("maxplies="))
+        maxPlies = Integer.parseInt(value);
+      else if (arg.startsWith("seed="))
+        seed = Long.parseLong(value);
+      else if (arg.startsWith("out="))
+        out = value;
+      else {
+        System.out.println("Usage: java SelfPlay [games=N] [threads=N] [nodes=N | time=MILLISECONDS] [depth=N]"
+                           + " [hash=MEGABYTES] [random=PLIES] [maxplies=N] [seed=N] [out=FILE.bin|FILE.pgn]");
+        return;
+      }
+    }
+
+    SelfPlay selfPlay = new SelfPlay(games, threads);
+    selfPlay.setLimits(nodes, time, depth);
+    selfPlay.setHash(hash);
+    selfPlay.setOpenings(random, maxPlies, seed);
+
+    GameRecordWriter records = null;
+    Writer pgn = null;
+    if (out != null && out.endsWith(".pgn"))
+      pgn = Files.newBufferedWriter(Paths.get(out), StandardCharsets.US_ASCII);
+    else if (out != null)
+      records = GameRecordWriter.open(Paths.get(out), false);
+    selfPlay.setOutput(records, pgn);
+
+    try {
+      selfPlay.printSummary(System.out, selfPlay.run(System.err));
+    } finally {
+      if (records != null)
+        records.close();
+      if (pgn != null)
+        pgn.close();
+    }
+  }
+}
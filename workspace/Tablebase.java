@@ -0,0 +1,763 @@
+import java.io.IOException;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+/** An endgame tablebase, which holds the exact result of every position of
+ * an endgame where a lone king faces a king and one or two pieces: KQK, KRK,
+ * KBNK or KPK. For each position it stores the number of plies until
+ * checkmate with best play, or that the position is a draw, so that the
+ * engine can look the result up instead of searching for it.
+ *
+ * A table is generated by retrograde analysis. First every checkmate is
+ * found, then the search works backwards one ply at a time: a position
+ * where the strong side can move into a position lost for the lone king
+ * is won, and a position where every move of the lone king leads into a
+ * won position is lost. Each ply is spread over the threads of a fixed pool.
+ *
+ * Tables are made with the strong side as white (player 1), and positions
+ * where black is the strong side are looked up with the board flipped.
+ * Each position has its own entry at an index made of the side to move and
+ * the square of each piece, so that no two positions share an entry. An
+ * entry is a single byte, held off the heap while generating and mapped
+ * into memory from its file when probing. The tables know nothing of
+ * castling or of the fifty-move rule.
+ *
+ * Usage: java Tablebase generate [KQK|KRK|KBNK|KPK|all] [dir] [threads=N]
+ *    or: java Tablebase probe dir fen
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class Tablebase {
+  /* # DATA STRUCTURES # */
+
+  /** The endgame of king and queen against king. */
+  public static final int KQK = 0;
+
+  /** The endgame of king and rook against king. */
+  public static final int KRK = 1;
+
+  /** The endgame of king, bishop and knight against king. */
+  public static final int KBNK = 2;
+
+  /** The endgame of king and pawn against king. */
+  public static final int KPK = 3;
+
+  /** The largest number of pieces, kings included, of any position in the tables. */
+  public static final int MAX_PIECES = 4;
+
+  /** The result of a position that isn't in any loaded table. */
+  public static final int MISSING = Integer.MIN_VALUE;
+
+  /** The distance to checkmate returned for a drawn position. */
+  public static final int DRAW = -1;
+
+  /** The name of each endgame, which is also the name of its file. */
+  private static final String[] NAMES = {"KQK", "KRK", "KBNK", "KPK"};
+
+  /** The types of the strong side's pieces other than the king, by endgame. */
+  private static final int[][] PIECES = {{Position.QUEEN}, {Position.ROOK},
+                                         {Position.BISHOP, Position.KNIGHT}, {Position.PAWN}};
+
+  /** The first eight bytes of a tablebase file, "CHESSTB1". */
+  private static final long MAGIC = 0x4348455353544231L;
+
+  /** The size of the header of a tablebase file: the magic number, the endgame and the number of entries. */
+  private static final int HEADER_SIZE = 16;
+
+  /** The entry of a drawn position. Any other legal position stores its distance to checkmate plus one. */
+  private static final int DRAWN = 0;
+
+  /** The entry of an impossible position, such as one with two pieces on a square. */
+  private static final int ILLEGAL = 0xFF;
+
+  /** The number of positions given to a thread at once while generating. */
+  private static final int CHUNK = 1 << 16;
+
+  /** The tables loaded for probing, by endgame. */
+  private static final Tablebase[] tables = new Tablebase[NAMES.length];
+
+  /** The endgame of the table, from KQK to KPK. */
+  private int endgame;
+
+  /** The types of the strong side's pieces other than the king. */
+  private int[] pieces;
+
+  /** The number of pieces of each position, kings included. */
+  private int pieceCount;
+
+  /** The number of entries of the table. */
+  private int size;
+
+  /** The entries of the table, off the heap or mapped from a file. */
+  private ByteBuffer entries;
+
+  /**
+   * Constructor for the Tablebase class. Creates an empty table.
+   * @param endgame The endgame of the table, from KQK to KPK.
+   * @param entries The buffer to hold the entries, or null to allocate one off the heap.
+   */
+  private Tablebase(int endgame, ByteBuffer entries) {
+    this.endgame = endgame;
+    pieces = PIECES[endgame];
+    pieceCount = pieces.length + 2;
+    size = 1 << (6 * pieceCount + 1);
+    this.entries = (entries != null) ? entries : ByteBuffer.allocateDirect(size);
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the endgame of a name such as "KBNK".
+   * @param name The name of the endgame.
+   * @return The endgame, from KQK to KPK, or -1 if there is no table of it.
+   */
+  public static int endgameOf(String name) {
+    for (int i = 0; i < NAMES.length; i++)
+      if (NAMES[i].equalsIgnoreCase(name))
+        return i;
+    return -1;
+  }
+
+  /**
+   * Returns the endgame of the table.
+   * @return The endgame, from KQK to KPK.
+   */
+  public int getEndgame() {
+    return endgame;
+  }
+
+  /**
+   * Returns the number of entries of the table, one for each arrangement of
+   * the pieces with either side to move, including impossible ones.
+   * @return The number of entries.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the stored distance to checkmate of an entry.
+   * @param index The index of the entry.
+   * @return The number of plies until checkmate, DRAW, or MISSING for an impossible position.
+   */
+  public int getDistance(int index) {
+    int entry = entries.get(index) & 0xFF;
+    return (entry == ILLEGAL) ? MISSING : entry - 1;
+  }
+
+  /**
+   * Loads a table for probing, replacing any table of the same endgame.
+   * @param table The table to load.
+   */
+  public static synchronized void register(Tablebase table) {
+    tables[table.endgame] = table;
+  }
+
+  /**
+   * Maps every table file found in a directory into memory for probing.
+   * @param dir The directory holding the files, named like "KQK.tb".
+   * @return The number of tables loaded.
+   * @throws IOException if a file exists but can't be read.
+   */
+  public static int loadAll(Path dir) throws IOException {
+    int loaded = 0;
+    for (int i = 0; i < NAMES.length; i++) {
+      Path path = dir.resolve(NAMES[i] + ".tb");
+      if (path.toFile().exists()) {
+        register(load(path));
+        loaded++;
+      }
+    }
+    return loaded;
+  }
+
+  /**
+   * Maps a table file into memory.
+   * @param path The path of the file.
+   * @return A new Tablebase.
+   * @throws IOException if the file can't be read, or isn't a table.
+   */
+  public static Tablebase load(Path path) throws IOException {
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      if (file.read(header, 0) < HEADER_SIZE || header.getLong(0) != MAGIC
+          || header.getInt(8) < 0 || header.getInt(8) >= NAMES.length)
+        throw new IOException("Not a tablebase: " + path);
+
+      int endgame = header.getInt(8);
+      int size = 1 << (6 * (PIECES[endgame].length + 2) + 1);
+      if (header.getInt(12) != size || file.size() != HEADER_SIZE + (long) size)
+        throw new IOException("Not a tablebase: " + path);
+      return new Tablebase(endgame, file.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, size));
+    }
+  }
+
+  /**
+   * Writes the table to a file.
+   * @param path The path of the file.
+   * @throws IOException if the file can't be written.
+   */
+  public void save(Path path) throws IOException {
+    try (FileChannel file = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                             StandardOpenOption.TRUNCATE_EXISTING)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      header.putLong(MAGIC).putInt(endgame).putInt(size).flip();
+      while (header.hasRemaining())
+        file.write(header);
+
+      ByteBuffer body = entries.duplicate();
+      body.clear();
+      while (body.hasRemaining())
+        file.write(body);
+    }
+  }
+
+  /**
+   * Looks up a position in the loaded tables.
+   * @param position The position to look up.
+   * @return The number of plies until checkmate with best play, DRAW, or
+   *         MISSING if the position isn't in a loaded table. An odd number
+   *         means the player to move checkmates, and an even number means
+   *         the player to move is checkmated, with 0 for a checkmate on the board.
+   */
+  public static int probeDtm(Position position) {
+    // Step 1: Find the endgame, which needs a lone king on one side.
+    long occupied = position.getOccupied();
+    int count = Long.bitCount(occupied);
+    if (count < 3 || count > MAX_PIECES || position.getCastlingRights() != 0)
+      return MISSING;
+    int strong = (Long.bitCount(position.getOccupancy(1)) > 1) ? 1 : 0;
+    if (Long.bitCount(position.getOccupancy(1 - strong)) != 1)
+      return MISSING;
+
+    Tablebase table = null;
+    for (int i = 0; i < NAMES.length && table == null; i++) {
+      boolean matches = PIECES[i].length == count - 2;
+      for (int j = 0; j < PIECES[i].length && matches; j++)
+        matches = Long.bitCount(position.getBitboard(Position.code(strong, PIECES[i][j]))) == 1;
+      if (matches)
+        table = tables[i];
+    }
+    if (table == null)
+      return MISSING;
+
+    // Step 2: Flip the board if black is the strong side, then find the entry.
+    int flip = (strong == 1) ? 0 : 56;
+    int index = (position.getTurn() == strong) ? 1 : 0;
+    index = (index << 6) | (position.getKingSquare(strong) ^ flip);
+    index = (index << 6) | (position.getKingSquare(1 - strong) ^ flip);
+    for (int type : table.pieces)
+      index = (index << 6) | (Long.numberOfTrailingZeros(position.getBitboard(Position.code(strong, type))) ^ flip);
+    return table.getDistance(index);
+  }
+
+  /**
+   * Looks up whether a position is won, drawn or lost in the loaded tables.
+   * @param position The position to look up.
+   * @return 1 if the player to move wins, 0 for a draw, -1 if the player
+   *         to move loses, or MISSING if the position isn't in a loaded table.
+   */
+  public static int probeWdl(Position position) {
+    int distance = probeDtm(position);
+    if (distance == MISSING || distance == DRAW)
+      return (distance == DRAW) ? 0 : MISSING;
+    return (distance % 2 == 1) ? 1 : -1;
+  }
+
+  /**
+   * Finds the best move of a position from the loaded tables: the quickest
+   * checkmate when winning, a move which keeps the draw when drawn, and
+   * the longest resistance when losing. A move which leaves only the kings,
+   * or a king against a single minor piece, counts as a draw.
+   * @param position The position, which is left as it was.
+   * @param moves A buffer to generate the legal moves into, at least Move.MAX_MOVES long.
+   * @return The encoded move, or Move.NONE if the position isn't in a loaded table or has no legal move.
+   */
+  public static int bestMove(Position position, int[] moves) {
+    if (probeDtm(position) == MISSING)
+      return Move.NONE;
+
+    int count = position.generateLegalMoves(moves);
+    int best = Move.NONE;
+    int bestRank = Integer.MIN_VALUE;
+    for (int i = 0; i < count; i++) {
+      position.makeMove(moves[i]);
+      int distance = probeDtm(position);
+      if (distance == MISSING && position.hasInsufficientMaterial())
+        distance = DRAW;
+      position.unmakeMove();
+
+      // The opponent's distance is even when the move wins for the player, and odd when it loses.
+      if (distance == MISSING)
+        continue;
+      int rank = (distance == DRAW) ? 0 : (distance % 2 == 0) ? 1000 - distance : distance - 1000;
+      if (rank > bestRank) {
+        bestRank = rank;
+        best = moves[i];
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Describes the result of a position in the loaded tables, e.g. "White mates in 12".
+   * @param position The position to describe.
+   * @return The description, or null if the position isn't in a loaded table.
+   */
+  public static String describe(Position position) {
+    int distance = probeDtm(position);
+    if (distance == MISSING)
+      return null;
+    if (distance == DRAW)
+      return "Tablebase draw";
+    int winner = (distance % 2 == 1) ? position.getTurn() : 1 - position.getTurn();
+    return ((winner == 1) ? "White" : "Black") + " mates in " + (distance + 1) / 2;
+  }
+
+  /**
+   * Generates a table by retrograde analysis. A KPK table is made from the
+   * KQK and KRK tables, which are generated first if they aren't loaded.
+   * @param endgame The endgame of the table, from KQK to KPK.
+   * @param threads The number of threads to generate with.
+   * @return The new table, which is also loaded for probing.
+   */
+  public static Tablebase generate(int endgame, int threads) {
+    Tablebase[] promotions = new Tablebase[2];
+    if (endgame == KPK) {
+      for (int i = 0; i < 2; i++) {
+        promotions[i] = tables[(i == 0) ? KQK : KRK];
+        if (promotions[i] == null)
+          promotions[i] = generate((i == 0) ? KQK : KRK, threads);
+      }
+    }
+
+    Tablebase table = new Tablebase(endgame, null);
+    ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Tablebase generator");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    try {
+      table.solve(pool, Math.max(1, threads), promotions);
+    } finally {
+      pool.shutdown();
+    }
+    register(table);
+    return table;
+  }
+
+  /**
+   * Fills in every entry of a new table.
+   * @param pool The threads to generate with.
+   * @param threads The number of threads of the pool.
+   * @param promotions The KQK and KRK tables for a KPK table, or nulls.
+   */
+  private void solve(ExecutorService pool, int threads, final Tablebase[] promotions) {
+    // The number of moves of the lone king not yet known to lose, by position with the lone king to move.
+    final byte[] escapes = new byte[size / 2];
+    int[][] buckets = new int[ILLEGAL][];
+    int[] bucketSizes = new int[ILLEGAL];
+
+    // Step 1: Classify every position, finding the checkmates, and the wins by promotion in KPK.
+    List<Callable<long[]>> scans = new ArrayList<Callable<long[]>>();
+    for (int start = 0; start < size; start += CHUNK) {
+      final int from = start;
+      scans.add(new Callable<long[]>() {
+        public long[] call() {
+          return scan(from, Math.min(from + CHUNK, size), escapes, promotions);
+        }
+      });
+    }
+    for (long[] found : runAll(pool, scans))
+      for (int i = 1; i <= (int) found[0]; i++)
+        add(buckets, bucketSizes, (int) (found[i] >>> 32), (int) found[i]);
+
+    // Step 2: Work backwards from the positions decided at each ply to the ones a ply further away.
+    for (int ply = 0; ply < ILLEGAL - 2; ply++) {
+      final int[] bucket = buckets[ply];
+      buckets[ply] = null;
+
+      // Drop any win by promotion that turned out to be slower than another way to win.
+      int bucketSize = 0;
+      for (int i = 0; i < bucketSizes[ply]; i++)
+        if ((entries.get(bucket[i]) & 0xFF) == ply + 1)
+          bucket[bucketSize++] = bucket[i];
+
+      for (int start = 0; start < bucketSize; start += CHUNK * threads) {
+        List<Callable<int[]>> unmoves = new ArrayList<Callable<int[]>>();
+        for (int from = start; from < Math.min(start + CHUNK * threads, bucketSize); from += CHUNK) {
+          final int first = from;
+          final int last = Math.min(from + CHUNK, bucketSize);
+          final int decided = ply;
+          unmoves.add(new Callable<int[]>() {
+            public int[] call() {
+              return predecessors(bucket, first, last, decided);
+            }
+          });
+        }
+
+        for (int[] found : runAll(pool, unmoves)) {
+          for (int i = 1; i <= found[0]; i++) {
+            int index = found[i];
+            int entry = entries.get(index) & 0xFF;
+
+            // Case 1: The strong side can move into a lost position, so it wins, unless it
+            // already wins faster. Only a win by promotion can be stored further away.
+            if (index >= size / 2) {
+              if (entry == DRAWN || (entry > ply + 2 && entry != ILLEGAL)) {
+                entries.put(index, (byte) (ply + 2));
+                add(buckets, bucketSizes, ply + 1, index);
+              }
+            }
+
+            // Case 2: The lone king's last move that didn't lose has been shown to lose.
+            else if (entry == DRAWN && --escapes[index] == 0) {
+              entries.put(index, (byte) (ply + 2));
+              add(buckets, bucketSizes, ply + 1, index);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Classifies a range of positions, storing whether each is impossible,
+   * checkmated, or yet to be decided, and counting the legal moves of each
+   * position with the lone king to move.
+   * @param from The index of the first position.
+   * @param to The index after the last position.
+   * @param escapes The counts of legal moves to fill in.
+   * @param promotions The KQK and KRK tables for a KPK table, or nulls.
+   * @return The positions decided so far, after their count: each is its index,
+   *         with the ply of its bucket in the high half.
+   */
+  private long[] scan(int from, int to, byte[] escapes, Tablebase[] promotions) {
+    int[] squares = new int[pieceCount];
+    long[] found = new long[16];
+    int count = 0;
+
+    for (int index = from; index < to; index++) {
+      int side = decode(index, squares);
+      long occupied = occupancy(squares);
+      if (occupied == 0 || !isLegal(side, squares, occupied)) {
+        entries.put(index, (byte) ILLEGAL);
+        continue;
+      }
+      entries.put(index, (byte) DRAWN);
+      int ply = -1;
+
+      // Case 1: The lone king is to move. Count its moves, and find the checkmates.
+      if (side == 0) {
+        int moves = countKingMoves(squares, occupied);
+        escapes[index] = (byte) moves;
+        if (moves == 0 && (strongAttacks(squares, occupied, -1) & (1L << squares[1])) != 0)
+          ply = 0;
+      }
+
+      // Case 2: The strong side is to move, and may promote its pawn into a won KQK or KRK position.
+      else if (promotions[0] != null && Position.rowOf(squares[2]) == 1 && (occupied & (1L << (squares[2] - 8))) == 0) {
+        for (Tablebase promoted : promotions) {
+          int distance = promoted.getDistance(((squares[0] << 6 | squares[1]) << 6) | (squares[2] - 8));
+          if (distance >= 0 && distance % 2 == 0 && (ply < 0 || distance + 1 < ply))
+            ply = distance + 1;
+        }
+      }
+
+      if (ply >= 0) {
+        entries.put(index, (byte) (ply + 1));
+        if (count + 1 == found.length)
+          found = Arrays.copyOf(found, 2 * found.length);
+        found[++count] = ((long) ply << 32) | index;
+      }
+    }
+    found[0] = count;
+    return found;
+  }
+
+  /**
+   * Finds every position a move away from the decided positions of a range of a bucket.
+   * A position the lone king lost leads back to positions where the strong side has
+   * just moved, and a position the strong side won leads back to where the lone king has.
+   * @param bucket The positions decided at a ply.
+   * @param from The first position of the range.
+   * @param to The position after the last one of the range.
+   * @param ply The ply the positions were decided at.
+   * @return The indices of the positions found, after their count.
+   */
+  private int[] predecessors(int[] bucket, int from, int to, int ply) {
+    int[] squares = new int[pieceCount];
+    int[] found = new int[64];
+    int count = 0;
+
+    for (int i = from; i < to; i++) {
+      int side = decode(bucket[i], squares);
+      long occupied = occupancy(squares);
+
+      // The lone king moved last if the strong side is to move, and any other piece otherwise.
+      for (int piece = 0; piece < pieceCount; piece++) {
+        if ((piece == 1) != (side == 1))
+          continue;
+
+        // Step 1: Find the squares the piece could have come from.
+        int square = squares[piece];
+        long origins;
+        if (piece == 0 || piece == 1)
+          origins = Bitboards.kingAttacks(square) & ~Bitboards.kingAttacks(squares[1 - piece]);
+        else if (pieces[piece - 2] == Position.PAWN) {
+          origins = 0L;
+          if (Position.rowOf(square) <= 5 && (occupied & (1L << (square + 8))) == 0) {
+            origins = 1L << (square + 8);
+            if (Position.rowOf(square) == 4 && (occupied & (1L << (square + 16))) == 0)
+              origins |= 1L << (square + 16);
+          }
+        } else
+          origins = pieceAttacks(pieces[piece - 2], square, occupied);
+        origins &= ~occupied;
+
+        // Step 2: Keep each origin where the player who didn't move isn't left in check.
+        for (; origins != 0; origins &= origins - 1) {
+          squares[piece] = Long.numberOfTrailingZeros(origins);
+          long before = occupied ^ (1L << square) ^ (1L << squares[piece]);
+          if (side == 1 || (strongAttacks(squares, before, -1) & (1L << squares[1])) == 0) {
+            if (count + 1 == found.length)
+              found = Arrays.copyOf(found, 2 * found.length);
+            found[++count] = encode(1 - side, squares);
+          }
+        }
+        squares[piece] = square;
+      }
+    }
+    found[0] = count;
+    return found;
+  }
+
+  /**
+   * Counts the legal moves of the lone king. A capture counts as a move that
+   * never loses, since it leads out of the table into a drawn endgame.
+   * @param squares The squares of the pieces.
+   * @param occupied The bitboard of every piece.
+   * @return The number of legal moves.
+   */
+  private int countKingMoves(int[] squares, long occupied) {
+    long without = occupied & ~(1L << squares[1]);
+    long attacked = strongAttacks(squares, without, -1);
+    int moves = 0;
+    for (long targets = Bitboards.kingAttacks(squares[1]); targets != 0; targets &= targets - 1) {
+      int target = Long.numberOfTrailingZeros(targets);
+      int captured = -1;
+      for (int i = 2; i < pieceCount; i++)
+        if (squares[i] == target)
+          captured = i;
+
+      long attackers = (captured < 0) ? attacked : strongAttacks(squares, without, captured);
+      if ((attackers & (1L << target)) == 0)
+        moves++;
+    }
+    return moves;
+  }
+
+  /**
+   * Determines whether or not an arrangement of the pieces is a position that
+   * could arise: the kings apart, pawns off the first and last rows, and the
+   * player who isn't to move not in check.
+   * @param side 1 if the strong side is to move, or 0 if the lone king is.
+   * @param squares The squares of the pieces.
+   * @param occupied The bitboard of every piece.
+   * @return Whether or not the position is legal.
+   */
+  private boolean isLegal(int side, int[] squares, long occupied) {
+    if ((Bitboards.kingAttacks(squares[0]) & (1L << squares[1])) != 0)
+      return false;
+    for (int i = 2; i < pieceCount; i++)
+      if (pieces[i - 2] == Position.PAWN && (Position.rowOf(squares[i]) == 0 || Position.rowOf(squares[i]) == 7))
+        return false;
+    return side == 0 || (strongAttacks(squares, occupied, -1) & (1L << squares[1])) == 0;
+  }
+
+  /**
+   * Returns the squares attacked by the strong side.
+   * @param squares The squares of the pieces.
+   * @param occupied The bitboard of every piece that blocks the sliders.
+   * @param captured The index of a piece that has been captured, or -1.
+   * @return The bitboard of attacked squares.
+   */
+  private long strongAttacks(int[] squares, long occupied, int captured) {
+    long attacks = Bitboards.kingAttacks(squares[0]);
+    for (int i = 2; i < pieceCount; i++)
+      if (i != captured)
+        attacks |= pieceAttacks(pieces[i - 2], squares[i], occupied);
+    return attacks;
+  }
+
+  /**
+   * Returns the squares attacked by a piece of the strong side, other than its king.
+   * @param type The type of the piece.
+   * @param square The square of the piece.
+   * @param occupied The bitboard of every piece that blocks the sliders.
+   * @return The bitboard of attacked squares.
+   */
+  private static long pieceAttacks(int type, int square, long occupied) {
+    switch (type) {
+      case Position.QUEEN:
+        return Bitboards.queenAttacks(square, occupied);
+      case Position.ROOK:
+        return Bitboards.rookAttacks(square, occupied);
+      case Position.BISHOP:
+        return Bitboards.bishopAttacks(square, occupied);
+      case Position.KNIGHT:
+        return Bitboards.knightAttacks(square);
+      default:
+        return Bitboards.pawnAttacks(1, square);
+    }
+  }
+
+  /**
+   * Returns the bitboard of every piece of an arrangement.
+   * @param squares The squares of the pieces.
+   * @return The bitboard, or 0 if two pieces share a square.
+   */
+  private long occupancy(int[] squares) {
+    long occupied = 0L;
+    for (int i = 0; i < pieceCount; i++) {
+      if ((occupied & (1L << squares[i])) != 0)
+        return 0L;
+      occupied |= 1L << squares[i];
+    }
+    return occupied;
+  }
+
+  /**
+   * Splits an index into the squares of the pieces: the strong king,
+   * the lone king, then the strong side's other pieces.
+   * @param index The index of the position.
+   * @param squares The array to fill with the squares.
+   * @return 1 if the strong side is to move, or 0 if the lone king is.
+   */
+  private int decode(int index, int[] squares) {
+    for (int i = pieceCount - 1; i >= 0; i--) {
+      squares[i] = index & 63;
+      index >>>= 6;
+    }
+    return index;
+  }
+
+  /**
+   * Joins the side to move and the squares of the pieces into an index.
+   * @param side 1 if the strong side is to move, or 0 if the lone king is.
+   * @param squares The squares of the pieces, in the order of decode.
+   * @return The index of the position.
+   */
+  private int encode(int side, int[] squares) {
+    int index = side;
+    for (int i = 0; i < pieceCount; i++)
+      index = (index << 6) | squares[i];
+    return index;
+  }
+
+  /**
+   * Adds a position to the bucket of a ply, growing the bucket if needed.
+   * @param buckets The positions decided at each ply.
+   * @param bucketSizes The number of positions in each bucket.
+   * @param ply The ply of the bucket.
+   * @param index The index of the position.
+   */
+  private static void add(int[][] buckets, int[] bucketSizes, int ply, int index) {
+    if (buckets[ply] == null)
+      buckets[ply] = new int[1024];
+    else if (bucketSizes[ply] == buckets[ply].length)
+      buckets[ply] = Arrays.copyOf(buckets[ply], 2 * bucketSizes[ply]);
+    buckets[ply][bucketSizes[ply]++] = index;
+  }
+
+  /**
+   * Runs tasks on a pool and waits for every result, in the order of the tasks.
+   * @param pool The threads to run the tasks on.
+   * @param tasks The tasks to run.
+   * @return The result of each task.
+   */
+  private static <T> List<T> runAll(ExecutorService pool, List<Callable<T>> tasks) {
+    List<T> results = new ArrayList<T>(tasks.size());
+    try {
+      for (Future<T> result : pool.invokeAll(tasks))
+        results.add(result.get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Tablebase generation was interrupted", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("A tablebase generator failed", e.getCause());
+    }
+    return results;
+  }
+
+  public static void main(String[] args) throws IOException {
+    // Case 1: Generate one or every table, and write each to a file.
+    if (args.length >= 1 && args[0].equals("generate")) {
+      String which = (args.length > 1) ? args[1] : "all";
+      Path dir = Paths.get((args.length > 2 && !args[2].startsWith("threads=")) ? args[2] : ".");
+      int threads = Runtime.getRuntime().availableProcessors();
+      for (String arg : args)
+        if (arg.startsWith("threads="))
+          threads = Integer.parseInt(arg.substring(8));
+
+      for (int i = 0; i < NAMES.length; i++) {
+        if (!which.equalsIgnoreCase("all") && !which.equalsIgnoreCase(NAMES[i]))
+          continue;
+        long start = System.nanoTime();
+        Tablebase table = (tables[i] != null) ? tables[i] : generate(i, threads);
+        table.save(dir.resolve(NAMES[i] + ".tb"));
+
+        int longest = 0;
+        long won = 0;
+        long drawn = 0;
+        for (int index = table.size / 2; index < table.size; index++) {
+          int distance = table.getDistance(index);
+          if (distance >= 0)
+            won++;
+          else if (distance == DRAW)
+            drawn++;
+          longest = Math.max(longest, distance);
+        }
+        System.out.printf("%s: %,d won and %,d drawn with the strong side to move, longest mate %d plies, %.3f s%n",
+                          NAMES[i], won, drawn, longest, (System.nanoTime() - start) / 1e9);
+      }
+    }
+
+    // Case 2: Look up a position in the tables of a directory.
+    else if (args.length >= 3 && args[0].equals("probe")) {
+      loadAll(Paths.get(args[1]));
+      Position position = new Position();
+      position.loadFen(String.join(" ", Arrays.copyOfRange(args, 2, args.length)));
+
+      long start = System.nanoTime();
+      int distance = probeDtm(position);
+      long nanos = System.nanoTime() - start;
+      int move = bestMove(position, new int[Move.MAX_MOVES]);
+      System.out.println((distance == MISSING) ? "Not in the tables" : describe(position)
+                         + ((move == Move.NONE) ? "" : ", best move " + Move.toString(move)));
+      System.out.printf("Found in %.1f us%n", nanos / 1e3);
+    }
+
+    else
+      System.out.println("Usage: java Tablebase generate [KQK|KRK|KBNK|KPK|all] [dir] [threads=N] | probe dir fen");
+  }
+}
@@ -1,5 +1,8 @@
 
-/** The text version of the Chess game.
+/** The text version of the Chess game. Sending "top" or "bottom" as an
+ * argument lets the computer play that side, and "depth=N", "nodes=N", or
+ * "time=MILLISECONDS" limits how long the computer thinks about each move,
+ * while "threads=N" sets how many threads it thinks with.
  * @author Eric Wu
  * @author Yatin Ravi
  * @author Paul Shin
@@ -7,6 +10,6 @@
  */
 public class TextBasedChess {
   public static void main(String[] args) {
-    (new Game(1200)).playText();
+    (new Game(1200, ComputerPlayer.create(0, args), ComputerPlayer.create(1, args))).playText();
   }
 }
\ No newline at end of file
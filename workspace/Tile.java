@@ -23,18 +23,23 @@ public class Tile extends JButton {
   /** The piece currently on the tile. */
   private Piece piece;
 
+  /** The game the tile belongs to. */
+  private GameSession session;
+
   /**
    * Constructor for the Tile class. Initializes a new Tile,
    * composed of a button that can handle moves based on the
    * current state in the sequence of events.
+   * @param session The game the Tile belongs to.
    * @param r The row of the Tile on the Chess board.
    * @param c The column of the Tile on the Chess board.
    */
-  public Tile(int r, int c) {
+  public Tile(final GameSession session, int r, int c) {
+    this.session = session;
     row = r;
     col = c;
 
-    int u = Game.getUnit();
+    int u = session.getUnit();
 
     setBounds(u * (c + 2), u * (r + 2), u, u);
 
@@ -46,11 +51,11 @@ public class Tile extends JButton {
     addActionListener(new ActionListener() {
 
       public void actionPerformed(ActionEvent e) {
-        // Only accept moves if no winner has been found.
-        if (Game.getStatus() == -1) {
+        // Only accept moves while the game goes on.
+        if (!session.isOver()) {
           // Retrieve the necessary variables to handle the response.
           Tile tile = (Tile) (e.getSource());
-          Game.getBoard().handleRequest(tile);
+          session.getBoard().handleRequest(tile);
         }
       }
 
@@ -58,7 +63,7 @@ public class Tile extends JButton {
 
     // Create thicker borders around the edges.
     int up, down, left, right;
-    int thickness = Game.getScale() / 200;
+    int thickness = session.getScale() / 200;
     up = (row == 0) ? thickness : 0;
     down = (row == 7) ? thickness : 0;
     left = (col == 0) ? thickness : 0;
@@ -108,10 +113,11 @@ public class Tile extends JButton {
     Piece oldPiece = piece;
     piece = p;
     
-    if (p == null)
+    // A game without a window, which has a scale of 0, shows no images.
+    if (p == null || session.getUnit() == 0)
       setImageIcon(null);
     else
-      setImageIcon(p.getImageIcon());
+      setImageIcon(p.getImageIcon(session.getUnit()));
 
     return oldPiece;
   }
@@ -11,7 +11,7 @@ public class TileTester {
     System.out.println("Start test for Tile.java:");
     System.out.println("*~*~*~*~*~*~*~*~*~*~*~*~*");
     Game game = new Game(800);
-    Tile tile = new Tile(0, 0);
+    Tile tile = new Tile(game.getSession(), 0, 0);
 
     // Testing setPiece()
     System.out.println("\nAdding pawn to the tile...");
@@ -0,0 +1,677 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Plays two configurations of the engine against each other to tell
+ * whether a change made it stronger. A configuration is either this build's
+ * Engine, run in the same program, or any engine speaking the Universal
+ * Chess Interface run as a separate process, such as UciChess from another
+ * build. Games are played in pairs from the same random opening, each
+ * configuration playing white once, so that the luck of the opening cancels
+ * out, and the pairs are shared among a fixed pool of threads.
+ *
+ * After each pair the difference in Elo is printed with its 95% interval,
+ * together with the log-likelihood ratio of the sequential probability ratio
+ * test of elo0 against elo1. The run stops as soon as the ratio crosses
+ * either bound, accepting one of the two. Each finished pair is appended to
+ * the results file at once, and a run started again with the same file
+ * skips the pairs already played.
+ *
+ * Usage: java Tournament [a.OPTION=VALUE] [b.OPTION=VALUE] [pairs=N] [threads=N] [random=PLIES]
+ *                        [maxplies=N] [seed=N] [elo0=ELO] [elo1=ELO] [alpha=P] [beta=P] [out=FILE]
+ *   where each configuration's options are cmd=COMMAND, nodes=N, time=MILLISECONDS, depth=N and hash=MEGABYTES
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class Tournament {
+  /* # DATA STRUCTURES # */
+
+  /** The number of standard deviations of a 95% interval. */
+  private static final double Z_95 = 1.959964;
+
+  /** The number of pairs of each score assumed before any are played, so that a few lucky pairs can't end the test. */
+  private static final double PRIOR_PAIRS = 0.5;
+
+  /** The options of the two configurations, by index. */
+  private Config[] configs;
+
+  /** The largest number of pairs to play. */
+  private int pairs;
+
+  /** The number of pairs played at once. */
+  private int threads;
+
+  /** The number of random moves each opening has. */
+  private int randomPlies;
+
+  /** The number of moves after which a game is drawn. */
+  private int maxPlies;
+
+  /** The seed of the random openings. */
+  private long seed;
+
+  /** The Elo difference of the null hypothesis. */
+  private double elo0;
+
+  /** The Elo difference of the alternative hypothesis. */
+  private double elo1;
+
+  /** The log-likelihood ratio below which elo0 is accepted. */
+  private double lowerBound;
+
+  /** The log-likelihood ratio above which elo1 is accepted. */
+  private double upperBound;
+
+  /** The pairs already played, by index. */
+  private BitSet played;
+
+  /** The index of the next pair to consider. */
+  private AtomicInteger nextPair;
+
+  /** The number of pairs by the points the first configuration scored in them, in half points from 0 to 4. */
+  private long[] pentanomial;
+
+  /** The wins, draws and losses of the first configuration. */
+  private long[] games;
+
+  /** Where each finished pair is appended, or null. */
+  private Writer results;
+
+  /** Whether the test has reached a decision, so that no more pairs are started. */
+  private volatile boolean decided;
+
+  /** The options of one configuration of an engine. */
+  public static class Config {
+    /** The command starting an engine speaking the Universal Chess Interface, or null for this build's Engine. */
+    public String command;
+
+    /** The number of nodes searched for each move, or 0 for no limit. */
+    public long nodes = SelfPlay.DEFAULT_NODES;
+
+    /** The time searched for each move in milliseconds, or 0 for no limit. */
+    public long time;
+
+    /** The deepest iteration searched for each move. */
+    public int depth = Engine.MAX_PLY;
+
+    /** The size of the transposition table in megabytes. */
+    public int hash = SelfPlay.DEFAULT_HASH;
+
+    /**
+     * Sets one option of the configuration.
+     * @param name The name of the option.
+     * @param value The value of the option.
+     * @return Whether the option exists.
+     */
+    public boolean set(String name, String value) {
+      switch (name) {
+        case "cmd" : command = value; break;
+        case "nodes" : nodes = Long.parseLong(value); break;
+        case "time" : time = Long.parseLong(value); nodes = 0; break;
+        case "depth" : depth = Integer.parseInt(value); break;
+        case "hash" : hash = Integer.parseInt(value); break;
+        default : return false;
+      }
+      return true;
+    }
+
+    /**
+     * Returns the configuration as the options it was set with.
+     * @return The String representation of the configuration.
+     */
+    public String toString() {
+      return ((command == null) ? "engine" : "cmd=" + command) + " nodes=" + nodes + " time=" + time
+             + " depth=" + depth + " hash=" + hash;
+    }
+  }
+
+  /** A configuration playing the games of one thread, which chooses its moves one at a time. */
+  private abstract static class Contender {
+    /** Forgets everything learned from the previous game. */
+    public abstract void newGame() throws IOException;
+
+    /**
+     * Chooses the move to play in a position.
+     * @param position The position, which holds every move from the initial position.
+     * @return The encoded move, which may be illegal if an external engine is broken.
+     * @throws IOException if an external engine can't be reached.
+     */
+    public abstract int chooseMove(Position position) throws IOException;
+
+    /** Frees what the contender holds. */
+    public abstract void close();
+  }
+
+  /** A configuration searching with this build's Engine. */
+  private static class EngineContender extends Contender {
+    /** The engine searching the moves. */
+    private Engine engine;
+
+    /**
+     * Constructor for the EngineContender class.
+     * @param config The options of the engine.
+     */
+    public EngineContender(Config config) {
+      engine = new Engine(new TranspositionTable(config.hash));
+      engine.setNodeLimit(config.nodes);
+      engine.setTimeLimit(config.time);
+      engine.setDepthLimit(config.depth);
+    }
+
+    public void newGame() {
+      engine.getTable().clear();
+    }
+
+    public int chooseMove(Position position) {
+      return engine.search(position);
+    }
+
+    public void close() {
+    }
+  }
+
+  /** A configuration searching with a separate process that speaks the Universal Chess Interface. */
+  private static class UciContender extends Contender {
+    /** The running engine. */
+    private Process process;
+
+    /** The commands sent to the engine. */
+    private Writer in;
+
+    /** The replies of the engine. */
+    private BufferedReader out;
+
+    /** The go command with the limits of the search. */
+    private String go;
+
+    /** A reusable buffer for the legal moves of the position. */
+    private int[] moves;
+
+    /**
+     * Constructor for the UciContender class. Starts the engine and waits until it is ready.
+     * @param config The options of the engine.
+     * @throws IOException if the engine can't be started.
+     */
+    public UciContender(Config config) throws IOException {
+      process = new ProcessBuilder(config.command.trim().split("\\s+"))
+        .redirectError(ProcessBuilder.Redirect.DISCARD).start();
+      in = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.US_ASCII));
+      out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.US_ASCII));
+      moves = new int[Move.MAX_MOVES];
+
+      go = "go";
+      if (config.nodes > 0)
+        go += " nodes " + config.nodes;
+      if (config.time > 0)
+        go += " movetime " + config.time;
+      if (config.depth < Engine.MAX_PLY)
+        go += " depth " + config.depth;
+
+      send("uci");
+      waitFor("uciok");
+      send("setoption name Hash value " + config.hash);
+    }
+
+    public void newGame() throws IOException {
+      send("ucinewgame");
+      send("isready");
+      waitFor("readyok");
+    }
+
+    public int chooseMove(Position position) throws IOException {
+      StringBuilder command = new StringBuilder("position startpos moves");
+      for (int ply = 0; ply < position.getPly(); ply++)
+        command.append(' ').append(Move.toString(position.getMove(ply)));
+      send(command.toString());
+      send(go);
+      String reply = waitFor("bestmove");
+      String text = reply.split("\\s+")[1];
+
+      int count = position.generateLegalMoves(moves);
+      for (int i = 0; i < count; i++)
+        if (Move.toString(moves[i]).equals(text))
+          return moves[i];
+      return Move.NONE;
+    }
+
+    public void close() {
+      try {
+        send("quit");
+      } catch (IOException e) {
+        // The engine has already stopped.
+      }
+      process.destroy();
+    }
+
+    /**
+     * Sends a command to the engine.
+     * @param line The command.
+     * @throws IOException if the engine has stopped.
+     */
+    private void send(String line) throws IOException {
+      in.write(line);
+      in.write('\n');
+      in.flush();
+    }
+
+    /**
+     * Reads the replies of the engine until one starts with the given word.
+     * @param word The first word of the reply to wait for.
+     * @return The reply.
+     * @throws IOException if the engine stops first.
+     */
+    private String waitFor(String word) throws IOException {
+      for (String line; (line = out.readLine()) != null; )
+        if (line.equals(word) || line.startsWith(word + " "))
+          return line;
+      throw new IOException("The engine stopped before sending " + word);
+    }
+  }
+
+  /**
+   * Constructor for the Tournament class. Sets up a run with the usual bounds of
+   * the test: accepting elo0 = 0 or elo1 = 5 with errors of 5% either way.
+   * @param a The options of the first configuration.
+   * @param b The options of the second configuration.
+   * @param pairs The largest number of pairs to play.
+   * @param threads The number of pairs played at once.
+   */
+  public Tournament(Config a, Config b, int pairs, int threads) {
+    configs = new Config[] {a, b};
+    this.pairs = pairs;
+    this.threads = Math.max(1, threads);
+    randomPlies = SelfPlay.DEFAULT_RANDOM_PLIES;
+    maxPlies = SelfPlay.DEFAULT_MAX_PLIES;
+    played = new BitSet(pairs);
+    nextPair = new AtomicInteger();
+    pentanomial = new long[5];
+    games = new long[3];
+    setBounds(0, 5, 0.05, 0.05);
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Sets the hypotheses of the sequential probability ratio test.
+   * @param elo0 The Elo difference of the null hypothesis.
+   * @param elo1 The Elo difference of the alternative hypothesis.
+   * @param alpha The chance of accepting elo1 when elo0 is true.
+   * @param beta The chance of accepting elo0 when elo1 is true.
+   */
+  public void setBounds(double elo0, double elo1, double alpha, double beta) {
+    this.elo0 = elo0;
+    this.elo1 = elo1;
+    lowerBound = Math.log(beta / (1 - alpha));
+    upperBound = Math.log((1 - beta) / alpha);
+  }
+
+  /**
+   * Sets how each opening is made and how long a game may last.
+   * @param random The number of random moves each opening has.
+   * @param max The number of moves after which a game is drawn.
+   * @param seed The seed of the random openings, which must stay the same for a run to be resumed.
+   */
+  public void setOpenings(int random, int max, long seed) {
+    randomPlies = random;
+    maxPlies = max;
+    this.seed = seed;
+  }
+
+  /**
+   * Reads the pairs already played from a results file, if it exists, and appends the pairs played from now on to it.
+   * @param path The results file.
+   * @throws IOException if the file can't be read or written.
+   */
+  public void openResults(Path path) throws IOException {
+    // Step 1: Count the pairs of an earlier run, whose lines are "pair INDEX RESULT RESULT".
+    if (Files.exists(path)) {
+      for (String line : Files.readAllLines(path, StandardCharsets.US_ASCII)) {
+        String[] words = line.trim().split("\\s+");
+        if (words.length != 4 || !words[0].equals("pair"))
+          continue;
+        int pair = Integer.parseInt(words[1]);
+        int first = GameRecord.resultOf(words[2]);
+        int second = GameRecord.resultOf(words[3]);
+        if (!played.get(pair) && first != GameRecord.UNKNOWN && second != GameRecord.UNKNOWN)
+          count(pair, first, second);
+      }
+    }
+
+    // Step 2: Note the options of this run, then append the pairs to come.
+    results = Files.newBufferedWriter(path, StandardCharsets.US_ASCII, StandardOpenOption.CREATE,
+                                      StandardOpenOption.APPEND);
+    results.write("# a: " + configs[0] + "\n# b: " + configs[1] + "\n# random=" + randomPlies
+                  + " maxplies=" + maxPlies + " seed=" + seed + "\n");
+    results.flush();
+  }
+
+  /**
+   * Plays the pairs on the pool of threads until the test reaches a decision or every pair is played.
+   * @throws IOException if a configuration can't be started or the results can't be written.
+   */
+  public void run() throws IOException {
+    decided = decide() != 0;
+    ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "Tournament");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    List<Future<Void>> players = new ArrayList<Future<Void>>();
+    for (int i = 0; i < threads; i++)
+      players.add(pool.submit(new Callable<Void>() {
+        public Void call() throws IOException {
+          playPairs();
+          return null;
+        }
+      }));
+
+    try {
+      for (Future<Void> player : players)
+        player.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException)
+        throw (IOException) e.getCause();
+      throw new IllegalStateException("A tournament thread failed", e.getCause());
+    } finally {
+      pool.shutdownNow();
+      if (results != null)
+        results.close();
+    }
+  }
+
+  /**
+   * Plays pairs on the calling thread, one after another, until none are left or the test reaches a decision.
+   * @throws IOException if a configuration can't be started or the results can't be written.
+   */
+  private void playPairs() throws IOException {
+    Contender[] contenders = new Contender[2];
+    try {
+      for (int i = 0; i < 2; i++)
+        contenders[i] = (configs[i].command == null) ? new EngineContender(configs[i]) : new UciContender(configs[i]);
+      Position position = new Position();
+      int[] moves = new int[Move.MAX_MOVES];
+
+      for (int pair; !decided && (pair = nextPair.getAndIncrement()) < pairs; ) {
+        synchronized (this) {
+          if (played.get(pair))
+            continue;
+        }
+
+        // Play the same opening twice, the first configuration taking white, then black.
+        int[] result = new int[2];
+        for (int game = 0; game < 2; game++) {
+          position.reset();
+          SelfPlay.playRandomMoves(position, new Random(seed * 1000003L + pair), randomPlies, moves);
+          Contender white = contenders[game];
+          Contender black = contenders[1 - game];
+          white.newGame();
+          black.newGame();
+          result[game] = play(position, white, black, moves);
+        }
+        record(pair, result[0], result[1]);
+      }
+    } finally {
+      for (Contender contender : contenders)
+        if (contender != null)
+          contender.close();
+    }
+  }
+
+  /**
+   * Plays a game from a position until it ends. A side choosing an illegal move loses,
+   * and a game still going after the longest number of moves is a draw.
+   * @param position The position to play from.
+   * @param white The contender playing white.
+   * @param black The contender playing black.
+   * @param moves A buffer to generate the legal moves into.
+   * @return The result of the game, from GameRecord.WHITE_WINS to GameRecord.DRAW.
+   * @throws IOException if an external engine can't be reached.
+   */
+  private int play(Position position, Contender white, Contender black, int[] moves) throws IOException {
+    int status;
+    while ((status = position.getStatus(moves)) == Position.ONGOING && position.getPly() < maxPlies) {
+      int turn = position.getTurn();
+      int move = ((turn == 1) ? white : black).chooseMove(position);
+      if (!isLegal(position, move, moves)) {
+        System.err.println("Illegal move " + Move.toString(move) + " by " + ((turn == 1) ? "white" : "black"));
+        return (turn == 1) ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS;
+      }
+      position.makeMove(move);
+    }
+    return (status == Position.ONGOING) ? GameRecord.DRAW : GameRecord.resultOf(status, position.getTurn());
+  }
+
+  /**
+   * Returns whether a move is one of the legal moves of a position.
+   * @param position The position.
+   * @param move The encoded move.
+   * @param moves A buffer to generate the legal moves into.
+   * @return Whether the move is legal.
+   */
+  private static boolean isLegal(Position position, int move, int[] moves) {
+    int count = position.generateLegalMoves(moves);
+    for (int i = 0; i < count; i++)
+      if (moves[i] == move)
+        return true;
+    return false;
+  }
+
+  /**
+   * Counts a finished pair, appends it to the results and prints the standing.
+   * @param pair The index of the pair.
+   * @param first The result of the game the first configuration played white.
+   * @param second The result of the game the first configuration played black.
+   * @throws IOException if the results can't be written.
+   */
+  private synchronized void record(int pair, int first, int second) throws IOException {
+    count(pair, first, second);
+    if (results != null) {
+      results.write("pair " + pair + " " + GameRecord.resultName(first) + " " + GameRecord.resultName(second) + "\n");
+      results.flush();
+    }
+    int decision = decide();
+    System.out.println(standing());
+    if (decision != 0 && !decided) {
+      decided = true;
+      System.out.println((decision > 0) ? "H1 accepted: a is stronger by at least elo1" : "H0 accepted: a is not stronger by elo1");
+    }
+  }
+
+  /**
+   * Adds a pair to the counts.
+   * @param pair The index of the pair.
+   * @param first The result of the game the first configuration played white.
+   * @param second The result of the game the first configuration played black.
+   */
+  private synchronized void count(int pair, int first, int second) {
+    played.set(pair);
+    int halfPoints = 0;
+    for (int score : new int[] {halfPoints(first, 1), halfPoints(second, 0)}) {
+      halfPoints += score;
+      games[2 - score]++;
+    }
+    pentanomial[halfPoints]++;
+  }
+
+  /**
+   * Returns the half points the first configuration scored in a game.
+   * @param result The result of the game.
+   * @param color The player ID the first configuration played.
+   * @return 2 for a win, 1 for a draw or 0 for a loss.
+   */
+  private static int halfPoints(int result, int color) {
+    if (result == GameRecord.DRAW)
+      return 1;
+    return ((result == GameRecord.WHITE_WINS) == (color == 1)) ? 2 : 0;
+  }
+
+  /**
+   * Returns the mean and variance of the first configuration's score per game, taken over pairs.
+   * @param prior The number of pairs of each score assumed besides those played.
+   * @return The mean, the variance of one pair's score, and the number of pairs played.
+   */
+  private synchronized double[] scoreStatistics(double prior) {
+    long played = 0;
+    double n = 0;
+    double sum = 0;
+    for (int i = 0; i < 5; i++) {
+      played += pentanomial[i];
+      n += pentanomial[i] + prior;
+      sum += (pentanomial[i] + prior) * i / 4.0;
+    }
+    if (n == 0)
+      return new double[] {0.5, 0, 0};
+    double mean = sum / n;
+    double variance = 0;
+    for (int i = 0; i < 5; i++)
+      variance += (pentanomial[i] + prior) * (i / 4.0 - mean) * (i / 4.0 - mean);
+    return new double[] {mean, variance / n, played};
+  }
+
+  /**
+   * Returns the log-likelihood ratio of elo1 against elo0, by the normal approximation of the
+   * generalized sequential probability ratio test over the pairs' scores.
+   * A few pairs of every score are assumed besides those played, which keeps
+   * the variance from looking small after only a handful of pairs.
+   * @return The log-likelihood ratio.
+   */
+  public double getLlr() {
+    double[] stats = scoreStatistics(PRIOR_PAIRS);
+    double s0 = expectedScore(elo0);
+    double s1 = expectedScore(elo1);
+    return stats[2] * (s1 - s0) * (2 * stats[0] - s0 - s1) / (2 * stats[1]);
+  }
+
+  /**
+   * Returns the decision of the test so far.
+   * @return 1 if elo1 is accepted, -1 if elo0 is accepted, or 0 if more pairs are needed.
+   */
+  private int decide() {
+    double llr = getLlr();
+    return (llr >= upperBound) ? 1 : (llr <= lowerBound) ? -1 : 0;
+  }
+
+  /**
+   * Returns the first configuration's expected score per game given its Elo advantage.
+   * @param elo The Elo difference.
+   * @return The expected score from 0 to 1.
+   */
+  private static double expectedScore(double elo) {
+    return 1 / (1 + Math.pow(10, -elo / 400));
+  }
+
+  /**
+   * Returns the Elo difference that gives the first configuration an expected score.
+   * @param score The expected score, which is kept just inside 0 to 1.
+   * @return The Elo difference.
+   */
+  private static double eloOf(double score) {
+    score = Math.max(1e-6, Math.min(score, 1 - 1e-6));
+    return -400 * Math.log10(1 / score - 1);
+  }
+
+  /**
+   * Returns the standing of the first configuration: its games, its Elo with a 95% interval, and the test's progress.
+   * @return The standing on one line.
+   */
+  public synchronized String standing() {
+    double[] stats = scoreStatistics(0);
+    double margin = (stats[2] > 0) ? Z_95 * Math.sqrt(stats[1] / stats[2]) : 0;
+    double elo = eloOf(stats[0]);
+    return String.format("Pairs %d, a vs b +%d =%d -%d, Elo %.1f [%.1f, %.1f], LLR %.2f (%.2f, %.2f)",
+                         (long) stats[2], games[0], games[1], games[2], elo, eloOf(stats[0] - margin),
+                         eloOf(stats[0] + margin), getLlr(), lowerBound, upperBound);
+  }
+
+  public static void main(String[] args) throws IOException {
+    Config a = new Config();
+    Config b = new Config();
+    int pairs = 10000;
+    int threads = Runtime.getRuntime().availableProcessors();
+    int random = SelfPlay.DEFAULT_RANDOM_PLIES;
+    int maxPlies = SelfPlay.DEFAULT_MAX_PLIES;
+    long seed = 1;
+    double elo0 = 0;
+    double elo1 = 5;
+    double alpha = 0.05;
+    double beta = 0.05;
+    String out = null;
+
+    for (String arg : args) {
+      int equals = arg.indexOf('=');
+      String name = arg.substring(0, Math.max(0, equals));
+      String value = arg.substring(equals + 1);
+      boolean known = true;
+      if (name.startsWith("a."))
+        known = a.set(name.substring(2), value);
+      else if (name.startsWith("b."))
+        known = b.set(name.substring(2), value);
+      else if (name.equals("pairs"))
+        pairs = Integer.parseInt(value);
+      else if (name.equals("threads"))
+        threads = Integer.parseInt(value);
+      else if (name.equals("random"))
+        random = Integer.parseInt(value);
+      else if (name.equals("maxplies"))
+        maxPlies = Integer.parseInt(value);
+      else if (name.equals("seed"))
+        seed = Long.parseLong(value);
+      else if (name.equals("elo0"))
+        elo0 = Double.parseDouble(value);
+      else if (name.equals("elo1"))
+        elo1 = Double.parseDouble(value);
+      else if (name.equals("alpha"))
+        alpha = Double.parseDouble(value);
+      else if (name.equals("beta"))
+        beta = Double.parseDouble(value);
+      else if (name.equals("out"))
+        out = value;
+      else
+        known = false;
+      if (!known) {
+        System.out.println("Usage: java Tournament [a.OPTION=VALUE] [b.OPTION=VALUE] [pairs=N] [threads=N] [random=PLIES]"
+                           + " [maxplies=N] [seed=N] [elo0=ELO] [elo1=ELO] [alpha=P] [beta=P] [out=FILE]");
+        System.out.println("  where each configuration's options are cmd=COMMAND, nodes=N, time=MILLISECONDS,"
+                           + " depth=N and hash=MEGABYTES");
+        return;
+      }
+    }
+
+    Tournament tournament = new Tournament(a, b, pairs, threads);
+    tournament.setBounds(elo0, elo1, alpha, beta);
+    tournament.setOpenings(random, maxPlies, seed);
+    if (out != null)
+      tournament.openResults(Paths.get(out));
+    System.out.println("a: " + a + "\nb: " + b);
+    tournament.run();
+    System.out.println(tournament.standing());
+  }
+}
@@ -0,0 +1,205 @@
+import java.util.Arrays;
+
+/** Remembers the results of searching positions, so that a position reached
+ * again through a different order of moves doesn't have to be searched twice.
+ * The table is one preallocated array of longs, split into buckets of two
+ * entries keyed by the Zobrist hash of the position. The first entry of a
+ * bucket keeps the deepest result, while the second always takes the newest.
+ * Each entry is two words: the packed data, and the hash key exclusive-ored
+ * with the data. Many search threads may share the table without locks, since
+ * an entry torn by two threads writing at once fails the key check on reading
+ * and simply counts as missing.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class TranspositionTable {
+  /* # DATA STRUCTURES # */
+
+  /** The bound of a score which is exact. */
+  public static final int EXACT = 1;
+
+  /** The bound of a score which is at least the stored value, i.e. caused a cutoff. */
+  public static final int LOWER = 2;
+
+  /** The bound of a score which is at most the stored value, i.e. no move raised alpha. */
+  public static final int UPPER = 3;
+
+  /** The data returned by probe when the position is not in the table. */
+  public static final long MISSING = 0L;
+
+  /** The number of longs in a bucket: two entries of two words each. */
+  private static final int BUCKET_LONGS = 4;
+
+  /** The number of bytes in a bucket. */
+  private static final int BUCKET_BYTES = BUCKET_LONGS * 8;
+
+  /** The entries of the table, four longs per bucket. */
+  private final long[] table;
+
+  /** The number of buckets minus one, used to index a bucket by hash key. */
+  private final int mask;
+
+  /** The age of the current search, so that results of old searches are replaced first. */
+  private int age;
+
+  /**
+   * Constructor for the TranspositionTable class. Allocates the largest
+   * power of two buckets that fits in the given amount of memory.
+   * @param megabytes The memory budget of the table, at least 1.
+   */
+  public TranspositionTable(int megabytes) {
+    if (megabytes < 1)
+      throw new IllegalArgumentException("The table needs at least 1 MB, not " + megabytes);
+
+    long buckets = Long.highestOneBit(((long) megabytes << 20) / BUCKET_BYTES);
+    buckets = Math.min(buckets, 1L << 28); // The array of longs can't hold more.
+    table = new long[(int) buckets * BUCKET_LONGS];
+    mask = (int) buckets - 1;
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the memory actually used by the table's entries.
+   * @return The size of the table in bytes.
+   */
+  public long getSizeInBytes() {
+    return 8L * table.length;
+  }
+
+  /** Removes every entry from the table. */
+  public void clear() {
+    Arrays.fill(table, 0L);
+    age = 0;
+  }
+
+  /**
+   * Marks the beginning of a new search, so that entries stored by
+   * earlier searches give way to new ones regardless of their depth.
+   */
+  public void newSearch() {
+    age = (age + 1) & 255;
+  }
+
+  /**
+   * Looks up the entry of a position.
+   * @param key The Zobrist hash key of the position.
+   * @return The packed data of the entry, or MISSING if there is none.
+   */
+  public long probe(long key) {
+    int index = ((int) key & mask) * BUCKET_LONGS;
+
+    // Read each word once, since another thread may be writing them.
+    for (int i = index; i < index + BUCKET_LONGS; i += 2) {
+      long data = table[i + 1];
+      if ((table[i] ^ data) == key && data != MISSING)
+        return data;
+    }
+    return MISSING;
+  }
+
+  /**
+   * Stores the result of searching a position. The first entry of the
+   * bucket is replaced if it holds the same position, a shallower search,
+   * or a search from an earlier move; otherwise the second entry is.
+   * @param key The Zobrist hash key of the position.
+   * @param move The best move found, or Move.NONE.
+   * @param score The score of the position, between -32768 and 32767.
+   * @param depth The depth searched, between 0 and 255.
+   * @param bound EXACT, LOWER, or UPPER.
+   */
+  public void store(long key, int move, int score, int depth, int bound) {
+    int index = ((int) key & mask) * BUCKET_LONGS;
+    long old = table[index + 1];
+    boolean samePosition = (table[index] ^ old) == key;
+
+    // Keep the best move of the position if this search didn't find one.
+    if (move == Move.NONE && samePosition)
+      move = move(old);
+    else if (move == Move.NONE && (table[index + 2] ^ table[index + 3]) == key)
+      move = move(table[index + 3]);
+
+    long data = pack(move, score, depth, bound, age);
+    if (!samePosition && depth < depth(old) && age(old) == age)
+      index += 2;
+    table[index] = key ^ data;
+    table[index + 1] = data;
+  }
+
+  /**
+   * Estimates how full the table is from its first thousand buckets.
+   * @return The number of entries stored by the current search per thousand.
+   */
+  public int hashfull() {
+    int buckets = Math.min(1000, mask + 1);
+    int used = 0;
+
+    for (int i = 0; i < buckets * BUCKET_LONGS; i += 2)
+      if (table[i + 1] != MISSING && age(table[i + 1]) == age)
+        used++;
+    return used * 1000 / (2 * buckets);
+  }
+
+  /**
+   * Packs the fields of an entry into one word. The move takes bits 0-15,
+   * the score bits 16-31, the depth bits 32-39, the bound bits 40-41, and
+   * the age bits 48-55. Since every bound is non-zero, so is the word.
+   * @param move The best move.
+   * @param score The score.
+   * @param depth The depth searched.
+   * @param bound The bound of the score.
+   * @param age The age of the search.
+   * @return The packed data.
+   */
+  private static long pack(int move, int score, int depth, int bound, int age) {
+    return (move & 0xFFFFL) | ((score & 0xFFFFL) << 16) | ((long) (depth & 255) << 32)
+         | ((long) bound << 40) | ((long) age << 48);
+  }
+
+  /**
+   * Returns the best move of packed entry data.
+   * @param data The data returned by probe.
+   * @return The encoded move, or Move.NONE.
+   */
+  public static int move(long data) {
+    return (int) (data & 0xFFFF);
+  }
+
+  /**
+   * Returns the score of packed entry data.
+   * @param data The data returned by probe.
+   * @return The score.
+   */
+  public static int score(long data) {
+    return (short) (data >>> 16);
+  }
+
+  /**
+   * Returns the depth of packed entry data.
+   * @param data The data returned by probe.
+   * @return The depth searched.
+   */
+  public static int depth(long data) {
+    return (int) ((data >>> 32) & 255);
+  }
+
+  /**
+   * Returns the bound of packed entry data.
+   * @param data The data returned by probe.
+   * @return EXACT, LOWER, or UPPER.
+   */
+  public static int bound(long data) {
+    return (int) ((data >>> 40) & 3);
+  }
+
+  /**
+   * Returns the age of packed entry data.
+   * @param data The packed data.
+   * @return The age of the search which stored the entry.
+   */
+  private static int age(long data) {
+    return (int) ((data >>> 48) & 255);
+  }
+}
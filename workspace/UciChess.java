@@ -0,0 +1,365 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
+import java.nio.file.Paths;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/** The Universal Chess Interface version of the Chess game, which lets
+ * tournament programs and graphical front ends play the Engine. Commands are
+ * read from the console one per line: uci, isready, setoption (Hash and
+ * Threads), ucinewgame, position, go (depth, nodes, movetime, wtime, btime,
+ * winc, binc, movestogo, infinite), stop and quit. The search runs on a
+ * worker thread, so that the console is still read while it runs, and
+ * reports each completed depth on an info line with its score, nodes,
+ * nodes per second and principal variation.
+ *
+ * Usage: java UciChess
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public class UciChess {
+  /* # DATA STRUCTURES # */
+
+  /** The number of moves a clock is shared over when the front end doesn't say. */
+  private static final int DEFAULT_MOVES_TO_GO = 30;
+
+  /** The time kept back from each move for the front end to receive it, in milliseconds. */
+  private static final int MOVE_OVERHEAD = 20;
+
+  /** The largest transposition table that may be set, in megabytes. */
+  private static final int MAX_HASH = 4096;
+
+  /** The engine searching the positions. */
+  private Engine engine;
+
+  /** The size of the engine's transposition table in megabytes. */
+  private int hash;
+
+  /** The position to search, as set by the last position command. */
+  private Position position;
+
+  /** The thread running the searches. */
+  private ExecutorService searcher;
+
+  /** The search running, or the last one. */
+  private Future<?> search;
+
+  /** Whether or not stop has been sent since the running search started, guarded by this object. */
+  private boolean stopRequested;
+
+  /** The time the running search started, in nanoseconds. */
+  private long start;
+
+  /** A reusable buffer for the legal moves of the position. */
+  private int[] moves;
+
+  /**
+   * Constructor for the UciChess class. Creates an engine with the default
+   * table size, on one thread, at the initial position.
+   */
+  public UciChess() {
+    hash = ComputerPlayer.DEFAULT_HASH;
+    engine = createEngine(hash, 1);
+    position = new Position();
+    position.reset();
+    moves = new int[Move.MAX_MOVES];
+    searcher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "UCI search");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Creates an engine that reports each completed depth.
+   * @param megabytes The size of its transposition table.
+   * @param threads The number of threads it searches with.
+   * @return The new Engine.
+   */
+  private Engine createEngine(int megabytes, int threads) {
+    final Engine created = new Engine(new TranspositionTable(megabytes));
+    created.setThreads(threads);
+    created.setListener(new Runnable() {
+      public void run() {
+        sendInfo(created);
+      }
+    });
+    return created;
+  }
+
+  /**
+   * Reads commands from the console until it closes or sends quit.
+   * @throws IOException if the console can't be read.
+   */
+  public void play() throws IOException {
+    BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+    for (String line; (line = in.readLine()) != null; ) {
+      String[] words = line.trim().split("\\s+");
+      String command = words[0];
+
+      // Case 1: Name the engine and its options.
+      if (command.equals("uci")) {
+        send("id name Chess");
+        send("id author Eric Wu, Yatin Ravi, Paul Shin");
+        send("option name Hash type spin default " + ComputerPlayer.DEFAULT_HASH + " min 1 max " + MAX_HASH);
+        send("option name Threads type spin default 1 min 1 max " + Engine.MAX_THREADS);
+        send("uciok");
+      }
+
+      // Case 2: Answer at once, even while searching.
+      else if (command.equals("isready"))
+        send("readyok");
+
+      // Case 3: Resize the transposition table, or change the number of threads.
+      else if (command.equals("setoption"))
+        setOption(words);
+
+      // Case 4: Forget the previous game.
+      else if (command.equals("ucinewgame")) {
+        stopSearch();
+        engine.getTable().clear();
+      }
+
+      // Case 5: Set up the position to search.
+      else if (command.equals("position")) {
+        stopSearch();
+        setPosition(line.trim());
+      }
+
+      // Case 6: Start searching on the worker thread.
+      else if (command.equals("go")) {
+        stopSearch();
+        go(words);
+      }
+
+      // Case 7: Stop the search, which then sends its best move.
+      else if (command.equals("stop"))
+        stopSearch();
+
+      else if (command.equals("quit"))
+        break;
+    }
+    stopSearch();
+    searcher.shutdown();
+  }
+
+  /**
+   * Handles a setoption command, e.g. "setoption name Hash value 64".
+   * @param words The words of the command.
+   */
+  private void setOption(String[] words) {
+    if (words.length < 5 || !words[1].equals("name") || !words[3].equals("value"))
+      return;
+    stopSearch();
+    try {
+      int value = Integer.parseInt(words[4]);
+      if (words[2].equalsIgnoreCase("Hash")) {
+        hash = Math.max(1, Math.min(value, MAX_HASH));
+        int threads = engine.getThreads();
+        engine.setThreads(1);
+        engine = createEngine(hash, threads);
+      } else if (words[2].equalsIgnoreCase("Threads"))
+        engine.setThreads(value);
+    } catch (NumberFormatException e) {
+      send("info string Not a valid value: " + words[4]);
+    }
+  }
+
+  /**
+   * Handles a position command, e.g. "position startpos moves e2e4 e7e5".
+   * @param line The command line.
+   */
+  private void setPosition(String line) {
+    int movesAt = line.indexOf(" moves");
+    String setup = (movesAt < 0) ? line : line.substring(0, movesAt);
+    try {
+      if (setup.contains(" fen "))
+        position.loadFen(setup.substring(setup.indexOf(" fen ") + 5));
+      else
+        position.reset();
+    } catch (IllegalArgumentException e) {
+      send("info string " + e.getMessage());
+      position.reset();
+      return;
+    }
+
+    if (movesAt < 0)
+      return;
+    for (String text : line.substring(movesAt + 6).trim().split("\\s+")) {
+      int move = Move.NONE;
+      int count = position.generateLegalMoves(moves);
+      for (int i = 0; i < count && move == Move.NONE; i++)
+        if (Move.toString(moves[i]).equals(text))
+          move = moves[i];
+      if (move == Move.NONE) {
+        if (!text.isEmpty())
+          send("info string Illegal move: " + text);
+        return;
+      }
+      position.makeMove(move);
+    }
+  }
+
+  /**
+   * Handles a go command, setting the limits of the engine and starting the
+   * search, e.g. "go wtime 60000 btime 60000 winc 1000 binc 1000".
+   * @param words The words of the command.
+   */
+  private void go(String[] words) {
+    int depth = Engine.MAX_PLY;
+    long nodes = 0;
+    long moveTime = 0;
+    long[] clocks = new long[2];
+    long[] increments = new long[2];
+    int movesToGo = DEFAULT_MOVES_TO_GO;
+    boolean infinite = false;
+
+    for (int i = 1; i < words.length; i++) {
+      if (words[i].equals("infinite")) {
+        infinite = true;
+        continue;
+      }
+      if (i + 1 == words.length)
+        break;
+      try {
+        long value = Long.parseLong(words[i + 1]);
+        switch (words[i]) {
+          case "depth" : depth = (int) value; break;
+          case "nodes" : nodes = value; break;
+          case "movetime" : moveTime = value; break;
+          case "wtime" : clocks[1] = value; break;
+          case "btime" : clocks[0] = value; break;
+          case "winc" : increments[1] = value; break;
+          case "binc" : increments[0] = value; break;
+          case "movestogo" : movesToGo = (int) Math.max(1, value); break;
+          default : continue;
+        }
+        i++;
+      } catch (NumberFormatException e) {
+        // A word without a number, such as "ponder".
+      }
+    }
+
+    // Share the clock of the player to move over the moves left, keeping some in reserve.
+    int turn = position.getTurn();
+    if (moveTime == 0 && clocks[turn] > 0) {
+      long share = clocks[turn] / movesToGo + increments[turn] * 3 / 4;
+      moveTime = Math.max(1, Math.min(share, clocks[turn] / 2) - MOVE_OVERHEAD);
+    }
+
+    engine.setDepthLimit(depth);
+    engine.setNodeLimit(nodes);
+    engine.setTimeLimit(moveTime);
+
+    final Engine searching = engine;
+    final Position root = new Position(position);
+    final boolean untilStopped = infinite;
+    synchronized (this) {
+      stopRequested = false;
+    }
+    start = System.nanoTime();
+    search = searcher.submit(new Runnable() {
+      public void run() {
+        int move = searching.search(root);
+        if (searching.getDepth() == 0)
+          sendInfo(searching);
+        // An infinite search may end early on a mate or a tablebase hit, but its move must wait for stop.
+        if (untilStopped)
+          awaitStop();
+        send("bestmove " + ((move == Move.NONE) ? "0000" : Move.toString(move)));
+      }
+    });
+  }
+
+  /**
+   * Waits on the search thread until the console thread has been told to stop the search.
+   */
+  private synchronized void awaitStop() {
+    try {
+      while (!stopRequested)
+        wait();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Stops the running search, if any, and waits until it has sent its best move.
+   * A search which hasn't started yet when told to stop is told again until it ends.
+   */
+  private void stopSearch() {
+    if (search == null)
+      return;
+    synchronized (this) {
+      stopRequested = true;
+      notifyAll();
+    }
+    while (!search.isDone()) {
+      engine.stop();
+      try {
+        search.get(5, TimeUnit.MILLISECONDS);
+      } catch (TimeoutException e) {
+        // Tell it to stop again.
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        send("info string The search failed: " + e.getCause());
+      }
+    }
+    search = null;
+  }
+
+  /**
+   * Sends an info line for the last completed depth of a search.
+   * @param searching The engine running the search.
+   */
+  private void sendInfo(Engine searching) {
+    long millis = Math.max(1, (System.nanoTime() - start) / 1000000L);
+    long nodes = searching.getNodes();
+    int score = searching.getScore();
+
+    StringBuilder info = new StringBuilder("info depth ").append(searching.getDepth());
+    if (Math.abs(score) >= Engine.MATE_BOUND)
+      info.append(" score mate ").append((score > 0) ? (Engine.MATE - score + 1) / 2 : -(Engine.MATE + score) / 2);
+    else
+      info.append(" score cp ").append(score);
+    info.append(" nodes ").append(nodes).append(" nps ").append(nodes * 1000 / millis).append(" time ").append(millis);
+    info.append(" pv");
+    for (int move : searching.getPrincipalVariation(position))
+      info.append(' ').append(Move.toString(move));
+    send(info.toString());
+  }
+
+  /**
+   * Sends a line to the front end. Both the console thread and the search thread send lines.
+   * @param line The line to send.
+   */
+  private static synchronized void send(String line) {
+    System.out.println(line);
+    System.out.flush();
+  }
+
+  public static void main(String[] args) throws IOException {
+    try {
+      Tablebase.loadAll(Paths.get("."));
+    } catch (IOException e) {
+      send("info string Can't open the tablebases: " + e.getMessage());
+    }
+    new UciChess().play();
+  }
+}
@@ -1,5 +1,9 @@
 
-/** The graphics version of the Chess game.
+/** The graphics version of the Chess game. After the scale, sending "top"
+ * or "bottom" as an argument lets the computer play that side, and
+ * "depth=N", "nodes=N", or "time=MILLISECONDS" limits how long the
+ * computer thinks about each move, while "threads=N" sets how many
+ * threads it thinks with.
  * @author Eric Wu
  * @author Yatin Ravi
  * @author Paul Shin
@@ -9,7 +13,7 @@ public class VisualChess {
   public static void main(String[] args) {
     int scale = 0;
 
-    if (args.length < 1) {
+    if (args.length < 1 || !Character.isDigit(args[0].charAt(0))) {
       System.out.println("Creating a new game at the default scale of 800.");
       System.out.println("If you'd like to set your own scale, send it as an argument.");
       scale = 800;
@@ -26,6 +30,6 @@ public class VisualChess {
       }
     }
 
-    (new Game(scale)).playGraphics();
+    (new Game(scale, ComputerPlayer.create(0, args), ComputerPlayer.create(1, args))).playGraphics();
   }
 }
\ No newline at end of file
@@ -0,0 +1,115 @@
+/** Random keys for identifying a Chess position by a single 64-bit number.
+ * The hash key of a position is the exclusive or of one key for each piece
+ * code on each square, one key if the top player is to move, one key for
+ * the castling rights that remain, and one key for the column of the en
+ * passant square, if any. Since exclusive or undoes itself, the key can be
+ * updated as a move is made by toggling only the keys that change.
+ * @author Eric Wu
+ * @author Yatin Ravi
+ * @author Paul Shin
+ * @version 1.0
+ */
+public final class Zobrist {
+  /* # DATA STRUCTURES # */
+
+  /** The keys of each piece code on each square, indexed by code * 64 + square. */
+  private static final long[] PIECES = new long[16 * 64];
+
+  /** The key toggled when the top player is to move. */
+  private static final long TOP_TO_MOVE;
+
+  /** The keys of each combination of castling rights. */
+  private static final long[] CASTLING = new long[16];
+
+  /** The keys of each column of the en passant square. */
+  private static final long[] EN_PASSANT = new long[8];
+
+  /** The seed of the random number generator used to create the keys. */
+  private static long seed = 0x5D1C3A8E92F4B607L;
+
+  static {
+    // The seed is fixed, so that keys saved to disk stay valid between runs.
+    for (int code = 0; code < 16; code++)
+      if (code != Position.EMPTY)
+        for (int sq = 0; sq < 64; sq++)
+          PIECES[code * 64 + sq] = nextRandom();
+    TOP_TO_MOVE = nextRandom();
+    for (int col = 0; col < 8; col++)
+      EN_PASSANT[col] = nextRandom();
+
+    // Each castling right has its own key, and a combination of rights toggles all of them.
+    long[] rights = {nextRandom(), nextRandom(), nextRandom(), nextRandom()};
+    for (int i = 0; i < 16; i++)
+      for (int bit = 0; bit < 4; bit++)
+        if ((i & (1 << bit)) != 0)
+          CASTLING[i] ^= rights[bit];
+  }
+
+  /** The Zobrist class only holds static tables, so it is never instantiated. */
+  private Zobrist() {
+  }
+
+  /* # METHODS # */
+
+  /**
+   * Returns the key of a piece code standing on a square.
+   * @param code The piece code, or EMPTY for a key of zero.
+   * @param square The index of the square.
+   * @return The key of the piece on the square.
+   */
+  public static long piece(int code, int square) {
+    return PIECES[code * 64 + square];
+  }
+
+  /**
+   * Returns the key of the player to move.
+   * @param player The ID of the player to move.
+   * @return The key of the player, zero for the bottom player.
+   */
+  public static long turn(int player) {
+    return (player == 0) ? TOP_TO_MOVE : 0L;
+  }
+
+  /**
+   * Returns the key of a combination of castling rights.
+   * @param rights A combination of Position.TOP_LEFT through Position.BOTTOM_RIGHT.
+   * @return The key of the castling rights.
+   */
+  public static long castling(int rights) {
+    return CASTLING[rights];
+  }
+
+  /**
+   * Returns the key of an en passant square, which depends only on its column.
+   * @param square The en passant square, or -1 for a key of zero.
+   * @return The key of the en passant square.
+   */
+  public static long enPassant(int square) {
+    return (square < 0) ? 0L : EN_PASSANT[Position.colOf(square)];
+  }
+
+  /**
+   * Computes the hash key of a position from scratch, by combining the key
+   * of every piece on the board with the keys of the rest of its state.
+   * @param position The position to hash.
+   * @return The hash key of the position.
+   */
+  public static long compute(Position position) {
+    long key = turn(position.getTurn()) ^ castling(position.getCastlingRights())
+             ^ enPassant(position.getEnPassantSquare());
+    for (int sq = 0; sq < 64; sq++)
+      key ^= piece(position.getCode(sq), sq);
+    return key;
+  }
+
+  /**
+   * Advances the xorshift generator used to create the keys.
+   * @return The next pseudo-random number.
+   */
+  private static long nextRandom() {
+    seed ^= seed >>> 12;
+    seed ^= seed << 25;
+    seed ^= seed >>> 27;
+    return seed * 0x2545F4914F6CDD1DL;
+  }
+}
@@ -0,0 +1,91 @@
+import java.util.Random;
+
+/**
+ * ZobristTester.java
+ *
+ * @author: Paul Shin
+ *
+ * Brief Program Description: Tester for the Zobrist hash keys. Plays random games,
+ * checking after every move, every take-back, and every raw change to the position
+ * that the key kept up to date matches the key computed from scratch.
+ */
+public class ZobristTester {
+  /** The number of random games to play. */
+  private static final int GAMES = 500;
+
+  /** The largest number of moves in a game. */
+  private static final int MAX_LENGTH = 200;
+
+  public static void main(String[] args) {
+    Random random = new Random(2018);
+    Position position = new Position();
+    int[] moves = new int[Move.MAX_MOVES];
+    long checks = 0;
+
+    // Testing reset()
+    position.reset();
+    long initialKey = position.getKey();
+    System.out.println("Initial key matches: " + (initialKey == Zobrist.compute(position)));
+
+    // Testing makeMove() and unmakeMove() over random games.
+    for (int game = 0; game < GAMES; game++) {
+      position.reset();
+      for (int n = 0; n < MAX_LENGTH; n++) {
+        int count = position.generateLegalMoves(moves);
+        if (count == 0)
+          break;
+        position.makeMove(moves[random.nextInt(count)]);
+        checks += verify(position, "makeMove");
+      }
+      while (position.getPly() > 0) {
+        position.unmakeMove();
+        checks += verify(position, "unmakeMove");
+      }
+      if (position.getKey() != initialKey) {
+        System.out.println("Taking back a game did not restore the initial key!");
+        return;
+      }
+
+      // Testing relocate(), put(), and the setters.
+      for (int n = 0; n < 20; n++) {
+        int from = random.nextInt(64);
+        int to = random.nextInt(64);
+        if (Position.typeOf(position.getCode(from)) != Position.KING
+            && Position.typeOf(position.getCode(to)) != Position.KING)
+          position.relocate(from, to);
+        checks += verify(position, "relocate");
+      }
+      position.put(Position.code(0, Position.QUEEN), random.nextInt(64));
+      checks += verify(position, "put");
+      position.setTurn(random.nextInt(2));
+      position.setCastlingRights(random.nextInt(16));
+      position.setEnPassantSquare(random.nextInt(65) - 1);
+      checks += verify(position, "setters");
+    }
+    System.out.println("Incremental keys match on all " + checks + " checks.");
+
+    // Testing that the same position reached by different moves has the same key.
+    position.reset();
+    position.makeMove(Move.create(Position.square(7, 6), Position.square(5, 5)));
+    position.makeMove(Move.create(Position.square(0, 6), Position.square(2, 5)));
+    position.makeMove(Move.create(Position.square(5, 5), Position.square(7, 6)));
+    position.makeMove(Move.create(Position.square(2, 5), Position.square(0, 6)));
+    System.out.println("Knights moving out and back return to the initial key: " + (position.getKey() == initialKey));
+    position.makeMove(Move.create(Position.square(7, 6), Position.square(5, 5)));
+    System.out.println("A different position has a different key: " + (position.getKey() != initialKey));
+  }
+
+  /**
+   * Prints a message and exits if the key of the position doesn't match its full recomputation.
+   * @param position The position to check.
+   * @param operation The name of the last operation applied to the position.
+   * @return 1, the number of checks made.
+   */
+  private static int verify(Position position, String operation) {
+    if (position.getKey() != Zobrist.compute(position)) {
+      System.out.println("Key mismatch after " + operation + "!");
+      System.exit(1);
+    }
+    return 1;
+  }
+}